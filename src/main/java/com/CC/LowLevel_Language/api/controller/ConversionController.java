@@ -1,5 +1,11 @@
 package com.CC.LowLevel_Language.api.controller;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,28 +16,45 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.CC.LowLevel_Language.api.dto.CompilationRequest;
 import com.CC.LowLevel_Language.api.dto.CompilationResponse;
+import com.CC.LowLevel_Language.api.dto.DocumentEditRequest;
+import com.CC.LowLevel_Language.api.dto.DocumentResponse;
 import com.CC.LowLevel_Language.api.dto.HealthResponse;
 import com.CC.LowLevel_Language.api.dto.ValidationResponse;
 import com.CC.LowLevel_Language.api.dto.Version2Response;
 import com.CC.LowLevel_Language.compiler.TACtoAssemblyConverter;
+import com.CC.LowLevel_Language.compiler.analysis.Liveness;
 import com.CC.LowLevel_Language.compiler.analysis.ResourceAnalysisResult;
 import com.CC.LowLevel_Language.compiler.analysis.ResourceAnalyzer;
 import com.CC.LowLevel_Language.compiler.optimizer.AssemblyOptimizer;
 import com.CC.LowLevel_Language.compiler.optimizer.OptimizationResult;
+import com.CC.LowLevel_Language.compiler.parser.IncrementalTACParser;
+import com.CC.LowLevel_Language.compiler.parser.TACDocument;
 import com.CC.LowLevel_Language.compiler.result.ConversionResult;
 
 @RestController
 @RequestMapping("/api/compile")
 @CrossOrigin(origins = "*")
 public class ConversionController {
+    // Open documents kept for incremental edits; the least recently used is dropped first
+    private static final int MAX_DOCUMENTS = 64;
+
     private final TACtoAssemblyConverter converter;
     private final ResourceAnalyzer resourceAnalyzer;
     private final AssemblyOptimizer optimizer;
+    private final IncrementalTACParser incrementalParser;
+    private final Map<String, TACDocument> documents;
 
     public ConversionController() {
         this.converter = new TACtoAssemblyConverter();
         this.resourceAnalyzer = new ResourceAnalyzer();
         this.optimizer = new AssemblyOptimizer();
+        this.incrementalParser = new IncrementalTACParser();
+        this.documents = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TACDocument> eldest) {
+                return size() > MAX_DOCUMENTS;
+            }
+        });
     }
 
     // ========== VERSION 1 ENDPOINTS ==========
@@ -88,11 +111,11 @@ public class ConversionController {
             response.setAssemblyLines(conversionResult.getAssemblyLines());
             
             // Step 2: Analyze Resources
-            ResourceAnalysisResult resourceResult = resourceAnalyzer.analyze(conversionResult.getAssemblyLines());
+            ResourceAnalysisResult resourceResult = analyzeResources(conversionResult);
             response.setResourceAnalysis(resourceResult);
             
             // Step 3: Optimize Assembly
-            OptimizationResult optimizationResult = optimizer.optimize(conversionResult.getAssemblyLines());
+            OptimizationResult optimizationResult = optimizer.optimize(conversionResult.getAssemblyInstructions());
             
             Version2Response.OptimizationData optData = new Version2Response.OptimizationData();
             optData.setOriginalCode(String.join("\n", optimizationResult.getOriginalCode()));
@@ -155,7 +178,7 @@ public class ConversionController {
             }
             
             // Then analyze resources
-            ResourceAnalysisResult resourceResult = resourceAnalyzer.analyze(result.getAssemblyLines());
+            ResourceAnalysisResult resourceResult = analyzeResources(result);
             response.setResourceAnalysis(resourceResult);
             response.setAssemblyCode(result.getAssemblyCode());
             response.setSuccess(true);
@@ -187,7 +210,7 @@ public class ConversionController {
             }
             
             // Then optimize
-            OptimizationResult optimizationResult = optimizer.optimize(result.getAssemblyLines());
+            OptimizationResult optimizationResult = optimizer.optimize(result.getAssemblyInstructions());
             
             Version2Response.OptimizationData optData = new Version2Response.OptimizationData();
             optData.setOriginalCode(String.join("\n", optimizationResult.getOriginalCode()));
@@ -209,4 +232,84 @@ public class ConversionController {
         
         return response;
     }
+
+    /**
+     * Version 2 - Assembly for an edited document: only the edited lines are
+     * re-lexed. A request with tacCode opens (or replaces) the document; one
+     * with edits must name the version it was made against, or the client is
+     * asked to resync with the full text.
+     */
+    @PostMapping("/v2/document")
+    public DocumentResponse documentAssembly(@RequestBody DocumentEditRequest request) {
+        DocumentResponse response = new DocumentResponse();
+        String documentId = request.getDocumentId() != null ? request.getDocumentId() : UUID.randomUUID().toString();
+        response.setDocumentId(documentId);
+
+        try {
+            TACDocument document;
+            if (request.getTacCode() != null) {
+                document = incrementalParser.parse(request.getTacCode());
+                documents.put(documentId, document);
+            } else {
+                document = documents.get(documentId);
+                if (document == null) {
+                    response.setResync(true);
+                    response.setMessage("Unknown document; send the full text");
+                    return response;
+                }
+            }
+
+            ConversionResult result;
+            synchronized (document) {
+                if (request.getTacCode() == null) {
+                    if (document.getVersion() != request.getBaseVersion()) {
+                        response.setResync(true);
+                        response.setMessage("Document is at version " + document.getVersion() + "; send the full text");
+                        return response;
+                    }
+                    try {
+                        incrementalParser.reparse(document, toLineEdits(request.getEdits()));
+                    } catch (RuntimeException e) {
+                        // A batch that failed part way leaves the document unknown to the client
+                        documents.remove(documentId);
+                        response.setResync(true);
+                        throw e;
+                    }
+                }
+                response.setVersion(document.getVersion());
+                result = converter.convertWithDetails(document);
+            }
+            response.setSuccess(result.isSuccess());
+            response.setMessage(result.getMessage());
+            if (result.isSuccess()) {
+                response.setAssemblyCode(result.getAssemblyCode());
+                response.setAssemblyLines(result.getAssemblyLines());
+            }
+
+        } catch (Exception e) {
+            response.setSuccess(false);
+            response.setMessage("Document update error: " + e.getMessage());
+        }
+
+        return response;
+    }
+
+    private static List<TACDocument.LineEdit> toLineEdits(List<DocumentEditRequest.Edit> edits) {
+        List<TACDocument.LineEdit> lineEdits = new ArrayList<>();
+        if (edits != null) {
+            for (DocumentEditRequest.Edit edit : edits) {
+                lineEdits.add(new TACDocument.LineEdit(edit.getStartLine(), edit.getRemovedLines(),
+                        edit.getNewText() != null ? edit.getNewText() : ""));
+            }
+        }
+        return lineEdits;
+    }
+
+    // Adds TAC liveness to the assembly statistics when the instructions were kept
+    private ResourceAnalysisResult analyzeResources(ConversionResult result) {
+        if (result.getTacInstructions() == null) {
+            return resourceAnalyzer.analyze(result.getAssemblyInstructions());
+        }
+        return resourceAnalyzer.analyze(result.getAssemblyInstructions(), Liveness.analyze(result.getTacInstructions()));
+    }
 }
@@ -15,10 +15,8 @@ public class CompilationResponse {
         response.setSuccess(result.isSuccess());
         response.setMessage(result.getMessage());
         response.setAssemblyCode(result.getAssemblyCode());
-        response.setInstructionCount(result.getTacInstructions() != null ?
-                result.getTacInstructions().size() : 0);
-        response.setAssemblyLineCount(result.getAssemblyLines() != null ?
-                result.getAssemblyLines().size() : 0);
+        response.setInstructionCount(result.getInstructionCount());
+        response.setAssemblyLineCount(result.getAssemblyLineCount());
         return response;
     }
 
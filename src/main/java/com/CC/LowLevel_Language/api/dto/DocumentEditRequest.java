@@ -0,0 +1,42 @@
+package com.CC.LowLevel_Language.api.dto;
+
+import java.util.List;
+
+/**
+ * Opens a server-side TAC document when tacCode is set, otherwise applies
+ * edits to the document at baseVersion.
+ */
+public class DocumentEditRequest {
+    private String documentId;
+    private int baseVersion;
+    private String tacCode;
+    private List<Edit> edits;
+
+    public String getDocumentId() { return documentId; }
+    public void setDocumentId(String documentId) { this.documentId = documentId; }
+
+    public int getBaseVersion() { return baseVersion; }
+    public void setBaseVersion(int baseVersion) { this.baseVersion = baseVersion; }
+
+    public String getTacCode() { return tacCode; }
+    public void setTacCode(String tacCode) { this.tacCode = tacCode; }
+
+    public List<Edit> getEdits() { return edits; }
+    public void setEdits(List<Edit> edits) { this.edits = edits; }
+
+    // Mirrors TACDocument.LineEdit
+    public static class Edit {
+        private int startLine;
+        private int removedLines;
+        private String newText;
+
+        public int getStartLine() { return startLine; }
+        public void setStartLine(int startLine) { this.startLine = startLine; }
+
+        public int getRemovedLines() { return removedLines; }
+        public void setRemovedLines(int removedLines) { this.removedLines = removedLines; }
+
+        public String getNewText() { return newText; }
+        public void setNewText(String newText) { this.newText = newText; }
+    }
+}
@@ -0,0 +1,20 @@
+package com.CC.LowLevel_Language.api.dto;
+
+/**
+ * Assembly for a server-side TAC document. When resync is set the server no
+ * longer holds the client's version and the full text has to be sent again.
+ */
+public class DocumentResponse extends Version2Response {
+    private String documentId;
+    private int version;
+    private boolean resync;
+
+    public String getDocumentId() { return documentId; }
+    public void setDocumentId(String documentId) { this.documentId = documentId; }
+
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+
+    public boolean isResync() { return resync; }
+    public void setResync(boolean resync) { this.resync = resync; }
+}
@@ -1,10 +1,14 @@
 package com.CC.LowLevel_Language.cli;
 
 import com.CC.LowLevel_Language.compiler.TACtoAssemblyConverter;
+import com.CC.LowLevel_Language.compiler.generator.CompilationOptions;
+import com.CC.LowLevel_Language.compiler.parser.AsciiByteSequence;
 import com.CC.LowLevel_Language.compiler.result.ConversionResult;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -15,20 +19,58 @@ public class Main {
 
     public static void main(String[] args) {
         try {
-            converter = new TACtoAssemblyConverter();
+            CompilationOptions options = new CompilationOptions();
 
-            if (args.length > 0) {
+            // Options start with "--"; the remaining arguments are input and output files
+            boolean memoryMapped = false;
+            boolean parallel = false;
+            boolean binaryInput = false;
+            boolean emitBinary = false;
+            boolean emitExecutable = false;
+            List<String> files = new ArrayList<>();
+            for (String arg : args) {
+                if (arg.equals("--mmap")) {
+                    memoryMapped = true;
+                } else if (arg.equals("--parallel")) {
+                    parallel = true;
+                } else if (arg.equals("--binary")) {
+                    binaryInput = true;
+                } else if (arg.equals("--emit-binary")) {
+                    emitBinary = true;
+                } else if (arg.equals("--elf")) {
+                    emitExecutable = true;
+                } else if (arg.startsWith("--target=")) {
+                    options.setTargetArchitecture(arg.substring("--target=".length()));
+                } else if (arg.equals("--64bit")) {
+                    options.setUse64BitOperations(true);
+                } else if (arg.startsWith("--allocator=")) {
+                    options.setRegisterAllocationStrategy(arg.substring("--allocator=".length()));
+                } else {
+                    files.add(arg);
+                }
+            }
+            converter = new TACtoAssemblyConverter(options);
+
+            if (!files.isEmpty()) {
                 // File input mode
-                String inputFile = args[0];
+                String inputFile = files.get(0);
                 // Replace the problematic line with explicit if-else:
                 String outputFile;
-                if (args.length > 1) {
-                    outputFile = args[1];
+                if (files.size() > 1) {
+                    outputFile = files.get(1);
                 } else {
-                    outputFile = "output.asm";
+                    outputFile = emitBinary ? "output.tacb" : emitExecutable ? "a.out" : "output.asm";
                 }
 
-                processFile(inputFile, outputFile);
+                if (emitExecutable) {
+                    emitExecutableFile(inputFile, outputFile);
+                } else if (emitBinary) {
+                    emitBinaryFile(inputFile, outputFile);
+                } else if (binaryInput) {
+                    processBinaryFile(inputFile, outputFile);
+                } else {
+                    processFile(inputFile, outputFile, memoryMapped, parallel);
+                }
             } else {
                 // Interactive mode
                 runInteractiveMode();
@@ -39,25 +81,58 @@ public class Main {
         }
     }
 
-    private static void processFile(String inputFile, String outputFile) {
+    private static void processFile(String inputFile, String outputFile, boolean memoryMapped, boolean parallel) {
         try {
             LOGGER.entering(Main.class.getName(), "processFile", new Object[]{inputFile, outputFile});
             LOGGER.info("Processing file: " + inputFile);
 
-            if (!Files.exists(Paths.get(inputFile))) {
+            Path inputPath = Paths.get(inputFile);
+            if (!Files.exists(inputPath)) {
                 throw new FileNotFoundException("Input file not found: " + inputFile);
             }
-
-            // Read TAC code from file
-            String tacCode = Files.readString(Paths.get(inputFile));
-            if (tacCode.trim().isEmpty()) {
+            if (Files.size(inputPath) == 0) {
                 throw new IllegalArgumentException("Input file is empty");
             }
 
-            // Convert TAC to Assembly with default options
-            ConversionResult result = converter.convertWithDetails(tacCode);
+            if (parallel) {
+                // Parallel parsing needs the whole input addressable at once
+                CharSequence tacCode = memoryMapped
+                        ? AsciiByteSequence.map(inputPath)
+                        : Files.readString(inputPath);
+                if (isBlank(tacCode)) {
+                    throw new IllegalArgumentException("Input file is empty");
+                }
+                handleConversionResult(converter.convertParallel(tacCode), outputFile);
+                return;
+            }
+
+            // Stream TAC code from the file through the converter straight into the output file
+            Path outputPath = prepareOutputFile(outputFile);
+            ConversionResult result;
+            try (Writer writer = Files.newBufferedWriter(outputPath)) {
+                if (memoryMapped) {
+                    result = converter.convertMappedFile(inputPath, writer);
+                } else {
+                    try (Reader reader = Files.newBufferedReader(inputPath)) {
+                        result = converter.convert(reader, writer);
+                    }
+                }
+            }
 
-            handleConversionResult(result, outputFile);
+            if (result.isSuccess() && result.getInstructionCount() == 0 && isBlank(inputPath)) {
+                Files.deleteIfExists(outputPath);
+                throw new IllegalArgumentException("Input file is empty");
+            }
+            if (result.isSuccess()) {
+                printSummary(result);
+                // Echo the written file rather than holding the assembly in memory
+                Files.copy(outputPath, System.out);
+                System.out.println();
+            } else {
+                Files.deleteIfExists(outputPath);
+                LOGGER.warning("Conversion failed: " + result.getMessage());
+                System.err.println("Conversion failed: " + result.getMessage());
+            }
 
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "File operation failed", e);
@@ -68,25 +143,88 @@ public class Main {
         }
     }
 
+    // Whether the file holds nothing but whitespace; only read again when the parse found no instructions
+    private static boolean isBlank(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            for (int c = reader.read(); c >= 0; c = reader.read()) {
+                if (!Character.isWhitespace(c)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Scans in place, so a mapped file is never copied onto the heap
+    private static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Parses TAC text once and saves it in the binary format for later --binary runs
+    private static void emitBinaryFile(String inputFile, String outputFile) {
+        try {
+            LOGGER.info("Writing binary TAC: " + inputFile + " -> " + outputFile);
+            String tacCode = Files.readString(Paths.get(inputFile));
+
+            int count;
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(Paths.get(outputFile)))) {
+                count = converter.writeBinary(tacCode, output);
+            }
+            System.out.println("Binary TAC written to " + outputFile + " (" + count + " instructions)");
+
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "File operation failed", e);
+            System.err.println("File error: " + e.getMessage());
+        }
+    }
+
+    // Encodes straight to machine code and writes a static ELF executable, skipping assembly text
+    private static void emitExecutableFile(String inputFile, String outputFile) {
+        try {
+            LOGGER.info("Writing executable: " + inputFile + " -> " + outputFile);
+            String tacCode = Files.readString(Paths.get(inputFile));
+
+            Path outputPath = prepareOutputFile(outputFile);
+            int textSize;
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(outputPath))) {
+                textSize = converter.writeExecutable(tacCode, output);
+            }
+            outputPath.toFile().setExecutable(true);
+            System.out.println("Executable written to " + outputFile + " (" + textSize + " bytes of code)");
+
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "File operation failed", e);
+            System.err.println("File error: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // The output file is opened before encoding starts
+            new File(outputFile).delete();
+            LOGGER.warning("Encoding failed: " + e.getMessage());
+            System.err.println("Encoding failed: " + e.getMessage());
+        }
+    }
+
+    private static void processBinaryFile(String inputFile, String outputFile) {
+        LOGGER.info("Processing binary TAC file: " + inputFile);
+        if (!Files.exists(Paths.get(inputFile))) {
+            System.err.println("File error: Input file not found: " + inputFile);
+            return;
+        }
+        handleConversionResult(converter.convertBinary(Paths.get(inputFile)), outputFile);
+    }
+
     private static void handleConversionResult(ConversionResult result, String outputFile) {
         try {
             if (result.isSuccess()) {
-                // Create parent directories if they don't exist
-                Path outputPath = Paths.get(outputFile);
-                if (outputPath.getParent() != null) {
-                    Files.createDirectories(outputPath.getParent());
-                }
-
                 // Write assembly code to output file
+                Path outputPath = prepareOutputFile(outputFile);
                 Files.writeString(outputPath, result.getAssemblyCode());
 
-                System.out.println("Conversion successful!");
-                System.out.println("TAC Instructions parsed: " +
-                        (result.getTacInstructions() != null ? result.getTacInstructions().size() : 0));
-                System.out.println("Assembly lines generated: " +
-                        (result.getAssemblyLines() != null ? result.getAssemblyLines().size() : 0));
-                System.out.println("\nGenerated Assembly Code:");
-                System.out.println("========================");
+                printSummary(result);
                 System.out.println(result.getAssemblyCode());
 
             } else {
@@ -99,6 +237,23 @@ public class Main {
         }
     }
 
+    // Creates parent directories if they don't exist
+    private static Path prepareOutputFile(String outputFile) throws IOException {
+        Path outputPath = Paths.get(outputFile);
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+        return outputPath;
+    }
+
+    private static void printSummary(ConversionResult result) {
+        System.out.println("Conversion successful!");
+        System.out.println("TAC Instructions parsed: " + result.getInstructionCount());
+        System.out.println("Assembly lines generated: " + result.getAssemblyLineCount());
+        System.out.println("\nGenerated Assembly Code:");
+        System.out.println("========================");
+    }
+
     private static void runInteractiveMode() {
         try (Scanner scanner = new Scanner(System.in)) {
             System.out.println("TAC to Assembly Converter - Interactive Mode");
@@ -1,37 +1,55 @@
 package com.CC.LowLevel_Language.compiler;
 
 
-import com.CC.LowLevel_Language.compiler.analysis.RegisterManager;
-import com.CC.LowLevel_Language.compiler.analysis.SymbolTable;
+import com.CC.LowLevel_Language.compiler.encoder.ElfWriter;
+import com.CC.LowLevel_Language.compiler.encoder.MachineCode;
+import com.CC.LowLevel_Language.compiler.encoder.X86Encoder;
 import com.CC.LowLevel_Language.compiler.generator.AssemblyGenerator;
+import com.CC.LowLevel_Language.compiler.generator.AssemblyInstruction;
+import com.CC.LowLevel_Language.compiler.generator.CompilationContext;
+import com.CC.LowLevel_Language.compiler.generator.CompilationOptions;
+import com.CC.LowLevel_Language.compiler.ir.TACBinaryFormat;
+import com.CC.LowLevel_Language.compiler.ir.TACBuffer;
+import com.CC.LowLevel_Language.compiler.parser.AbstractInstructionIterator;
+import com.CC.LowLevel_Language.compiler.parser.MappedInstructionIterator;
+import com.CC.LowLevel_Language.compiler.parser.OperandTable;
+import com.CC.LowLevel_Language.compiler.parser.TACDocument;
 import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
 import com.CC.LowLevel_Language.compiler.parser.TACParser;
 import com.CC.LowLevel_Language.compiler.result.ConversionResult;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.*;
 
 public class TACtoAssemblyConverter {
     private final TACParser parser;
     private final AssemblyGenerator generator;
-    private final RegisterManager registerManager;
-    private final SymbolTable symbolTable;
+    private final CompilationOptions options;
 
     public TACtoAssemblyConverter() {
+        this(new CompilationOptions());
+    }
+
+    /**
+     * Converter whose every compilation uses the given options, e.g. the
+     * target architecture. The options are read, never modified.
+     */
+    public TACtoAssemblyConverter(CompilationOptions options) {
         this.parser = new TACParser();
         this.generator = new AssemblyGenerator();
-        this.registerManager = new RegisterManager();
-        this.symbolTable = new SymbolTable();
+        this.options = options;
     }
 
+    public CompilationOptions getOptions() { return options; }
+
     public String convertTACToAssembly(String tacCode) {
         try {
             List<TACInstruction> instructions = parser.parseCode(tacCode);
-            List<String> assemblyLines = generator.generateAssembly(instructions);
-
             StringBuilder result = new StringBuilder();
-            for (String line : assemblyLines) {
-                result.append(line).append("\n");
-            }
+            generator.generateAssembly(instructions.iterator(), result, new CompilationContext(options));
             return result.toString();
 
         } catch (Exception e) {
@@ -44,7 +62,7 @@ public class TACtoAssemblyConverter {
     }
 
     public List<String> generateAssemblyFromInstructions(List<TACInstruction> instructions) {
-        return generator.generateAssembly(instructions);
+        return generator.generateAssembly(instructions.iterator(), new CompilationContext(options));
     }
 
     public ConversionResult convertWithDetails(String tacCode) {
@@ -56,16 +74,170 @@ public class TACtoAssemblyConverter {
             result.setTacInstructions(instructions);
 
             // Generate Assembly
-            List<String> assemblyLines = generator.generateAssembly(instructions);
-            result.setAssemblyLines(assemblyLines);
-
-            // Create formatted assembly string
-            StringBuilder assemblyCode = new StringBuilder();
-            for (String line : assemblyLines) {
-                assemblyCode.append(line).append("\n");
-            }
+            setAssembly(result, instructions);
+
+        } catch (Exception e) {
+            result.setSuccess(false);
+            result.setMessage("Error: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * Generates from an incrementally maintained document, so only the lines
+     * edited since the last call were lexed.
+     */
+    public ConversionResult convertWithDetails(TACDocument document) {
+        ConversionResult result = new ConversionResult();
+
+        try {
+            List<TACInstruction> instructions = document.getInstructions();
+            result.setTacInstructions(instructions);
+            setAssembly(result, instructions);
+
+        } catch (Exception e) {
+            result.setSuccess(false);
+            result.setMessage("Error: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses with the parallel chunked parser before generating; meant for
+     * very large in-memory or mapped inputs.
+     */
+    public ConversionResult convertParallel(CharSequence tacCode) {
+        ConversionResult result = new ConversionResult();
+
+        try {
+            List<TACInstruction> instructions = parser.parseParallel(tacCode, new OperandTable());
+            result.setTacInstructions(instructions);
+            setAssembly(result, instructions);
+
+        } catch (Exception e) {
+            result.setSuccess(false);
+            result.setMessage("Error: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * Streams TAC from the reader straight into the generator; the parsed
+     * instructions are never collected, so getTacInstructions() stays null
+     * and only the instruction count is reported. The reader is not closed.
+     */
+    public ConversionResult convertWithDetails(Reader tacSource) {
+        StringBuilder assemblyCode = new StringBuilder();
+        ConversionResult result = convertStream(parser.iterate(tacSource), assemblyCode);
+        if (result.isSuccess()) {
+            result.setAssemblyCode(assemblyCode.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Streams TAC from the reader and writes the assembly straight to out,
+     * so the assembly text is never held in memory. The instructions are
+     * only buffered when the register allocator needs the whole program;
+     * with the sequential strategy nothing is. The result carries only the
+     * counts; getAssemblyCode() stays null. Neither the reader nor out is
+     * closed.
+     */
+    public ConversionResult convert(Reader tacSource, Appendable out) {
+        return convertStream(parser.iterate(tacSource), out);
+    }
+
+    /**
+     * Same as the Reader variant, but the file is memory-mapped and lexed
+     * from its raw ASCII bytes.
+     */
+    public ConversionResult convertMappedFile(Path tacFile) {
+        StringBuilder assemblyCode = new StringBuilder();
+        ConversionResult result = convertMappedFile(tacFile, assemblyCode);
+        if (result.isSuccess()) {
             result.setAssemblyCode(assemblyCode.toString());
+        }
+        return result;
+    }
+
+    // Mapped counterpart of convert(Reader, Appendable)
+    public ConversionResult convertMappedFile(Path tacFile, Appendable out) {
+        try (MappedInstructionIterator instructions = parser.iterateMapped(tacFile)) {
+            return convertStream(instructions, out);
+        } catch (Exception e) {
+            ConversionResult result = new ConversionResult();
+            result.setSuccess(false);
+            result.setMessage("Error: " + e.getMessage());
+            return result;
+        }
+    }
+
+    /**
+     * Converts a program saved with writeBinary, skipping the text parse.
+     */
+    public ConversionResult convertBinary(Path binaryFile) {
+        ConversionResult result = new ConversionResult();
+
+        try {
+            List<TACInstruction> instructions = TACBinaryFormat.read(binaryFile).toInstructions();
+            result.setTacInstructions(instructions);
+            setAssembly(result, instructions);
 
+        } catch (Exception e) {
+            result.setSuccess(false);
+            result.setMessage("Error: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the TAC text once and saves it in the compact binary format.
+     * Returns the number of instructions written.
+     */
+    public int writeBinary(CharSequence tacCode, OutputStream output) throws IOException {
+        OperandTable operands = new OperandTable();
+        TACBuffer program = TACBuffer.from(parser.parseCode(tacCode, operands), operands);
+        TACBinaryFormat.write(program, output);
+        return program.size();
+    }
+
+    /**
+     * Encodes the generated instructions straight into machine code for the
+     * configured target, without rendering assembly text. Throws
+     * IllegalArgumentException for an instruction that cannot be encoded.
+     */
+    public MachineCode convertToMachineCode(CharSequence tacCode) {
+        CompilationContext context = new CompilationContext(options);
+        context.setExecutable(true);
+        List<AssemblyInstruction> code = generator.generateInstructions(parser.parseCode(tacCode).iterator(), context);
+        return new X86Encoder(context.getTarget(), context.isWide()).encode(code);
+    }
+
+    /**
+     * Writes the program as a static ELF executable for the configured
+     * target. A top-level return exits with the returned value as the
+     * status, and falling off the end exits with 0. Returns the size of the
+     * encoded text in bytes.
+     */
+    public int writeExecutable(CharSequence tacCode, OutputStream output) throws IOException {
+        CompilationContext context = new CompilationContext(options);
+        context.setExecutable(true);
+        List<AssemblyInstruction> code = generator.generateInstructions(parser.parseCode(tacCode).iterator(), context);
+        MachineCode machineCode = new X86Encoder(context.getTarget(), context.isWide()).encode(code);
+        ElfWriter.write(machineCode, context.getTarget(), output);
+        return machineCode.getTextSize();
+    }
+
+    private ConversionResult convertStream(AbstractInstructionIterator instructions, Appendable out) {
+        ConversionResult result = new ConversionResult();
+
+        try {
+            result.setAssemblyLineCount(generator.generateAssembly(instructions, out, new CompilationContext(options)));
+            result.setInstructionCount(instructions.getInstructionCount());
             result.setSuccess(true);
             result.setMessage("Conversion successful");
 
@@ -76,4 +248,13 @@ public class TACtoAssemblyConverter {
 
         return result;
     }
+
+    private void setAssembly(ConversionResult result, List<TACInstruction> instructions) {
+        // Keep the structured form; text and lines are rendered only on request
+        result.setAssemblyInstructions(generator.generateInstructions(instructions.iterator(),
+                new CompilationContext(options)));
+
+        result.setSuccess(true);
+        result.setMessage("Conversion successful");
+    }
 }
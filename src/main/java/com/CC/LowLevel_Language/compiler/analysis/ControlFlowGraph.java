@@ -0,0 +1,190 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Basic blocks of a TAC program and the jumps between them. A block starts
+ * at the first instruction, at every label and after every jump, branch or
+ * return, and it runs up to the next such point. Blocks are numbered in
+ * program order, so block 0 is the entry.
+ */
+public class ControlFlowGraph {
+    private static final int[] NONE = new int[0];
+
+    private final List<TACInstruction> instructions;
+    // First instruction of each block, followed by the instruction count
+    private final int[] blockStart;
+    private final int[] blockOfInstruction;
+    private final int[][] successors;
+    private final int[][] predecessors;
+    // Number of loops around each block, computed on first use
+    private int[] loopDepth;
+
+    private ControlFlowGraph(List<TACInstruction> instructions, int[] blockStart, int[] blockOfInstruction,
+                             int[][] successors, int[][] predecessors) {
+        this.instructions = instructions;
+        this.blockStart = blockStart;
+        this.blockOfInstruction = blockOfInstruction;
+        this.successors = successors;
+        this.predecessors = predecessors;
+    }
+
+    /**
+     * Builds the graph in two linear passes. A jump to a label the program
+     * does not define leaves its block without that successor.
+     */
+    public static ControlFlowGraph build(List<TACInstruction> program) {
+        int count = program.size();
+        int[] labelIndex = new int[64];
+        Arrays.fill(labelIndex, -1);
+        boolean[] leader = new boolean[count + 1];
+        leader[0] = true;
+        leader[count] = true;
+        for (int i = 0; i < count; i++) {
+            TACInstruction instruction = program.get(i);
+            if (instruction.isLabel()) {
+                labelIndex = recordLabel(labelIndex, instruction.getLabel().getId(), i);
+                leader[i] = true;
+            } else if (endsBlock(instruction)) {
+                leader[i + 1] = true;
+            }
+        }
+
+        int blocks = 0;
+        for (int i = 0; i < count; i++) {
+            if (leader[i]) blocks++;
+        }
+        int[] blockStart = new int[blocks + 1];
+        int[] blockOfInstruction = new int[count];
+        int block = -1;
+        for (int i = 0; i < count; i++) {
+            if (leader[i]) {
+                blockStart[++block] = i;
+            }
+            blockOfInstruction[i] = block;
+        }
+        blockStart[blocks] = count;
+
+        int[][] successors = new int[blocks][];
+        int[] predecessorCount = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            TACInstruction last = program.get(blockStart[b + 1] - 1);
+            int fallThrough = b + 1 < blocks ? b + 1 : -1;
+            int jump = -1;
+            Operand target = last.getTarget();
+            if (target != null && target.getId() < labelIndex.length && labelIndex[target.getId()] >= 0) {
+                jump = blockOfInstruction[labelIndex[target.getId()]];
+            }
+            Opcode opcode = last.getOpcode();
+            if (opcode == Opcode.RETURN) {
+                successors[b] = NONE;
+            } else if (opcode == Opcode.GOTO) {
+                successors[b] = jump >= 0 ? new int[] {jump} : NONE;
+            } else if (opcode.getKind() == Opcode.Kind.BRANCH && jump >= 0 && jump != fallThrough) {
+                successors[b] = fallThrough >= 0 ? new int[] {fallThrough, jump} : new int[] {jump};
+            } else {
+                successors[b] = fallThrough >= 0 ? new int[] {fallThrough} : NONE;
+            }
+            for (int successor : successors[b]) {
+                predecessorCount[successor]++;
+            }
+        }
+
+        int[][] predecessors = new int[blocks][];
+        for (int b = 0; b < blocks; b++) {
+            predecessors[b] = predecessorCount[b] == 0 ? NONE : new int[predecessorCount[b]];
+            predecessorCount[b] = 0;
+        }
+        for (int b = 0; b < blocks; b++) {
+            for (int successor : successors[b]) {
+                predecessors[successor][predecessorCount[successor]++] = b;
+            }
+        }
+        return new ControlFlowGraph(program, blockStart, blockOfInstruction, successors, predecessors);
+    }
+
+    private static boolean endsBlock(TACInstruction instruction) {
+        Opcode.Kind kind = instruction.getOpcode().getKind();
+        return kind == Opcode.Kind.JUMP || kind == Opcode.Kind.BRANCH || kind == Opcode.Kind.RETURN;
+    }
+
+    private static int[] recordLabel(int[] labelIndex, int label, int instruction) {
+        if (label >= labelIndex.length) {
+            int length = labelIndex.length;
+            labelIndex = Arrays.copyOf(labelIndex, Math.max(label + 1, length * 2));
+            Arrays.fill(labelIndex, length, labelIndex.length, -1);
+        }
+        labelIndex[label] = instruction;
+        return labelIndex;
+    }
+
+    public List<TACInstruction> getInstructions() { return instructions; }
+
+    public int getBlockCount() { return blockStart.length - 1; }
+
+    public int getBlockStart(int block) { return blockStart[block]; }
+
+    // Index just past the block's last instruction
+    public int getBlockEnd(int block) { return blockStart[block + 1]; }
+
+    public int getBlock(int instructionIndex) { return blockOfInstruction[instructionIndex]; }
+
+    public int[] getSuccessors(int block) { return successors[block]; }
+
+    public int[] getPredecessors(int block) { return predecessors[block]; }
+
+    /**
+     * How many loops contain the block. A jump to a block at or before the
+     * jumping one closes a loop headed by its target; the loop's body is
+     * every block that reaches the jump backward without passing the header.
+     * Jumps to one header form a single loop. For the structured code TAC is
+     * generated from this matches the natural loops.
+     */
+    public int getLoopDepth(int block) {
+        if (loopDepth == null) {
+            loopDepth = computeLoopDepths();
+        }
+        return loopDepth[block];
+    }
+
+    private int[] computeLoopDepths() {
+        int blocks = getBlockCount();
+        int[] depth = new int[blocks];
+        // Last header a block was counted for, so a body shared by several back edges counts once
+        int[] countedFor = new int[blocks];
+        Arrays.fill(countedFor, -1);
+        int[] stack = new int[blocks];
+        for (int header = 0; header < blocks; header++) {
+            for (int latch : predecessors[header]) {
+                if (latch < header) {
+                    continue;
+                }
+                if (countedFor[header] != header) {
+                    countedFor[header] = header;
+                    depth[header]++;
+                }
+                int top = 0;
+                if (countedFor[latch] != header) {
+                    countedFor[latch] = header;
+                    depth[latch]++;
+                    stack[top++] = latch;
+                }
+                while (top > 0) {
+                    for (int predecessor : predecessors[stack[--top]]) {
+                        if (countedFor[predecessor] != header) {
+                            countedFor[predecessor] = header;
+                            depth[predecessor]++;
+                            stack[top++] = predecessor;
+                        }
+                    }
+                }
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,537 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+
+import java.util.*;
+
+/**
+ * Iterated register coalescing (George and Appel): a Chaitin-Briggs graph
+ * coloring allocator that interleaves conservative coalescing of copies with
+ * simplification. The phases are build, simplify, coalesce, freeze,
+ * potential spill and select, as in Appel's "Modern Compiler
+ * Implementation". Spilled variables are addressed in memory directly, so no
+ * rewrite and rebuild round is needed.
+ *
+ * Slower than linear scan and quadratic in the worst case, but it spills
+ * less and lets copies between variables share a register.
+ */
+public class GraphColoringAllocator implements RegisterAllocator {
+
+    // Largest graph given an adjacency bit matrix, 8 MB at most
+    private static final int MATRIX_LIMIT = 8192;
+
+    // Where a node currently is; every node is in exactly one place
+    private enum NodeState { INITIAL, SIMPLIFY, FREEZE, SPILL, SPILLED, COALESCED, COLORED, SELECTED }
+
+    private enum MoveState { WORKLIST, ACTIVE, COALESCED, CONSTRAINED, FROZEN }
+
+    @Override
+    public List<LiveInterval> allocate(List<TACInstruction> program, List<String> registers,
+                                       RegisterConstraints constraints, SymbolTable symbols) {
+        Liveness liveness = Liveness.analyze(program);
+        List<LiveInterval> intervals = LinearScanAllocator.buildIntervals(liveness);
+        LinearScanAllocator.markConstants(liveness, intervals);
+        LinearScanAllocator.addHints(program, intervals, constraints);
+        Coloring coloring = new Coloring(intervals, registers);
+        coloring.build(liveness, constraints);
+        coloring.run();
+
+        for (int node = 0; node < intervals.size(); node++) {
+            int color = coloring.color[node];
+            intervals.get(node).setRegister(color >= 0 ? registers.get(color) : null);
+        }
+        LinearScanAllocator.recordLiveRanges(intervals, symbols);
+        for (int u = 0; u < intervals.size(); u++) {
+            for (int v : coloring.adjacencyList.get(u)) {
+                if (u < v) {
+                    symbols.addInterference(intervals.get(u).getVariable(), intervals.get(v).getVariable());
+                }
+            }
+        }
+        return intervals;
+    }
+
+    // The worklists of one allocation; nodes are interval indexes
+    private static final class Coloring {
+        private final List<LiveInterval> intervals;
+        private final List<String> registers;
+        private final int k;
+        private final int[] degree;
+        // Colors a node may not take because an instruction clobbers them while it is live
+        private final int[] forbidden;
+        private final int[] alias;
+        private final int[] color;
+        private final NodeState[] state;
+        private final List<List<Integer>> adjacencyList;
+        // Interfering pairs: a bit matrix for graphs of moderate size, else a hash set
+        private final long[] adjacencyMatrix;
+        private final PairSet adjacentPairs;
+        private final List<List<Integer>> moveList;
+        // Copies as {destination, source}
+        private final List<int[]> moves = new ArrayList<>();
+        private final List<MoveState> moveState = new ArrayList<>();
+
+        private final Set<Integer> simplifyWorklist = new LinkedHashSet<>();
+        private final Set<Integer> freezeWorklist = new LinkedHashSet<>();
+        private final Set<Integer> spillWorklist = new LinkedHashSet<>();
+        private final Deque<Integer> worklistMoves = new ArrayDeque<>();
+        private final Deque<Integer> selectStack = new ArrayDeque<>();
+
+        Coloring(List<LiveInterval> intervals, List<String> registers) {
+            this.intervals = intervals;
+            this.registers = registers;
+            this.k = registers.size();
+            int n = intervals.size();
+            degree = new int[n];
+            forbidden = new int[n];
+            alias = new int[n];
+            color = new int[n];
+            Arrays.fill(color, -1);
+            state = new NodeState[n];
+            Arrays.fill(state, NodeState.INITIAL);
+            adjacencyMatrix = n <= MATRIX_LIMIT ? new long[(int) (((long) n * n + 63) >>> 6)] : null;
+            adjacentPairs = adjacencyMatrix == null ? new PairSet() : null;
+            adjacencyList = new ArrayList<>(n);
+            moveList = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                adjacencyList.add(new ArrayList<>());
+                moveList.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * Chaitin's interference: walking each block backward from its
+         * live-out, a written variable interferes with everything live after
+         * the write. The source of a copy is left out, so the two ends of a
+         * copy may share a register and the copy becomes a move candidate.
+         * Clobbered registers are forbidden to the operands of the clobbering
+         * instruction and to everything live across it; each forbidden color
+         * counts towards the node's degree like a precolored neighbour.
+         */
+        void build(Liveness liveness, RegisterConstraints constraints) {
+            ControlFlowGraph graph = liveness.getGraph();
+            List<TACInstruction> program = graph.getInstructions();
+            int[] nodeByIndex = new int[liveness.getVariableCount()];
+            for (int node = 0; node < intervals.size(); node++) {
+                nodeByIndex[liveness.indexOfId(intervals.get(node).getId())] = node;
+            }
+
+            long[] live = new long[liveness.getWordCount()];
+            for (int block = 0; block < graph.getBlockCount(); block++) {
+                System.arraycopy(liveness.getBlockLiveOut(block), 0, live, 0, live.length);
+                for (int i = graph.getBlockEnd(block) - 1; i >= graph.getBlockStart(block); i--) {
+                    TACInstruction instruction = program.get(i);
+                    Operand destination = Liveness.definition(instruction);
+                    int clobbers = clobberMask(constraints.of(instruction));
+                    if (clobbers != 0) {
+                        int written = destination != null ? liveness.indexOf(destination) : -1;
+                        for (int v = Liveness.nextMember(live, 0); v >= 0; v = Liveness.nextMember(live, v + 1)) {
+                            if (v != written) {
+                                forbidden[nodeByIndex[v]] |= clobbers;
+                            }
+                        }
+                        Liveness.forEachUse(instruction,
+                                operand -> forbidden[nodeByIndex[liveness.indexOf(operand)]] |= clobbers);
+                    }
+                    if (destination != null) {
+                        int written = liveness.indexOf(destination);
+                        Operand source = instruction.getOperand1();
+                        int copied = instruction.getOpcode() == Opcode.COPY && source.isVariable()
+                                ? liveness.indexOf(source) : -1;
+                        if (copied >= 0 && copied != written) {
+                            Liveness.remove(live, copied);
+                            addMove(nodeByIndex[written], nodeByIndex[copied]);
+                        }
+                        for (int v = Liveness.nextMember(live, 0); v >= 0; v = Liveness.nextMember(live, v + 1)) {
+                            addEdge(nodeByIndex[written], nodeByIndex[v]);
+                        }
+                        Liveness.remove(live, written);
+                    }
+                    Liveness.forEachUse(instruction, operand -> Liveness.add(live, liveness.indexOf(operand)));
+                }
+            }
+        }
+
+        private int clobberMask(RegisterConstraint constraint) {
+            int mask = 0;
+            if (constraint != null) {
+                for (String clobber : constraint.getClobbers()) {
+                    int color = registers.indexOf(clobber);
+                    if (color >= 0) {
+                        mask |= 1 << color;
+                    }
+                }
+            }
+            return mask;
+        }
+
+        private void addMove(int destination, int source) {
+            int move = moves.size();
+            moves.add(new int[] {destination, source});
+            moveState.add(MoveState.WORKLIST);
+            worklistMoves.add(move);
+            moveList.get(destination).add(move);
+            moveList.get(source).add(move);
+        }
+
+        void run() {
+            for (int node = 0; node < intervals.size(); node++) {
+                degree[node] += Integer.bitCount(forbidden[node]);
+            }
+            makeWorklist();
+            while (true) {
+                if (!simplifyWorklist.isEmpty()) {
+                    simplify();
+                } else if (!worklistMoves.isEmpty()) {
+                    coalesce();
+                } else if (!freezeWorklist.isEmpty()) {
+                    freeze();
+                } else if (!spillWorklist.isEmpty()) {
+                    selectSpill();
+                } else {
+                    break;
+                }
+            }
+            assignColors();
+        }
+
+        private void addEdge(int u, int v) {
+            if (u == v || interferes(u, v)) {
+                return;
+            }
+            if (adjacencyMatrix != null) {
+                long bit = (long) u * intervals.size() + v;
+                adjacencyMatrix[(int) (bit >>> 6)] |= 1L << bit;
+                bit = (long) v * intervals.size() + u;
+                adjacencyMatrix[(int) (bit >>> 6)] |= 1L << bit;
+            } else {
+                adjacentPairs.add(pair(Math.min(u, v), Math.max(u, v)));
+            }
+            adjacencyList.get(u).add(v);
+            adjacencyList.get(v).add(u);
+            degree[u]++;
+            degree[v]++;
+        }
+
+        private boolean interferes(int u, int v) {
+            if (adjacencyMatrix != null) {
+                long bit = (long) u * intervals.size() + v;
+                return (adjacencyMatrix[(int) (bit >>> 6)] & 1L << bit) != 0;
+            }
+            return adjacentPairs.contains(pair(Math.min(u, v), Math.max(u, v)));
+        }
+
+        // Key of the unordered pair; callers pass the smaller node first
+        private static long pair(int u, int v) {
+            return (long) u << 32 | v;
+        }
+
+        private void makeWorklist() {
+            for (int node = 0; node < intervals.size(); node++) {
+                if (degree[node] >= k) {
+                    moveTo(node, NodeState.SPILL);
+                } else if (isMoveRelated(node)) {
+                    moveTo(node, NodeState.FREEZE);
+                } else {
+                    moveTo(node, NodeState.SIMPLIFY);
+                }
+            }
+        }
+
+        private void moveTo(int node, NodeState next) {
+            worklist(state[node]).remove(node);
+            state[node] = next;
+            worklist(next).add(node);
+        }
+
+        private Set<Integer> worklist(NodeState nodeState) {
+            switch (nodeState) {
+                case SIMPLIFY: return simplifyWorklist;
+                case FREEZE: return freezeWorklist;
+                case SPILL: return spillWorklist;
+                default: return Collections.emptySet();
+            }
+        }
+
+        // Neighbours still in the graph: not on the select stack and not coalesced away
+        private List<Integer> adjacent(int node) {
+            List<Integer> adjacent = new ArrayList<>();
+            for (int neighbour : adjacencyList.get(node)) {
+                if (state[neighbour] != NodeState.SELECTED && state[neighbour] != NodeState.COALESCED) {
+                    adjacent.add(neighbour);
+                }
+            }
+            return adjacent;
+        }
+
+        private List<Integer> nodeMoves(int node) {
+            List<Integer> nodeMoves = new ArrayList<>();
+            for (int move : moveList.get(node)) {
+                MoveState current = moveState.get(move);
+                if (current == MoveState.ACTIVE || current == MoveState.WORKLIST) {
+                    nodeMoves.add(move);
+                }
+            }
+            return nodeMoves;
+        }
+
+        private boolean isMoveRelated(int node) {
+            for (int move : moveList.get(node)) {
+                MoveState current = moveState.get(move);
+                if (current == MoveState.ACTIVE || current == MoveState.WORKLIST) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void simplify() {
+            Iterator<Integer> next = simplifyWorklist.iterator();
+            int node = next.next();
+            next.remove();
+            state[node] = NodeState.SELECTED;
+            selectStack.push(node);
+            for (int neighbour : adjacent(node)) {
+                decrementDegree(neighbour);
+            }
+        }
+
+        private void decrementDegree(int node) {
+            int previous = degree[node]--;
+            if (previous != k) {
+                return;
+            }
+            enableMoves(node);
+            for (int neighbour : adjacent(node)) {
+                enableMoves(neighbour);
+            }
+            if (state[node] == NodeState.SPILL) {
+                moveTo(node, isMoveRelated(node) ? NodeState.FREEZE : NodeState.SIMPLIFY);
+            }
+        }
+
+        private void enableMoves(int node) {
+            for (int move : nodeMoves(node)) {
+                if (moveState.get(move) == MoveState.ACTIVE) {
+                    moveState.set(move, MoveState.WORKLIST);
+                    worklistMoves.add(move);
+                }
+            }
+        }
+
+        private void coalesce() {
+            int move = worklistMoves.poll();
+            if (moveState.get(move) != MoveState.WORKLIST) {
+                return;
+            }
+            int u = alias(moves.get(move)[0]);
+            int v = alias(moves.get(move)[1]);
+
+            if (u == v) {
+                moveState.set(move, MoveState.COALESCED);
+                addWorklist(u);
+            } else if (interferes(u, v)) {
+                moveState.set(move, MoveState.CONSTRAINED);
+                addWorklist(u);
+                addWorklist(v);
+            } else if (isGeorgeSafe(u, v) || isConservative(u, v)) {
+                moveState.set(move, MoveState.COALESCED);
+                combine(u, v);
+                addWorklist(u);
+            } else if (isGeorgeSafe(v, u)) {
+                moveState.set(move, MoveState.COALESCED);
+                combine(v, u);
+                addWorklist(v);
+            } else {
+                moveState.set(move, MoveState.ACTIVE);
+            }
+        }
+
+        private void addWorklist(int node) {
+            if (state[node] == NodeState.FREEZE && !isMoveRelated(node) && degree[node] < k) {
+                moveTo(node, NodeState.SIMPLIFY);
+            }
+        }
+
+        /**
+         * George: every neighbour of v of significant degree already
+         * interferes with u, and v has no forbidden color u lacks, so merging
+         * v into u adds no constraint u did not have. Cheaper than Briggs and
+         * succeeds where u has many neighbours.
+         */
+        private boolean isGeorgeSafe(int u, int v) {
+            if ((forbidden[v] & ~forbidden[u]) != 0) {
+                return false;
+            }
+            for (int neighbour : adjacent(v)) {
+                if (degree[neighbour] >= k && !interferes(neighbour, u)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Briggs: the merged node has fewer than k neighbours of significant degree
+        private boolean isConservative(int u, int v) {
+            Set<Integer> neighbours = new HashSet<>(adjacent(u));
+            neighbours.addAll(adjacent(v));
+            int significant = 0;
+            for (int neighbour : neighbours) {
+                if (degree[neighbour] >= k) {
+                    significant++;
+                }
+            }
+            return significant < k;
+        }
+
+        private int alias(int node) {
+            while (state[node] == NodeState.COALESCED) {
+                node = alias[node];
+            }
+            return node;
+        }
+
+        private void combine(int u, int v) {
+            worklist(state[v]).remove(v);
+            state[v] = NodeState.COALESCED;
+            alias[v] = u;
+            degree[u] += Integer.bitCount(forbidden[v] & ~forbidden[u]);
+            forbidden[u] |= forbidden[v];
+            moveList.get(u).addAll(moveList.get(v));
+            enableMoves(v);
+            for (int neighbour : adjacent(v)) {
+                addEdge(neighbour, u);
+                decrementDegree(neighbour);
+            }
+            if (degree[u] >= k && state[u] == NodeState.FREEZE) {
+                moveTo(u, NodeState.SPILL);
+            }
+        }
+
+        private void freeze() {
+            int node = freezeWorklist.iterator().next();
+            moveTo(node, NodeState.SIMPLIFY);
+            freezeMoves(node);
+        }
+
+        private void freezeMoves(int u) {
+            for (int move : nodeMoves(u)) {
+                int x = moves.get(move)[0];
+                int y = moves.get(move)[1];
+                int v = alias(y) == alias(u) ? alias(x) : alias(y);
+                moveState.set(move, MoveState.FROZEN);
+                if (state[v] == NodeState.FREEZE && !isMoveRelated(v) && degree[v] < k) {
+                    moveTo(v, NodeState.SIMPLIFY);
+                }
+            }
+        }
+
+        // Cheapest to keep in memory: lowest loop-weighted spill cost per interfering neighbour
+        private void selectSpill() {
+            int candidate = -1;
+            double lowest = Double.MAX_VALUE;
+            for (int node : spillWorklist) {
+                double cost = intervals.get(node).getSpillCost() / Math.max(1, degree[node]);
+                if (cost < lowest) {
+                    lowest = cost;
+                    candidate = node;
+                }
+            }
+            moveTo(candidate, NodeState.SIMPLIFY);
+            freezeMoves(candidate);
+        }
+
+        private void assignColors() {
+            boolean[] taken = new boolean[k];
+            while (!selectStack.isEmpty()) {
+                int node = selectStack.pop();
+                for (int c = 0; c < k; c++) {
+                    taken[c] = (forbidden[node] & 1 << c) != 0;
+                }
+                for (int neighbour : adjacencyList.get(node)) {
+                    int representative = alias(neighbour);
+                    if (state[representative] == NodeState.COLORED) {
+                        taken[color[representative]] = true;
+                    }
+                }
+                int free = 0;
+                String hint = intervals.get(node).getHint();
+                int preferred = hint != null ? registers.indexOf(hint) : -1;
+                if (preferred >= 0 && !taken[preferred]) {
+                    free = preferred;
+                }
+                while (free < k && taken[free]) {
+                    free++;
+                }
+                if (free == k) {
+                    state[node] = NodeState.SPILLED;
+                } else {
+                    state[node] = NodeState.COLORED;
+                    color[node] = free;
+                }
+            }
+            for (int node = 0; node < intervals.size(); node++) {
+                if (state[node] == NodeState.COALESCED) {
+                    color[node] = color[alias(node)];
+                }
+            }
+        }
+    }
+
+    // Open-addressing set of pair keys, which avoids boxing millions of edges
+    private static final class PairSet {
+        private static final long EMPTY = -1L;
+        private long[] keys = newTable(1 << 16);
+        private int size;
+
+        private static long[] newTable(int capacity) {
+            long[] table = new long[capacity];
+            Arrays.fill(table, EMPTY);
+            return table;
+        }
+
+        boolean contains(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(long key) {
+            if (2 * (size + 1) > keys.length) {
+                long[] old = keys;
+                keys = newTable(old.length * 2);
+                size = 0;
+                for (long existing : old) {
+                    if (existing != EMPTY) {
+                        insert(existing);
+                    }
+                }
+            }
+            insert(key);
+        }
+
+        private void insert(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            size++;
+        }
+
+        private static int hash(long key) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ mixed >>> 32);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+
+import java.util.*;
+
+/**
+ * Linear-scan register allocation (Poletto and Sarkar). Live intervals are
+ * built from liveness over the control-flow graph and visited in start order:
+ * intervals that ended are expired and give their register back, and when
+ * none is free the live interval with the lowest loop-weighted spill cost is
+ * spilled to memory for its whole lifetime, the one read furthest away among
+ * equal costs. The allocator keeps no state between calls, and both passes
+ * are linear in the program size for a fixed register count.
+ */
+public class LinearScanAllocator implements RegisterAllocator {
+    // Loop nesting beyond this adds no further spill cost
+    private static final int MAX_WEIGHTED_DEPTH = 8;
+
+    @Override
+    public List<LiveInterval> allocate(List<TACInstruction> program, List<String> registers,
+                                       RegisterConstraints constraints, SymbolTable symbols) {
+        Liveness liveness = Liveness.analyze(program);
+        List<LiveInterval> intervals = buildIntervals(liveness);
+        markConstants(liveness, intervals);
+        addHints(program, intervals, constraints);
+        scan(intervals, registers, clobberPositions(program, registers, constraints));
+        recordLiveRanges(intervals, symbols);
+        return intervals;
+    }
+
+    /**
+     * Finds the variables that can be rematerialized: written once, by a copy
+     * of a literal that fits an instruction's 32-bit immediate, and not read
+     * on any path before that write. Every read then sees the literal.
+     */
+    static void markConstants(Liveness liveness, List<LiveInterval> intervals) {
+        int[] definitions = new int[liveness.getVariableCount()];
+        String[] constants = new String[liveness.getVariableCount()];
+        for (TACInstruction instruction : liveness.getGraph().getInstructions()) {
+            Operand result = Liveness.definition(instruction);
+            if (result == null) {
+                continue;
+            }
+            int index = liveness.indexOf(result);
+            Operand source = instruction.getOperand1();
+            if (definitions[index]++ == 0 && instruction.getOpcode() == Opcode.COPY && source.isConstant()
+                    && source.getValue() == (int) source.getValue()) {
+                constants[index] = source.getText();
+            }
+        }
+        if (intervals.isEmpty()) {
+            return;
+        }
+        long[] entryLiveIn = liveness.getBlockLiveIn(0);
+        for (LiveInterval interval : intervals) {
+            int index = liveness.indexOfId(interval.getId());
+            if (definitions[index] == 1 && constants[index] != null && !Liveness.contains(entryLiveIn, index)) {
+                interval.setConstant(constants[index]);
+            }
+        }
+    }
+
+    // Records the result and operand registers of constrained instructions, and copy sources, as preferences
+    static void addHints(List<TACInstruction> program, List<LiveInterval> intervals, RegisterConstraints constraints) {
+        LiveInterval[] byId = new LiveInterval[64];
+        for (LiveInterval interval : intervals) {
+            byId = grow(byId, interval.getId());
+            byId[interval.getId()] = interval;
+        }
+        for (TACInstruction instruction : program) {
+            Operand source = instruction.getOperand1();
+            if (instruction.getOpcode() == Opcode.COPY && source.isVariable()) {
+                byId[instruction.getResult().getId()].addCopySource(byId[source.getId()]);
+            }
+            RegisterConstraint constraint = constraints.of(instruction);
+            if (constraint == null) {
+                continue;
+            }
+            Operand result = Liveness.definition(instruction);
+            if (result != null && constraint.getResultRegister() != null) {
+                byId[result.getId()].addHint(constraint.getResultRegister());
+            }
+            Operand operand = instruction.getOperand1();
+            if (operand != null && operand.isVariable() && constraint.getOperandRegister() != null) {
+                byId[operand.getId()].addHint(constraint.getOperandRegister());
+            }
+        }
+    }
+
+    private static LiveInterval[] grow(LiveInterval[] byId, int id) {
+        return id < byId.length ? byId : Arrays.copyOf(byId, Math.max(id + 1, byId.length * 2));
+    }
+
+    /**
+     * Read positions of the instructions clobbering each register, ascending,
+     * indexed like registers. A clobber sits at the read position so that it
+     * hits the instruction's operands and everything live across it, but not
+     * the result written afterwards.
+     */
+    private static int[][] clobberPositions(List<TACInstruction> program, List<String> registers,
+                                            RegisterConstraints constraints) {
+        int[][] positions = new int[registers.size()][];
+        int[] counts = new int[registers.size()];
+        for (int r = 0; r < positions.length; r++) {
+            positions[r] = new int[0];
+        }
+        for (int i = 0; i < program.size(); i++) {
+            RegisterConstraint constraint = constraints.of(program.get(i));
+            if (constraint == null) {
+                continue;
+            }
+            for (String clobber : constraint.getClobbers()) {
+                int r = registers.indexOf(clobber);
+                if (r < 0) {
+                    continue;
+                }
+                if (counts[r] == positions[r].length) {
+                    positions[r] = Arrays.copyOf(positions[r], Math.max(8, counts[r] * 2));
+                }
+                positions[r][counts[r]++] = LiveInterval.usePosition(i);
+            }
+        }
+        for (int r = 0; r < positions.length; r++) {
+            positions[r] = Arrays.copyOf(positions[r], counts[r]);
+        }
+        return positions;
+    }
+
+    // Whether no instruction clobbering the register falls inside the interval
+    private static boolean isAllowed(LiveInterval interval, int register, int[][] clobbers) {
+        int[] positions = clobbers[register];
+        int low = 0;
+        int high = positions.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positions[middle] < interval.getStart()) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low == positions.length || positions[low] > interval.getEnd();
+    }
+
+    static void recordLiveRanges(List<LiveInterval> intervals, SymbolTable symbols) {
+        for (LiveInterval interval : intervals) {
+            symbols.addSymbol(interval.getVariable(), LiveInterval.instructionIndex(interval.getStart()));
+            symbols.markSymbolDead(interval.getVariable(), LiveInterval.instructionIndex(interval.getEnd()));
+        }
+    }
+
+    static List<LiveInterval> buildIntervals(List<TACInstruction> program) {
+        return buildIntervals(Liveness.analyze(program));
+    }
+
+    /**
+     * Intervals in order of increasing start, one per variable and in the
+     * same order as the liveness indexes before sorting. Each interval spans
+     * its reads and writes and the boundaries of every block the variable is
+     * live into or out of, so a value carried around a loop back edge covers
+     * the loop while a temporary local to the loop body does not.
+     */
+    static List<LiveInterval> buildIntervals(Liveness liveness) {
+        ControlFlowGraph graph = liveness.getGraph();
+        List<TACInstruction> program = graph.getInstructions();
+        LiveInterval[] byIndex = new LiveInterval[liveness.getVariableCount()];
+        List<LiveInterval> intervals = new ArrayList<>(byIndex.length);
+
+        for (int i = 0; i < program.size(); i++) {
+            TACInstruction instruction = program.get(i);
+            int use = LiveInterval.usePosition(i);
+            double weight = Math.pow(10, Math.min(graph.getLoopDepth(graph.getBlock(i)), MAX_WEIGHTED_DEPTH));
+            Liveness.forEachUse(instruction,
+                    operand -> interval(liveness, operand, use, byIndex, intervals).addUse(use, weight));
+            Operand result = Liveness.definition(instruction);
+            if (result != null) {
+                int definition = LiveInterval.definitionPosition(i);
+                interval(liveness, result, definition, byIndex, intervals).addDefinition(definition, weight);
+            }
+        }
+
+        for (int block = 0; block < graph.getBlockCount(); block++) {
+            int start = LiveInterval.usePosition(graph.getBlockStart(block));
+            int end = LiveInterval.definitionPosition(graph.getBlockEnd(block) - 1);
+            long[] in = liveness.getBlockLiveIn(block);
+            for (int v = Liveness.nextMember(in, 0); v >= 0; v = Liveness.nextMember(in, v + 1)) {
+                byIndex[v].extend(start, start);
+            }
+            long[] out = liveness.getBlockLiveOut(block);
+            for (int v = Liveness.nextMember(out, 0); v >= 0; v = Liveness.nextMember(out, v + 1)) {
+                byIndex[v].extend(end, end);
+            }
+        }
+        intervals.sort(Comparator.comparingInt(LiveInterval::getStart));
+        return intervals;
+    }
+
+    private static LiveInterval interval(Liveness liveness, Operand variable, int position,
+                                         LiveInterval[] byIndex, List<LiveInterval> intervals) {
+        int index = liveness.indexOf(variable);
+        if (byIndex[index] == null) {
+            byIndex[index] = new LiveInterval(variable.getText(), variable.getId(), position);
+            intervals.add(byIndex[index]);
+        }
+        return byIndex[index];
+    }
+
+    private static void scan(List<LiveInterval> intervals, List<String> registers, int[][] clobbers) {
+        // Active intervals by increasing end; never more than there are registers
+        List<LiveInterval> active = new ArrayList<>(registers.size() + 1);
+        Deque<String> free = new ArrayDeque<>(registers);
+
+        for (LiveInterval interval : intervals) {
+            int position = interval.getStart();
+            Iterator<LiveInterval> expired = active.iterator();
+            while (expired.hasNext()) {
+                LiveInterval candidate = expired.next();
+                if (candidate.getEnd() >= position) {
+                    break;
+                }
+                free.offer(candidate.getRegister());
+                expired.remove();
+            }
+
+            String register = choose(interval, free, registers, clobbers);
+            if (register == null) {
+                LiveInterval spill = interval;
+                int furthest = interval.nextUse(position);
+                for (LiveInterval candidate : active) {
+                    if (!isAllowed(interval, registers.indexOf(candidate.getRegister()), clobbers)) {
+                        continue;
+                    }
+                    int nextUse = candidate.nextUse(position);
+                    if (isCheaperToSpill(candidate, nextUse, spill, furthest)) {
+                        spill = candidate;
+                        furthest = nextUse;
+                    }
+                }
+                if (spill == interval) {
+                    continue;
+                }
+                interval.setRegister(spill.getRegister());
+                spill.setRegister(null);
+                active.remove(spill);
+            } else {
+                free.remove(register);
+                interval.setRegister(register);
+            }
+            insertByEnd(active, interval);
+        }
+    }
+
+    /**
+     * The register of the variable this one is copied from, then the hinted
+     * register, then the first free one the interval may take. Taking the
+     * copy source's register is conservative coalescing: it is free only if
+     * the source's interval ended by the copy, so the two never interfere,
+     * and it is never preferred at the cost of a spill.
+     */
+    private static String choose(LiveInterval interval, Deque<String> free, List<String> registers, int[][] clobbers) {
+        LiveInterval source = interval.getCopySource();
+        if (source != null && !source.isSpilled() && free.contains(source.getRegister())
+                && isAllowed(interval, registers.indexOf(source.getRegister()), clobbers)) {
+            return source.getRegister();
+        }
+        String hint = interval.getHint();
+        if (hint != null && free.contains(hint) && isAllowed(interval, registers.indexOf(hint), clobbers)) {
+            return hint;
+        }
+        for (String register : free) {
+            if (isAllowed(interval, registers.indexOf(register), clobbers)) {
+                return register;
+            }
+        }
+        return null;
+    }
+
+    // Lower spill cost first; between equal costs the one read again later
+    private static boolean isCheaperToSpill(LiveInterval candidate, int candidateNextUse,
+                                            LiveInterval current, int currentNextUse) {
+        if (candidate.getSpillCost() != current.getSpillCost()) {
+            return candidate.getSpillCost() < current.getSpillCost();
+        }
+        return candidateNextUse > currentNextUse;
+    }
+
+    private static void insertByEnd(List<LiveInterval> active, LiveInterval interval) {
+        int index = active.size();
+        while (index > 0 && active.get(index - 1).getEnd() > interval.getEnd()) {
+            index--;
+        }
+        active.add(index, interval);
+    }
+}
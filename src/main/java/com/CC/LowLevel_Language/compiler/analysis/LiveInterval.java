@@ -0,0 +1,149 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import java.util.Arrays;
+
+/**
+ * The span of instruction positions over which a variable holds a value that
+ * may still be read. Instruction i has two positions: 2i where its operands
+ * are read and 2i + 1 where its result is written, so a variable read for the
+ * last time by an instruction can hand its register to that instruction's
+ * result.
+ */
+public class LiveInterval {
+    private final String variable;
+    private final int id;
+    private int start;
+    private int end;
+    // Read positions in increasing order
+    private int[] uses;
+    private int useCount;
+    private int definitionCount;
+    // Estimated loads and stores if the variable lived in memory
+    private double spillCost;
+    // First entry of uses not yet passed by the allocator
+    private int nextUseIndex;
+    private String register;
+    // Register a fixed-register instruction produces or consumes the variable in
+    private String hint;
+    // Variable the first copy into this one reads from
+    private LiveInterval copySource;
+    // Literal the variable always holds, or null; see setConstant
+    private String constant;
+
+    public LiveInterval(String variable, int id, int start) {
+        this.variable = variable;
+        this.id = id;
+        this.start = start;
+        this.end = start;
+        this.uses = new int[4];
+    }
+
+    public static int usePosition(int instructionIndex) {
+        return 2 * instructionIndex;
+    }
+
+    public static int definitionPosition(int instructionIndex) {
+        return 2 * instructionIndex + 1;
+    }
+
+    public static int instructionIndex(int position) {
+        return position / 2;
+    }
+
+    public String getVariable() { return variable; }
+    // Operand id of the variable
+    public int getId() { return id; }
+    public int getStart() { return start; }
+    public int getEnd() { return end; }
+
+    // Register holding the variable, or null if it was spilled to memory
+    public String getRegister() { return register; }
+    public void setRegister(String register) { this.register = register; }
+
+    public boolean isSpilled() { return register == null; }
+
+    // Preferred register, which saves a move when it can be given; may be null
+    public String getHint() { return hint; }
+
+    // The first preference recorded wins
+    void addHint(String register) {
+        if (hint == null) {
+            hint = register;
+        }
+    }
+
+    // Interval whose register would make the copy into this variable a self-move; may be null
+    public LiveInterval getCopySource() { return copySource; }
+
+    void addCopySource(LiveInterval source) {
+        if (copySource == null && source != this) {
+            copySource = source;
+        }
+    }
+
+    // Literal every read of the variable sees, or null
+    public String getConstant() { return constant; }
+
+    /**
+     * Marks the variable as holding the literal wherever it is read. If it
+     * is spilled, uses take the literal as an immediate instead of loading
+     * from memory, and the definition needs no store, so it costs nothing
+     * to spill.
+     */
+    void setConstant(String constant) { this.constant = constant; }
+
+    // Spilled without a memory home: each use is the constant itself
+    public boolean isRematerialized() { return register == null && constant != null; }
+
+    // Number of reads and writes of the variable
+    public int getReferenceCount() { return useCount + definitionCount; }
+
+    /**
+     * References weighted by how often they run: each one counts 10^d for a
+     * reference inside d nested loops, so values used in hot loops are the
+     * last ones moved to memory. A constant costs nothing to spill.
+     */
+    public double getSpillCost() { return constant != null ? 0 : spillCost; }
+
+    public boolean covers(int position) {
+        return start <= position && position <= end;
+    }
+
+    void addUse(int position, double weight) {
+        if (useCount == uses.length) {
+            uses = Arrays.copyOf(uses, useCount * 2);
+        }
+        uses[useCount++] = position;
+        spillCost += weight;
+        end = Math.max(end, position);
+    }
+
+    void addDefinition(int position, double weight) {
+        definitionCount++;
+        spillCost += weight;
+        end = Math.max(end, position);
+    }
+
+    // Widens the interval, e.g. to a block boundary the variable is live across
+    void extend(int from, int to) {
+        start = Math.min(start, from);
+        end = Math.max(end, to);
+    }
+
+    /**
+     * First read at or after the position, or Integer.MAX_VALUE if there is
+     * none. Positions must not decrease between calls, which keeps a whole
+     * allocation pass linear.
+     */
+    int nextUse(int position) {
+        while (nextUseIndex < useCount && uses[nextUseIndex] < position) {
+            nextUseIndex++;
+        }
+        return nextUseIndex < useCount ? uses[nextUseIndex] : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return variable + "[" + start + ", " + end + "]" + (register != null ? " -> " + register : " spilled");
+    }
+}
@@ -0,0 +1,361 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import com.CC.LowLevel_Language.compiler.parser.Expression;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Live variables of a TAC program, solved backward over its control-flow
+ * graph with a worklist. Variables are numbered densely in order of first
+ * appearance and sets are long[] bitsets over those numbers, so a block
+ * costs a few words per 64 variables and the union at a join is a word-wise
+ * or. Only block boundaries are stored; the sets at a single instruction are
+ * rebuilt on request by walking back from the block's live-out.
+ */
+public class Liveness {
+    private static final int CHECKPOINT_INTERVAL = 64;
+
+    private final ControlFlowGraph graph;
+    // Dense index by operand id, -1 for operands that are not variables
+    private final int[] indexById;
+    private final List<Operand> variables;
+    private final int words;
+    private final long[][] blockLiveIn;
+    private final long[][] blockLiveOut;
+
+    // Checkpoints of the most recently queried block
+    private int cachedBlock = -1;
+    private long[][] cachedCheckpoints;
+
+    private Liveness(ControlFlowGraph graph, int[] indexById, List<Operand> variables) {
+        this.graph = graph;
+        this.indexById = indexById;
+        this.variables = variables;
+        this.words = (variables.size() + 63) >>> 6;
+        this.blockLiveIn = new long[graph.getBlockCount()][];
+        this.blockLiveOut = new long[graph.getBlockCount()][];
+    }
+
+    public static Liveness analyze(List<TACInstruction> program) {
+        return analyze(ControlFlowGraph.build(program));
+    }
+
+    public static Liveness analyze(ControlFlowGraph graph) {
+        List<TACInstruction> program = graph.getInstructions();
+        List<Operand> variables = new ArrayList<>();
+        int[][] indexById = {new int[64]};
+        Arrays.fill(indexById[0], -1);
+        Consumer<Operand> intern = operand -> {
+            int id = operand.getId();
+            if (id >= indexById[0].length) {
+                int length = indexById[0].length;
+                indexById[0] = Arrays.copyOf(indexById[0], Math.max(id + 1, length * 2));
+                Arrays.fill(indexById[0], length, indexById[0].length, -1);
+            }
+            if (indexById[0][id] < 0) {
+                indexById[0][id] = variables.size();
+                variables.add(operand);
+            }
+        };
+        for (TACInstruction instruction : program) {
+            forEachUse(instruction, intern);
+            Operand result = definition(instruction);
+            if (result != null) {
+                intern.accept(result);
+            }
+        }
+
+        Liveness liveness = new Liveness(graph, indexById[0], variables);
+        liveness.solve();
+        return liveness;
+    }
+
+    /**
+     * Variables read by the instruction, in operand order; an operand read
+     * twice is reported twice.
+     */
+    static void forEachUse(TACInstruction instruction, Consumer<Operand> action) {
+        switch (instruction.getOpcode().getKind()) {
+            case LABEL:
+            case JUMP:
+                break;
+            case EXPRESSION:
+                forEachLeaf(instruction.getExpression(), action);
+                break;
+            case CALL:
+                accept(instruction.getOperand1(), action);
+                if (instruction.getArguments() != null) {
+                    for (Operand argument : instruction.getArguments()) {
+                        accept(argument, action);
+                    }
+                }
+                break;
+            default:
+                accept(instruction.getOperand1(), action);
+                accept(instruction.getOperand2(), action);
+                break;
+        }
+    }
+
+    // The variable written by the instruction, or null
+    static Operand definition(TACInstruction instruction) {
+        Operand result = instruction.getResult();
+        return result != null && result.isVariable() ? result : null;
+    }
+
+    private static void forEachLeaf(Expression node, Consumer<Operand> action) {
+        if (node.isLeaf()) {
+            accept(node.getOperand(), action);
+        } else {
+            forEachLeaf(node.getLeft(), action);
+            forEachLeaf(node.getRight(), action);
+        }
+    }
+
+    private static void accept(Operand operand, Consumer<Operand> action) {
+        if (operand != null && operand.isVariable()) {
+            action.accept(operand);
+        }
+    }
+
+    private void solve() {
+        int blocks = graph.getBlockCount();
+        long[][] use = new long[blocks][];
+        long[][] def = new long[blocks][];
+        List<TACInstruction> program = graph.getInstructions();
+        for (int b = 0; b < blocks; b++) {
+            long[] blockUse = new long[words];
+            long[] blockDef = new long[words];
+            for (int i = graph.getBlockStart(b); i < graph.getBlockEnd(b); i++) {
+                TACInstruction instruction = program.get(i);
+                // Upward exposed: read before any write in the block
+                forEachUse(instruction, operand -> {
+                    int index = indexOf(operand);
+                    if (!contains(blockDef, index)) {
+                        add(blockUse, index);
+                    }
+                });
+                Operand result = definition(instruction);
+                if (result != null) {
+                    add(blockDef, indexOf(result));
+                }
+            }
+            use[b] = blockUse;
+            def[b] = blockDef;
+            blockLiveIn[b] = blockUse.clone();
+            blockLiveOut[b] = new long[words];
+        }
+
+        // Backward problem: seed with the last block first so most blocks settle in one visit
+        Deque<Integer> worklist = new ArrayDeque<>(blocks);
+        boolean[] queued = new boolean[blocks];
+        for (int b = blocks - 1; b >= 0; b--) {
+            worklist.add(b);
+            queued[b] = true;
+        }
+        while (!worklist.isEmpty()) {
+            int b = worklist.poll();
+            queued[b] = false;
+            long[] out = blockLiveOut[b];
+            for (int successor : graph.getSuccessors(b)) {
+                long[] in = blockLiveIn[successor];
+                for (int w = 0; w < words; w++) {
+                    out[w] |= in[w];
+                }
+            }
+            long[] in = blockLiveIn[b];
+            boolean changed = false;
+            for (int w = 0; w < words; w++) {
+                long next = use[b][w] | (out[w] & ~def[b][w]);
+                if (next != in[w]) {
+                    in[w] = next;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                continue;
+            }
+            for (int predecessor : graph.getPredecessors(b)) {
+                if (!queued[predecessor]) {
+                    queued[predecessor] = true;
+                    worklist.add(predecessor);
+                }
+            }
+        }
+    }
+
+    public ControlFlowGraph getGraph() { return graph; }
+
+    public int getVariableCount() { return variables.size(); }
+
+    public Operand getVariable(int index) { return variables.get(index); }
+
+    // Dense index of a variable operand, or -1 for constants and unknown variables
+    public int indexOf(Operand operand) {
+        return operand.isVariable() ? indexOfId(operand.getId()) : -1;
+    }
+
+    // Dense index of the variable with the given operand id, or -1
+    public int indexOfId(int id) {
+        return id >= 0 && id < indexById.length ? indexById[id] : -1;
+    }
+
+    // Bitset length in longs
+    public int getWordCount() { return words; }
+
+    public long[] getBlockLiveIn(int block) { return blockLiveIn[block]; }
+
+    public long[] getBlockLiveOut(int block) { return blockLiveOut[block]; }
+
+    // Variables live just before the instruction, as a fresh set
+    public long[] getLiveIn(int instructionIndex) {
+        long[] live = getLiveOut(instructionIndex);
+        step(graph.getInstructions().get(instructionIndex), live);
+        return live;
+    }
+
+    // Variables live just after the instruction, as a fresh set
+    public long[] getLiveOut(int instructionIndex) {
+        int block = graph.getBlock(instructionIndex);
+        checkpoints(block);
+        int offset = instructionIndex - graph.getBlockStart(block);
+        int checkpoint = offset / CHECKPOINT_INTERVAL + 1;
+        int from;
+        long[] live;
+        if (checkpoint < cachedCheckpoints.length) {
+            from = graph.getBlockStart(block) + checkpoint * CHECKPOINT_INTERVAL - 1;
+            live = cachedCheckpoints[checkpoint].clone();
+        } else {
+            from = graph.getBlockEnd(block) - 1;
+            live = blockLiveOut[block].clone();
+        }
+        List<TACInstruction> program = graph.getInstructions();
+        for (int i = from; i > instructionIndex; i--) {
+            step(program.get(i), live);
+        }
+        return live;
+    }
+
+    public boolean isLiveOut(int instructionIndex, Operand variable) {
+        int index = indexOf(variable);
+        return index >= 0 && contains(getLiveOut(instructionIndex), index);
+    }
+
+    // Whether the instruction writes a variable no later instruction reads
+    public boolean isDeadDefinition(int instructionIndex) {
+        Operand result = definition(graph.getInstructions().get(instructionIndex));
+        return result != null && !isLiveOut(instructionIndex, result);
+    }
+
+    /**
+     * The largest number of variables live at once between two instructions,
+     * a lower bound on the registers needed to keep every value out of memory.
+     */
+    public int getMaxLive() {
+        int max = 0;
+        long[] live = new long[words];
+        List<TACInstruction> program = graph.getInstructions();
+        for (int b = 0; b < graph.getBlockCount(); b++) {
+            System.arraycopy(blockLiveOut[b], 0, live, 0, words);
+            int[] size = {count(live)};
+            max = Math.max(max, size[0]);
+            for (int i = graph.getBlockEnd(b) - 1; i >= graph.getBlockStart(b); i--) {
+                TACInstruction instruction = program.get(i);
+                Operand result = definition(instruction);
+                if (result != null && remove(live, indexOf(result))) {
+                    size[0]--;
+                }
+                forEachUse(instruction, operand -> {
+                    if (add(live, indexOf(operand))) {
+                        size[0]++;
+                    }
+                });
+                max = Math.max(max, size[0]);
+            }
+        }
+        return max;
+    }
+
+    // Live-out of the instruction into its live-in, in place
+    private void step(TACInstruction instruction, long[] live) {
+        Operand result = definition(instruction);
+        if (result != null) {
+            remove(live, indexOf(result));
+        }
+        forEachUse(instruction, operand -> add(live, indexOf(operand)));
+    }
+
+    /**
+     * Keeps the live-in of every CHECKPOINT_INTERVAL-th instruction of the
+     * block, so a query walks back a bounded distance without storing a set
+     * per instruction. Entry k is the live-in at offset k * CHECKPOINT_INTERVAL,
+     * i.e. the live-out of the instruction before it.
+     */
+    private void checkpoints(int block) {
+        if (block == cachedBlock) {
+            return;
+        }
+        int start = graph.getBlockStart(block);
+        int size = graph.getBlockEnd(block) - start;
+        cachedCheckpoints = new long[(size - 1) / CHECKPOINT_INTERVAL + 1][];
+        long[] live = blockLiveOut[block].clone();
+        List<TACInstruction> program = graph.getInstructions();
+        for (int offset = size - 1; offset >= 0; offset--) {
+            step(program.get(start + offset), live);
+            if (offset % CHECKPOINT_INTERVAL == 0) {
+                cachedCheckpoints[offset / CHECKPOINT_INTERVAL] = live.clone();
+            }
+        }
+        cachedBlock = block;
+    }
+
+    public static boolean contains(long[] set, int index) {
+        return (set[index >>> 6] & 1L << index) != 0;
+    }
+
+    // Whether the set changed
+    static boolean add(long[] set, int index) {
+        long word = set[index >>> 6];
+        set[index >>> 6] = word | 1L << index;
+        return set[index >>> 6] != word;
+    }
+
+    static boolean remove(long[] set, int index) {
+        long word = set[index >>> 6];
+        set[index >>> 6] = word & ~(1L << index);
+        return set[index >>> 6] != word;
+    }
+
+    public static int count(long[] set) {
+        int count = 0;
+        for (long word : set) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // First member at or after the index, or -1
+    public static int nextMember(long[] set, int from) {
+        int w = from >>> 6;
+        if (w >= set.length) {
+            return -1;
+        }
+        long word = set[w] & -1L << from;
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == set.length) {
+                return -1;
+            }
+            word = set[w];
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+
+import java.util.List;
+
+/**
+ * Maps the variables of a whole program to registers before code is
+ * generated. Implementations keep no state between calls, so one instance
+ * can serve concurrent compilations.
+ */
+public interface RegisterAllocator {
+
+    /**
+     * Returns the live interval of every variable, in order of increasing
+     * start, with the register chosen from registers (in allocation order) or
+     * none if the variable lives in memory. Variables sharing a register are
+     * never live at the same point, though their intervals may overlap where
+     * one of them has a lifetime hole. No variable read by an instruction or
+     * live across it is given a register the instruction clobbers. Start and
+     * end lines are recorded in symbols.
+     */
+    List<LiveInterval> allocate(List<TACInstruction> program, List<String> registers,
+                                RegisterConstraints constraints, SymbolTable symbols);
+
+    // Allocation for instructions without fixed registers
+    default List<LiveInterval> allocate(List<TACInstruction> program, List<String> registers, SymbolTable symbols) {
+        return allocate(program, registers, RegisterConstraints.NONE, symbols);
+    }
+}
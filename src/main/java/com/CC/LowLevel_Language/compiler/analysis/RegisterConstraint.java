@@ -0,0 +1,32 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fixed registers of one instruction. Clobbered registers are overwritten
+ * while the instruction executes, so they are never given to a variable the
+ * instruction reads or that stays live across it; the instruction's result
+ * may still take one, since it is written last. The result and operand
+ * registers are where the machine instruction leaves its result and wants
+ * its first operand; allocators prefer them to save a move.
+ */
+public final class RegisterConstraint {
+    private final List<String> clobbers;
+    private final String resultRegister;
+    private final String operandRegister;
+
+    public RegisterConstraint(List<String> clobbers, String resultRegister, String operandRegister) {
+        this.clobbers = Collections.unmodifiableList(clobbers);
+        this.resultRegister = resultRegister;
+        this.operandRegister = operandRegister;
+    }
+
+    public List<String> getClobbers() { return clobbers; }
+
+    // Register the result is produced in, or null
+    public String getResultRegister() { return resultRegister; }
+
+    // Register the first operand is consumed from, or null
+    public String getOperandRegister() { return operandRegister; }
+}
@@ -0,0 +1,15 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+
+/**
+ * The fixed-register requirements of a target, looked up per instruction.
+ * Register names must match those handed to the allocator.
+ */
+@FunctionalInterface
+public interface RegisterConstraints {
+    RegisterConstraints NONE = instruction -> null;
+
+    // Constraint of the instruction, or null when any register will do
+    RegisterConstraint of(TACInstruction instruction);
+}
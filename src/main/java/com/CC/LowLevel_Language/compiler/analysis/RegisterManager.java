@@ -1,24 +1,46 @@
 package com.CC.LowLevel_Language.compiler.analysis;
 
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+
 import java.util.*;
 
 public class RegisterManager {
+    private static final List<String> DEFAULT_REGISTERS =
+            Collections.unmodifiableList(Arrays.asList("eax", "ebx", "ecx", "edx", "esi", "edi"));
+
+    // Allocatable registers of the target, in allocation order
+    private final List<String> registers;
     private final Map<String, String> variableToRegister;
     private final Set<String> usedRegisters;
     private final Queue<String> availableRegisters;
+    // Locations indexed by operand id, filled the first time a variable is formatted
+    private String[] locationById;
+    // Intervals bound to each register in start order, once an allocation is assigned
+    private Map<String, ArrayDeque<LiveInterval>> occupancy;
+    // Registers handed out by allocateRegister() under an assigned allocation
+    private final Set<String> scratchRegisters;
+    // Frame slots of spilled variables, e.g. "[ebp - 8]"
+    private final Map<String, String> stackLocations;
+    // Literals used in place of spilled constant variables
+    private final Map<String, String> rematerialized;
+    private int position;
 
     public RegisterManager() {
+        this(DEFAULT_REGISTERS);
+    }
+
+    public RegisterManager(List<String> registers) {
+        this.registers = registers;
         variableToRegister = new HashMap<>();
         usedRegisters = new HashSet<>();
         availableRegisters = new LinkedList<>();
+        locationById = new String[64];
+        scratchRegisters = new HashSet<>();
+        stackLocations = new HashMap<>();
+        rematerialized = new HashMap<>();
 
-        // Initialize available x86 registers
-        availableRegisters.offer("eax");
-        availableRegisters.offer("ebx");
-        availableRegisters.offer("ecx");
-        availableRegisters.offer("edx");
-        availableRegisters.offer("esi");
-        availableRegisters.offer("edi");
+        // Initialize available registers
+        availableRegisters.addAll(registers);
     }
 
     public String getRegisterFor(String variable) {
@@ -27,6 +49,16 @@ public class RegisterManager {
             return variableToRegister.get(variable);
         }
 
+        // Under an assigned allocation, variables without a register were spilled
+        if (occupancy != null) {
+            String constant = rematerialized.get(variable);
+            if (constant != null) {
+                return constant;
+            }
+            String slot = stackLocations.get(variable);
+            return slot != null ? slot : "[" + variable + "]";
+        }
+
         // Assign a new register
         String register = allocateRegister();
         if (register != null) {
@@ -39,6 +71,16 @@ public class RegisterManager {
     }
 
     public String allocateRegister() {
+        if (occupancy != null) {
+            for (String register : registers) {
+                if (!scratchRegisters.contains(register) && isFree(register)) {
+                    scratchRegisters.add(register);
+                    usedRegisters.add(register);
+                    return register;
+                }
+            }
+            return null;
+        }
         if (!availableRegisters.isEmpty()) {
             String register = availableRegisters.poll();
             usedRegisters.add(register);
@@ -61,7 +103,132 @@ public class RegisterManager {
             variableToRegister.remove(variable);
             usedRegisters.remove(register);
             availableRegisters.offer(register);
+            Arrays.fill(locationById, null);
+        }
+    }
+
+    /**
+     * Returns a register taken with allocateRegister() that no variable was
+     * bound to, such as a scratch register used while evaluating an expression.
+     */
+    public void releaseRegister(String register) {
+        if (scratchRegisters.remove(register)) {
+            return;
+        }
+        if (usedRegisters.contains(register) && !variableToRegister.containsValue(register)) {
+            usedRegisters.remove(register);
+            availableRegisters.offer(register);
+        }
+    }
+
+    // Registers currently bound to variables
+    public Collection<String> getAssignedRegisters() {
+        if (occupancy != null) {
+            List<String> live = new ArrayList<>();
+            for (String register : registers) {
+                if (!isFree(register)) {
+                    live.add(register);
+                }
+            }
+            return live;
         }
+        return Collections.unmodifiableCollection(variableToRegister.values());
+    }
+
+    /**
+     * Binds every variable to the location chosen by a register allocator:
+     * its interval's register, its constant if it was rematerialized, or
+     * memory if it was spilled. Registers are then
+     * only free for scratch use where no interval bound to them is live; see
+     * setPosition.
+     */
+    public void assign(List<LiveInterval> intervals) {
+        reset();
+        occupancy = new HashMap<>();
+        for (String register : registers) {
+            occupancy.put(register, new ArrayDeque<>());
+        }
+        for (LiveInterval interval : intervals) {
+            if (!interval.isSpilled()) {
+                variableToRegister.put(interval.getVariable(), interval.getRegister());
+                usedRegisters.add(interval.getRegister());
+                occupancy.get(interval.getRegister()).add(interval);
+            } else if (interval.isRematerialized()) {
+                rematerialized.put(interval.getVariable(), interval.getConstant());
+            }
+        }
+        availableRegisters.clear();
+    }
+
+    /**
+     * Addresses a spilled variable at a stack slot instead of by name. Only
+     * meaningful after assign, which clears earlier bindings.
+     */
+    public void bindToStack(String variable, String location) {
+        stackLocations.put(variable, location);
+    }
+
+    /**
+     * Moves to the instruction at the given index of the allocated program.
+     * Indexes must not decrease until the next assign or reset.
+     */
+    public void setPosition(int instructionIndex) {
+        this.position = instructionIndex;
+    }
+
+    /**
+     * Whether the register holds a value the current instruction must not
+     * destroy: a live variable or a scratch value under an assigned
+     * allocation, and any handed-out register otherwise.
+     */
+    public boolean isInUse(String register) {
+        if (occupancy != null) {
+            return scratchRegisters.contains(register) || (occupancy.containsKey(register) && !isFree(register));
+        }
+        return usedRegisters.contains(register);
+    }
+
+    /**
+     * Whether the register holds a value still needed once the current
+     * instruction has executed, such as a variable live across a call.
+     * Without an assigned allocation this is the same as isInUse.
+     */
+    public boolean isLiveAfter(String register) {
+        if (occupancy == null) {
+            return usedRegisters.contains(register);
+        }
+        if (scratchRegisters.contains(register)) {
+            return true;
+        }
+        if (!occupancy.containsKey(register)) {
+            return false;
+        }
+        int definition = LiveInterval.definitionPosition(position);
+        for (LiveInterval interval : current(register)) {
+            if (interval.getStart() > definition) {
+                break;
+            }
+            if (interval.getEnd() > definition) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether no interval bound to the register is live while the current instruction executes
+    private boolean isFree(String register) {
+        ArrayDeque<LiveInterval> bound = current(register);
+        return bound.isEmpty() || bound.peek().getStart() > LiveInterval.definitionPosition(position);
+    }
+
+    // Intervals bound to the register that have not ended before the current instruction
+    private ArrayDeque<LiveInterval> current(String register) {
+        ArrayDeque<LiveInterval> bound = occupancy.get(register);
+        int firstPosition = LiveInterval.usePosition(position);
+        while (!bound.isEmpty() && bound.peek().getEnd() < firstPosition) {
+            bound.poll();
+        }
+        return bound;
     }
 
     public Set<String> getRegisters() {
@@ -69,10 +236,7 @@ public class RegisterManager {
     }
 
     public boolean isRegister(String operand) {
-        return operand != null &&
-                (operand.equals("eax") || operand.equals("ebx") ||
-                        operand.equals("ecx") || operand.equals("edx") ||
-                        operand.equals("esi") || operand.equals("edi"));
+        return operand != null && registers.contains(operand);
     }
 
     public boolean isMemoryReference(String operand) {
@@ -80,13 +244,36 @@ public class RegisterManager {
     }
 
     public boolean isConstant(String operand) {
-        if (operand == null) return false;
-        try {
-            Integer.parseInt(operand);
-            return true;  // Fixed: just return true if parsing succeeds
-        } catch (NumberFormatException e) {
-            return false;
+        if (operand == null || operand.isEmpty()) return false;
+        int start = operand.charAt(0) == '-' ? 1 : 0;
+        if (start == operand.length()) return false;
+        for (int i = start; i < operand.length(); i++) {
+            char c = operand.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fast path for parsed operands: the kind was decided by the lexer and the
+     * location is cached by operand id, so nothing is re-inspected per use.
+     */
+    public String formatOperand(Operand operand) {
+        if (operand == null) return "";
+        if (!operand.isVariable()) {
+            return operand.getText();
+        }
+
+        int id = operand.getId();
+        if (id >= locationById.length) {
+            locationById = Arrays.copyOf(locationById, Math.max(id + 1, locationById.length * 2));
+        }
+        String location = locationById[id];
+        if (location == null) {
+            location = getRegisterFor(operand.getText());
+            locationById[id] = location;
         }
+        return location;
     }
 
     public String formatOperand(String operand) {
@@ -109,15 +296,16 @@ public class RegisterManager {
     public void reset() {
         variableToRegister.clear();
         usedRegisters.clear();
+        scratchRegisters.clear();
+        stackLocations.clear();
+        rematerialized.clear();
+        occupancy = null;
+        position = 0;
         availableRegisters.clear();
+        Arrays.fill(locationById, null);
 
         // Re-initialize available registers
-        availableRegisters.offer("eax");
-        availableRegisters.offer("ebx");
-        availableRegisters.offer("ecx");
-        availableRegisters.offer("edx");
-        availableRegisters.offer("esi");
-        availableRegisters.offer("edi");
+        availableRegisters.addAll(registers);
     }
 
     public Map<String, String> getVariableToRegisterMap() {
@@ -17,6 +17,8 @@ public class ResourceAnalysisResult {
     private String controlFlowComplexity;
     private String memoryPressure;
     private String registerPressure;
+    // Peak number of TAC variables live at once, 0 when liveness was not analyzed
+    private int maxLiveVariables;
 
     public ResourceAnalysisResult() {
         this.registersUsed = new ArrayList<>();
@@ -111,4 +113,12 @@ public class ResourceAnalysisResult {
     public void setRegisterPressure(String registerPressure) {
         this.registerPressure = registerPressure;
     }
+
+    public int getMaxLiveVariables() {
+        return maxLiveVariables;
+    }
+
+    public void setMaxLiveVariables(int maxLiveVariables) {
+        this.maxLiveVariables = maxLiveVariables;
+    }
 }
@@ -1,5 +1,9 @@
 package com.CC.LowLevel_Language.compiler.analysis;
 
+import com.CC.LowLevel_Language.compiler.generator.AssemblyInstruction;
+import com.CC.LowLevel_Language.compiler.generator.AssemblyOperand;
+import com.CC.LowLevel_Language.compiler.generator.Mnemonic;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -7,9 +11,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Resource usage statistics over structured assembly: instruction mix,
+ * registers named by operands, memory traffic and control flow.
+ */
 public class ResourceAnalyzer {
-    
-    public ResourceAnalysisResult analyze(List<String> assemblyCode) {
+
+    public ResourceAnalysisResult analyze(List<AssemblyInstruction> assemblyCode) {
         ResourceAnalysisResult result = new ResourceAnalysisResult();
         
         // Track various resources
@@ -21,22 +29,15 @@ public class ResourceAnalyzer {
         int totalInstructions = 0;
         int labels = 0;
         
-        for (String line : assemblyCode) {
-            String trimmed = line.trim();
-            
-            // Skip empty lines and directives
-            if (trimmed.isEmpty() || trimmed.startsWith(".")) {
-                continue;
-            }
-            
+        for (AssemblyInstruction instruction : assemblyCode) {
             // Count labels
-            if (trimmed.endsWith(":")) {
+            if (instruction.getKind() == AssemblyInstruction.Kind.LABEL) {
                 labels++;
                 continue;
             }
             
-            // Skip comments
-            if (trimmed.startsWith(";")) {
+            // Skip empty lines, directives and comments
+            if (!instruction.isInstruction()) {
                 continue;
             }
             
@@ -44,27 +45,25 @@ public class ResourceAnalyzer {
             totalInstructions++;
             
             // Extract instruction type
-            String[] parts = trimmed.split("\\s+");
-            if (parts.length > 0) {
-                String instruction = parts[0].toLowerCase();
-                instructionTypes.put(instruction, instructionTypes.getOrDefault(instruction, 0) + 1);
-                
-                // Categorize instruction types
-                if (isArithmeticOp(instruction)) {
-                    arithmeticOps++;
-                }
-                
-                if (isJumpInstruction(instruction)) {
-                    jumpInstructions++;
-                }
-                
-                // Extract registers used
-                extractRegisters(trimmed, registersUsed);
-                
-                // Count memory accesses
-                if (trimmed.contains("[") || instruction.equals("push") || instruction.equals("pop")) {
-                    memoryAccesses++;
-                }
+            Mnemonic mnemonic = instruction.getOpcode();
+            String type = mnemonic != null ? mnemonic.getText() : instruction.getMnemonic().toLowerCase();
+            instructionTypes.merge(type, 1, Integer::sum);
+            
+            // Categorize instruction types
+            if (mnemonic != null && mnemonic.isArithmetic()) {
+                arithmeticOps++;
+            }
+            
+            if (mnemonic != null && mnemonic.isControlTransfer()) {
+                jumpInstructions++;
+            }
+            
+            // Extract registers used
+            boolean memoryOperand = extractRegisters(instruction, registersUsed);
+            
+            // Count memory accesses; lea only computes an address and never touches memory
+            if (memoryOperand && mnemonic != Mnemonic.LEA || mnemonic == Mnemonic.PUSH || mnemonic == Mnemonic.POP) {
+                memoryAccesses++;
             }
         }
         
@@ -85,43 +84,94 @@ public class ResourceAnalyzer {
         
         return result;
     }
-    
-    private boolean isArithmeticOp(String instruction) {
-        return instruction.equals("add") || instruction.equals("sub") || 
-               instruction.equals("imul") || instruction.equals("idiv") ||
-               instruction.equals("mul") || instruction.equals("div") ||
-               instruction.equals("inc") || instruction.equals("dec") ||
-               instruction.equals("shl") || instruction.equals("shr") ||
-               instruction.equals("sal") || instruction.equals("sar");
+
+    /**
+     * Also reports the peak number of variables live at once in the TAC the
+     * assembly came from. Unlike the registers named in the assembly, this
+     * does not depend on how well the allocator did.
+     */
+    public ResourceAnalysisResult analyze(List<AssemblyInstruction> assemblyCode, Liveness liveness) {
+        ResourceAnalysisResult result = analyze(assemblyCode);
+        result.setMaxLiveVariables(liveness.getMaxLive());
+        return result;
     }
-    
-    private boolean isJumpInstruction(String instruction) {
-        return instruction.equals("jmp") || instruction.equals("je") ||
-               instruction.equals("jne") || instruction.equals("jg") ||
-               instruction.equals("jl") || instruction.equals("jge") ||
-               instruction.equals("jle") || instruction.equals("call") ||
-               instruction.equals("ret");
+
+    /**
+     * Analyzes assembly given as text lines, parsing each line once.
+     */
+    public ResourceAnalysisResult analyzeLines(List<String> assemblyCode) {
+        List<AssemblyInstruction> instructions = new ArrayList<>(assemblyCode.size());
+        for (String line : assemblyCode) {
+            instructions.add(AssemblyInstruction.parse(line));
+        }
+        return analyze(instructions);
     }
     
-    private void extractRegisters(String instruction, Set<String> registers) {
-        String[] x86Registers = {"eax", "ebx", "ecx", "edx", "esi", "edi", "ebp", "esp",
-                                "ax", "bx", "cx", "dx", "si", "di", "bp", "sp",
-                                "al", "ah", "bl", "bh", "cl", "ch", "dl", "dh"};
-        
-        for (String reg : x86Registers) {
-            if (instruction.toLowerCase().contains(reg)) {
-                // Add base register (32-bit version)
-                if (reg.length() == 2 && !reg.equals("sp") && !reg.equals("bp")) {
-                    registers.add("e" + reg);
-                } else if (reg.length() == 3 && reg.startsWith("e")) {
-                    registers.add(reg);
-                } else if (reg.equals("sp")) {
-                    registers.add("esp");
-                } else if (reg.equals("bp")) {
-                    registers.add("ebp");
+    // Adds the physical registers the instruction reads or writes; returns whether it touches memory
+    private boolean extractRegisters(AssemblyInstruction instruction, Set<String> registers) {
+        boolean memory = false;
+        for (AssemblyOperand operand : instruction.getOperands()) {
+            if (operand.isRegister()) {
+                registers.add(fullRegister(operand.getText()));
+            } else if (operand.isMemory()) {
+                memory = true;
+                addAddressRegisters(operand.getText(), registers);
+            }
+        }
+
+        // Implicit operands
+        Mnemonic mnemonic = instruction.getOpcode();
+        if (mnemonic == Mnemonic.CDQ || mnemonic == Mnemonic.CQO || mnemonic == Mnemonic.IDIV || mnemonic == Mnemonic.DIV
+                || (mnemonic == Mnemonic.MUL && instruction.getOperandCount() == 1)) {
+            registers.add("eax");
+            registers.add("edx");
+        }
+        return memory;
+    }
+
+    // Base and index registers inside an address such as "dword [esp + 4]"
+    private void addAddressRegisters(String address, Set<String> registers) {
+        int start = address.indexOf('[');
+        for (int i = start + 1; i < address.length(); i++) {
+            if (!Character.isLetter(address.charAt(i))) continue;
+            int end = i;
+            while (end < address.length() && Character.isLetterOrDigit(address.charAt(end))) {
+                end++;
+            }
+            String word = address.substring(i, end);
+            if (AssemblyOperand.isRegisterName(word)) {
+                registers.add(fullRegister(word));
+            }
+            i = end;
+        }
+    }
+
+    // Maps every view of a register to one name: the 32-bit name for the
+    // classic registers (so rax and eax count once) and r8..r15 for the rest
+    private String fullRegister(String register) {
+        if (register.charAt(0) == 'r') {
+            if (Character.isDigit(register.charAt(1))) {
+                int end = 2;
+                while (end < register.length() && Character.isDigit(register.charAt(end))) {
+                    end++;
                 }
+                return register.substring(0, end);
             }
+            return "e" + register.substring(1);
+        }
+        if (register.length() == 3 && register.charAt(2) == 'l') {
+            // sil, dil, bpl, spl
+            return "e" + register.substring(0, 2);
+        }
+        if (register.length() == 3) {
+            return register;
+        }
+        char first = register.charAt(0);
+        char second = register.charAt(1);
+        if (second == 'l' || second == 'h' || second == 'x') {
+            return "e" + first + "x";
         }
+        return "e" + register;
     }
     
     private String calculateComplexity(int jumps, int labels) {
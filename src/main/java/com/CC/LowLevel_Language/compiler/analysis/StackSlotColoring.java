@@ -0,0 +1,49 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Shares frame slots between spilled variables whose live intervals do not
+ * overlap, the way registers are shared between intervals. Visiting the
+ * spills in start order, a slot is handed back once its occupant's interval
+ * has ended, and the slot nearest the frame pointer is reused first, so the
+ * frame grows with the number of spills live at once rather than with the
+ * number of spilled variables.
+ */
+public final class StackSlotColoring {
+
+    private StackSlotColoring() {}
+
+    /**
+     * Records a frame offset in symbols for every spilled interval that is
+     * not rematerialized, and
+     * returns the number of slots used. Intervals must be in order of
+     * increasing start, as the register allocators return them.
+     */
+    public static int assign(List<LiveInterval> intervals, SymbolTable symbols, int slotSize) {
+        // Occupied slots by the end of their interval, and free offsets nearest the frame pointer first
+        PriorityQueue<LiveInterval> active = new PriorityQueue<>(Comparator.comparingInt(LiveInterval::getEnd));
+        PriorityQueue<Integer> free = new PriorityQueue<>(Comparator.reverseOrder());
+        int slots = 0;
+        for (LiveInterval interval : intervals) {
+            if (!interval.isSpilled() || interval.isRematerialized()) {
+                continue;
+            }
+            while (!active.isEmpty() && active.peek().getEnd() < interval.getStart()) {
+                free.add(symbols.getSymbolStackOffset(active.poll().getVariable()));
+            }
+            int offset;
+            if (free.isEmpty()) {
+                offset = symbols.allocateStackSlot(slotSize);
+                slots++;
+            } else {
+                offset = free.poll();
+            }
+            symbols.setSymbolStackOffset(interval.getVariable(), offset);
+            active.add(interval);
+        }
+        return slots;
+    }
+}
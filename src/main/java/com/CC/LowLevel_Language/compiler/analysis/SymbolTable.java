@@ -73,14 +73,36 @@ public class SymbolTable {
     }
 
     public int allocateStackSlot() {
-        stackOffset += 4; // Assuming 4-byte alignment
+        return allocateStackSlot(4);
+    }
+
+    // Reserves size bytes below the frame pointer; returns the slot's negative offset
+    public int allocateStackSlot(int size) {
+        stackOffset += size;
         return -stackOffset;
     }
 
     public void assignStackOffset(String name) {
+        assignStackOffset(name, 4);
+    }
+
+    public void assignStackOffset(String name, int size) {
         SymbolInfo info = symbols.get(name);
         if (info != null && info.getStackOffset() == -1) {
-            info.setStackOffset(allocateStackSlot());
+            info.setStackOffset(allocateStackSlot(size));
+        }
+    }
+
+    // Bytes of stack slots handed out so far
+    public int getFrameSize() {
+        return stackOffset;
+    }
+
+    // Places the symbol at a slot that was allocated earlier, possibly for another symbol
+    public void setSymbolStackOffset(String name, int offset) {
+        SymbolInfo info = symbols.get(name);
+        if (info != null) {
+            info.setStackOffset(offset);
         }
     }
 
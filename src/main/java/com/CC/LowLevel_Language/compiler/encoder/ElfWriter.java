@@ -0,0 +1,98 @@
+package com.CC.LowLevel_Language.compiler.encoder;
+
+import com.CC.LowLevel_Language.compiler.generator.TargetArchitecture;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes encoded programs as minimal static Linux executables: an ELF
+ * header, one read/write/execute PT_LOAD segment holding the headers and
+ * the text, and the data area as zero-filled memory after it. There are no
+ * section headers, symbols or relocations, since the encoder has already
+ * resolved every address.
+ */
+public final class ElfWriter {
+    private static final long LOAD_ADDRESS_32 = 0x08048000L;
+    private static final long LOAD_ADDRESS_64 = 0x400000L;
+    private static final int PAGE_SIZE = 0x1000;
+
+    private ElfWriter() {}
+
+    // Address the first text byte is loaded at, right after the headers
+    public static long textAddress(TargetArchitecture target) {
+        return loadAddress(target) + headerSize(target);
+    }
+
+    public static void write(MachineCode code, TargetArchitecture target, OutputStream output) throws IOException {
+        if (code.getTextAddress() != textAddress(target)) {
+            throw new IllegalArgumentException("Code was not encoded for the executable's load address");
+        }
+        boolean is64 = target == TargetArchitecture.X86_64;
+        long load = loadAddress(target);
+        int headers = headerSize(target);
+        long fileSize = headers + code.getTextSize();
+        long memorySize = code.getDataAddress() + code.getDataSize() - load;
+
+        ByteBuffer elf = ByteBuffer.allocate(headers + code.getTextSize()).order(ByteOrder.LITTLE_ENDIAN);
+        // e_ident
+        elf.put(new byte[] {0x7F, 'E', 'L', 'F', (byte) (is64 ? 2 : 1), 1, 1, 0});
+        elf.put(new byte[8]);
+        elf.putShort((short) 2);                    // ET_EXEC
+        elf.putShort((short) (is64 ? 0x3E : 0x03)); // EM_X86_64 / EM_386
+        elf.putInt(1);                              // EV_CURRENT
+        putAddress(elf, is64, code.getEntryAddress());
+        putAddress(elf, is64, is64 ? 64 : 52);      // e_phoff
+        putAddress(elf, is64, 0);                   // e_shoff
+        elf.putInt(0);                              // e_flags
+        elf.putShort((short) (is64 ? 64 : 52));     // e_ehsize
+        elf.putShort((short) (is64 ? 56 : 32));     // e_phentsize
+        elf.putShort((short) 1);                    // e_phnum
+        elf.putShort((short) 0);                    // e_shentsize
+        elf.putShort((short) 0);                    // e_shnum
+        elf.putShort((short) 0);                    // e_shstrndx
+
+        // Program header: PT_LOAD, PF_R | PF_W | PF_X, field order differs by class
+        if (is64) {
+            elf.putInt(1);
+            elf.putInt(7);
+            elf.putLong(0);
+            elf.putLong(load);
+            elf.putLong(load);
+            elf.putLong(fileSize);
+            elf.putLong(memorySize);
+            elf.putLong(PAGE_SIZE);
+        } else {
+            elf.putInt(1);
+            elf.putInt(0);
+            elf.putInt((int) load);
+            elf.putInt((int) load);
+            elf.putInt((int) fileSize);
+            elf.putInt((int) memorySize);
+            elf.putInt(7);
+            elf.putInt(PAGE_SIZE);
+        }
+
+        code.writeText(elf);
+        output.write(elf.array());
+    }
+
+    private static void putAddress(ByteBuffer elf, boolean is64, long value) {
+        if (is64) {
+            elf.putLong(value);
+        } else {
+            elf.putInt((int) value);
+        }
+    }
+
+    private static long loadAddress(TargetArchitecture target) {
+        return target == TargetArchitecture.X86_64 ? LOAD_ADDRESS_64 : LOAD_ADDRESS_32;
+    }
+
+    // ELF header plus the single program header
+    private static int headerSize(TargetArchitecture target) {
+        return target == TargetArchitecture.X86_64 ? 64 + 56 : 52 + 32;
+    }
+}
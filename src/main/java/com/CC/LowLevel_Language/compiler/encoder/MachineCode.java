@@ -0,0 +1,49 @@
+package com.CC.LowLevel_Language.compiler.encoder;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Encoded program: the text bytes at their load address plus the layout of
+ * the zero-initialized data area that holds variables kept in memory.
+ */
+public final class MachineCode {
+    private final byte[] text;
+    private final long textAddress;
+    private final long dataAddress;
+    private final int dataSize;
+    private final Map<String, Long> labels;
+    private final Map<String, Long> variables;
+
+    MachineCode(byte[] text, long textAddress, long dataAddress, int dataSize,
+                Map<String, Long> labels, Map<String, Long> variables) {
+        this.text = text;
+        this.textAddress = textAddress;
+        this.dataAddress = dataAddress;
+        this.dataSize = dataSize;
+        this.labels = Collections.unmodifiableMap(labels);
+        this.variables = Collections.unmodifiableMap(variables);
+    }
+
+    public byte[] getText() { return text.clone(); }
+    public int getTextSize() { return text.length; }
+    public long getTextAddress() { return textAddress; }
+
+    public long getDataAddress() { return dataAddress; }
+    public int getDataSize() { return dataSize; }
+
+    // Address of each label, and of each variable's slot in the data area
+    public Map<String, Long> getLabels() { return labels; }
+    public Map<String, Long> getVariables() { return variables; }
+
+    // _start when the program defines it, otherwise the first text byte
+    public long getEntryAddress() {
+        Long start = labels.get("_start");
+        return start != null ? start : textAddress;
+    }
+
+    public void writeText(ByteBuffer out) {
+        out.put(text);
+    }
+}
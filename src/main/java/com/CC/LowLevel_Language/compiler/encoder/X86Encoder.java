@@ -0,0 +1,821 @@
+package com.CC.LowLevel_Language.compiler.encoder;
+
+import com.CC.LowLevel_Language.compiler.generator.AssemblyInstruction;
+import com.CC.LowLevel_Language.compiler.generator.AssemblyOperand;
+import com.CC.LowLevel_Language.compiler.generator.Mnemonic;
+import com.CC.LowLevel_Language.compiler.generator.TargetArchitecture;
+
+import java.util.*;
+
+/**
+ * Encodes generated assembly straight into x86 or x86-64 machine code,
+ * without going through text and an external assembler.
+ *
+ * Every instruction is encoded once into its own byte sequence. Jumps to
+ * labels start out in their 2-byte short form and are widened to the near
+ * form only when the displacement does not fit, repeating the layout until
+ * no jump grows. Addresses of labels and of variables kept in memory are
+ * patched in after the final layout.
+ *
+ * Operands are 32-bit, or 64-bit on x86-64; 8- and 16-bit forms are not
+ * supported. Instances hold no per-call state.
+ */
+public class X86Encoder {
+    private static final Map<String, Integer> REGISTERS_32 = new HashMap<>();
+    private static final Map<String, Integer> REGISTERS_64 = new HashMap<>();
+    private static final Map<Mnemonic, Integer> CONDITION_CODES = new EnumMap<>(Mnemonic.class);
+    // Opcode extension of the add/or/and/sub/xor/cmp group; the opcode itself is digit * 8 + 1 or 3
+    private static final Map<Mnemonic, Integer> ALU_DIGITS = new EnumMap<>(Mnemonic.class);
+    // Opcode extensions of the F7 group taking one r/m operand
+    private static final Map<Mnemonic, Integer> UNARY_DIGITS = new EnumMap<>(Mnemonic.class);
+    private static final Map<Mnemonic, Integer> SHIFT_DIGITS = new EnumMap<>(Mnemonic.class);
+    // Each variable kept in memory gets a slot of this many bytes
+    private static final int VARIABLE_SLOT_SIZE = 8;
+
+    static {
+        String[] legacy = {"ax", "cx", "dx", "bx", "sp", "bp", "si", "di"};
+        for (int i = 0; i < legacy.length; i++) {
+            REGISTERS_32.put("e" + legacy[i], i);
+            REGISTERS_64.put("r" + legacy[i], i);
+        }
+        for (int i = 8; i <= 15; i++) {
+            REGISTERS_32.put("r" + i + "d", i);
+            REGISTERS_64.put("r" + i, i);
+        }
+
+        CONDITION_CODES.put(Mnemonic.JE, 0x4);
+        CONDITION_CODES.put(Mnemonic.JNE, 0x5);
+        CONDITION_CODES.put(Mnemonic.JL, 0xC);
+        CONDITION_CODES.put(Mnemonic.JGE, 0xD);
+        CONDITION_CODES.put(Mnemonic.JLE, 0xE);
+        CONDITION_CODES.put(Mnemonic.JG, 0xF);
+
+        ALU_DIGITS.put(Mnemonic.ADD, 0);
+        ALU_DIGITS.put(Mnemonic.OR, 1);
+        ALU_DIGITS.put(Mnemonic.AND, 4);
+        ALU_DIGITS.put(Mnemonic.SUB, 5);
+        ALU_DIGITS.put(Mnemonic.XOR, 6);
+        ALU_DIGITS.put(Mnemonic.CMP, 7);
+
+        UNARY_DIGITS.put(Mnemonic.NEG, 3);
+        UNARY_DIGITS.put(Mnemonic.MUL, 4);
+        UNARY_DIGITS.put(Mnemonic.IMUL, 5);
+        UNARY_DIGITS.put(Mnemonic.DIV, 6);
+        UNARY_DIGITS.put(Mnemonic.IDIV, 7);
+
+        SHIFT_DIGITS.put(Mnemonic.SHL, 4);
+        SHIFT_DIGITS.put(Mnemonic.SAL, 4);
+        SHIFT_DIGITS.put(Mnemonic.SHR, 5);
+        SHIFT_DIGITS.put(Mnemonic.SAR, 7);
+    }
+
+    private final TargetArchitecture target;
+    private final boolean wide;
+
+    /**
+     * @param wide whether operands without a register or size keyword, such
+     *             as "mov [x], 5", are 64-bit; only meaningful on x86-64
+     */
+    public X86Encoder(TargetArchitecture target, boolean wide) {
+        this.target = target;
+        this.wide = wide && target == TargetArchitecture.X86_64;
+    }
+
+    public TargetArchitecture getTarget() { return target; }
+
+    // Encodes for the address an ElfWriter executable loads the text at
+    public MachineCode encode(List<AssemblyInstruction> code) {
+        return encode(code, ElfWriter.textAddress(target));
+    }
+
+    /**
+     * Encodes the program to run at textAddress; the data area for variables
+     * kept in memory follows the text. Throws IllegalArgumentException for
+     * an instruction or operand form that has no encoding here.
+     */
+    public MachineCode encode(List<AssemblyInstruction> code, long textAddress) {
+        List<Chunk> chunks = new ArrayList<>(code.size());
+        Map<String, Chunk> labels = new HashMap<>();
+        Map<String, Integer> variables = new LinkedHashMap<>();
+
+        for (AssemblyInstruction instruction : code) {
+            switch (instruction.getKind()) {
+                case LABEL:
+                    Chunk label = new Chunk(new Bytes());
+                    if (labels.putIfAbsent(instruction.getLabel(), label) != null) {
+                        throw new IllegalArgumentException("Duplicate label: " + instruction.getLabel());
+                    }
+                    chunks.add(label);
+                    break;
+                case INSTRUCTION:
+                    chunks.add(encodeInstruction(instruction, variables));
+                    break;
+                default:
+                    // Comments, directives and blank lines produce no bytes
+                    break;
+            }
+        }
+
+        for (Chunk chunk : chunks) {
+            if (chunk.target != null && !labels.containsKey(chunk.target)) {
+                throw new IllegalArgumentException("Undefined label: " + chunk.target);
+            }
+        }
+        relaxJumps(chunks, labels);
+
+        int textSize = layout(chunks);
+        long dataAddress = (textAddress + textSize + 15) & ~15L;
+        Map<String, Long> labelAddresses = new LinkedHashMap<>();
+        for (Map.Entry<String, Chunk> entry : labels.entrySet()) {
+            labelAddresses.put(entry.getKey(), textAddress + entry.getValue().offset);
+        }
+        Map<String, Long> variableAddresses = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : variables.entrySet()) {
+            variableAddresses.put(entry.getKey(), dataAddress + entry.getValue());
+        }
+
+        byte[] text = new byte[textSize];
+        for (Chunk chunk : chunks) {
+            chunk.writeTo(text, textAddress, labelAddresses, variableAddresses);
+        }
+        return new MachineCode(text, textAddress, dataAddress, variables.size() * VARIABLE_SLOT_SIZE,
+                labelAddresses, variableAddresses);
+    }
+
+    // Widens short jumps whose target is out of rel8 range until the layout is stable
+    private void relaxJumps(List<Chunk> chunks, Map<String, Chunk> labels) {
+        boolean changed;
+        do {
+            layout(chunks);
+            changed = false;
+            for (Chunk chunk : chunks) {
+                if (chunk.target == null || chunk.near || chunk.jump == Mnemonic.CALL) continue;
+                long displacement = labels.get(chunk.target).offset - (chunk.offset + chunk.size());
+                if (displacement < Byte.MIN_VALUE || displacement > Byte.MAX_VALUE) {
+                    chunk.near = true;
+                    changed = true;
+                }
+            }
+        } while (changed);
+    }
+
+    private static int layout(List<Chunk> chunks) {
+        int offset = 0;
+        for (Chunk chunk : chunks) {
+            chunk.offset = offset;
+            offset += chunk.size();
+        }
+        return offset;
+    }
+
+    private Chunk encodeInstruction(AssemblyInstruction instruction, Map<String, Integer> variables) {
+        Mnemonic mnemonic = instruction.getOpcode();
+        if (mnemonic == null) {
+            throw unsupported(instruction);
+        }
+        List<Operand> operands = new ArrayList<>(instruction.getOperandCount());
+        for (AssemblyOperand operand : instruction.getOperands()) {
+            operands.add(operand(operand, instruction, variables));
+        }
+
+        // Label targets are encoded once the layout is known
+        if ((mnemonic.isControlTransfer() && mnemonic != Mnemonic.RET)
+                && operands.size() == 1 && operands.get(0).label != null) {
+            if (mnemonic != Mnemonic.JMP && mnemonic != Mnemonic.CALL && !CONDITION_CODES.containsKey(mnemonic)) {
+                throw unsupported(instruction);
+            }
+            return new Chunk(mnemonic, operands.get(0).label);
+        }
+
+        Bytes out = new Bytes();
+        switch (mnemonic) {
+            case MOV:
+                encodeMove(out, operands, instruction);
+                break;
+            case ADD: case SUB: case AND: case OR: case XOR: case CMP:
+                encodeArithmetic(out, ALU_DIGITS.get(mnemonic), operands, instruction);
+                break;
+            case TEST:
+                encodeTest(out, operands, instruction);
+                break;
+            case IMUL:
+                if (operands.size() == 1) {
+                    encodeUnary(out, UNARY_DIGITS.get(mnemonic), operands, instruction);
+                } else {
+                    encodeMultiply(out, operands, instruction);
+                }
+                break;
+            case IDIV: case DIV: case MUL: case NEG:
+                encodeUnary(out, UNARY_DIGITS.get(mnemonic), operands, instruction);
+                break;
+            case INC: case DEC:
+                expectCount(operands, 1, instruction);
+                modRm(out, rexW(operands, instruction), mnemonic == Mnemonic.INC ? 0 : 1,
+                        registerOrMemory(operands.get(0), instruction), 0xFF);
+                break;
+            case SHL: case SAL: case SHR: case SAR:
+                encodeShift(out, SHIFT_DIGITS.get(mnemonic), operands, instruction);
+                break;
+            case LEA:
+                expectCount(operands, 2, instruction);
+                if (operands.get(0).register < 0 || operands.get(1).memory == null) throw unsupported(instruction);
+                modRm(out, rexW(operands.subList(0, 1), instruction), operands.get(0).register, operands.get(1), 0x8D);
+                break;
+            case CDQ:
+                out.put(0x99);
+                break;
+            case CQO:
+                requireLongMode(instruction);
+                out.put(0x48);
+                out.put(0x99);
+                break;
+            case PUSH:
+                encodePush(out, operands, instruction);
+                break;
+            case POP:
+                expectCount(operands, 1, instruction);
+                if (operands.get(0).register >= 0) {
+                    stackRegister(out, 0x58, operands.get(0), instruction);
+                } else {
+                    modRm(out, false, 0, registerOrMemory(operands.get(0), instruction), 0x8F);
+                }
+                break;
+            case JMP: case CALL:
+                // Indirect forms; direct ones were handled as label chunks above
+                expectCount(operands, 1, instruction);
+                modRm(out, false, mnemonic == Mnemonic.CALL ? 2 : 4,
+                        registerOrMemory(operands.get(0), instruction), 0xFF);
+                break;
+            case RET:
+                if (operands.isEmpty()) {
+                    out.put(0xC3);
+                } else {
+                    out.put(0xC2);
+                    out.putShort((int) immediate(operands.get(0), instruction));
+                }
+                break;
+            case INT:
+                expectCount(operands, 1, instruction);
+                out.put(0xCD);
+                out.put((int) immediate(operands.get(0), instruction));
+                break;
+            case SYSCALL:
+                requireLongMode(instruction);
+                out.put(0x0F);
+                out.put(0x05);
+                break;
+            case NOP:
+                out.put(0x90);
+                break;
+            default:
+                throw unsupported(instruction);
+        }
+        return new Chunk(out);
+    }
+
+    private void encodeMove(Bytes out, List<Operand> operands, AssemblyInstruction instruction) {
+        expectCount(operands, 2, instruction);
+        Operand destination = operands.get(0);
+        Operand source = operands.get(1);
+        boolean rexW = rexW(operands, instruction);
+
+        if (source.isImmediate()) {
+            if (destination.register >= 0 && (!rexW || !fitsInt(source.value))) {
+                // mov r32, imm32 / mov r64, imm64
+                rex(out, rexW, 0, 0, destination.register);
+                out.put(0xB8 + (destination.register & 7));
+                if (rexW) {
+                    out.putLong(source.value);
+                } else {
+                    out.putInt(imm32(source.value, instruction));
+                }
+            } else {
+                // mov r/m, imm32, sign-extended for 64-bit operands
+                modRm(out, rexW, 0, registerOrMemory(destination, instruction), 0xC7);
+                out.putInt(imm32(source.value, instruction));
+            }
+        } else if (source.register >= 0) {
+            modRm(out, rexW, source.register, registerOrMemory(destination, instruction), 0x89);
+        } else if (destination.register >= 0 && source.memory != null) {
+            modRm(out, rexW, destination.register, source, 0x8B);
+        } else {
+            throw unsupported(instruction);
+        }
+    }
+
+    private void encodeArithmetic(Bytes out, int digit, List<Operand> operands, AssemblyInstruction instruction) {
+        expectCount(operands, 2, instruction);
+        Operand destination = operands.get(0);
+        Operand source = operands.get(1);
+        boolean rexW = rexW(operands, instruction);
+
+        if (source.isImmediate()) {
+            boolean shortForm = fitsByte(source.value);
+            modRm(out, rexW, digit, registerOrMemory(destination, instruction), shortForm ? 0x83 : 0x81);
+            if (shortForm) {
+                out.put((int) source.value);
+            } else {
+                out.putInt(imm32(source.value, instruction));
+            }
+        } else if (source.register >= 0) {
+            modRm(out, rexW, source.register, registerOrMemory(destination, instruction), digit * 8 + 1);
+        } else if (destination.register >= 0 && source.memory != null) {
+            modRm(out, rexW, destination.register, source, digit * 8 + 3);
+        } else {
+            throw unsupported(instruction);
+        }
+    }
+
+    private void encodeTest(Bytes out, List<Operand> operands, AssemblyInstruction instruction) {
+        expectCount(operands, 2, instruction);
+        boolean rexW = rexW(operands, instruction);
+        Operand source = operands.get(1);
+        if (source.isImmediate()) {
+            modRm(out, rexW, 0, registerOrMemory(operands.get(0), instruction), 0xF7);
+            out.putInt(imm32(source.value, instruction));
+        } else if (source.register >= 0) {
+            modRm(out, rexW, source.register, registerOrMemory(operands.get(0), instruction), 0x85);
+        } else {
+            throw unsupported(instruction);
+        }
+    }
+
+    // imul r, r/m  |  imul r, imm  |  imul r, r/m, imm
+    private void encodeMultiply(Bytes out, List<Operand> operands, AssemblyInstruction instruction) {
+        Operand destination = operands.get(0);
+        if (destination.register < 0 || operands.size() > 3) throw unsupported(instruction);
+        boolean rexW = rexW(operands, instruction);
+
+        Operand source = operands.get(1);
+        Operand factor = operands.size() == 3 ? operands.get(2) : null;
+        if (factor == null && source.isImmediate()) {
+            factor = source;
+            source = destination;
+        }
+        if (factor == null) {
+            modRm(out, rexW, destination.register, registerOrMemory(source, instruction), 0x0F, 0xAF);
+            return;
+        }
+        if (!factor.isImmediate()) throw unsupported(instruction);
+        boolean shortForm = fitsByte(factor.value);
+        modRm(out, rexW, destination.register, registerOrMemory(source, instruction), shortForm ? 0x6B : 0x69);
+        if (shortForm) {
+            out.put((int) factor.value);
+        } else {
+            out.putInt(imm32(factor.value, instruction));
+        }
+    }
+
+    private void encodeUnary(Bytes out, int digit, List<Operand> operands, AssemblyInstruction instruction) {
+        expectCount(operands, 1, instruction);
+        modRm(out, rexW(operands, instruction), digit, registerOrMemory(operands.get(0), instruction), 0xF7);
+    }
+
+    private void encodeShift(Bytes out, int digit, List<Operand> operands, AssemblyInstruction instruction) {
+        expectCount(operands, 2, instruction);
+        Operand destination = registerOrMemory(operands.get(0), instruction);
+        Operand count = operands.get(1);
+        boolean rexW = rexW(operands.subList(0, 1), instruction);
+        if (count.isImmediate()) {
+            if (count.value == 1) {
+                modRm(out, rexW, digit, destination, 0xD1);
+            } else {
+                modRm(out, rexW, digit, destination, 0xC1);
+                out.put((int) count.value);
+            }
+        } else if (count.register == 1 && count.size == 1) {
+            modRm(out, rexW, digit, destination, 0xD3);
+        } else {
+            throw unsupported(instruction);
+        }
+    }
+
+    private void encodePush(Bytes out, List<Operand> operands, AssemblyInstruction instruction) {
+        expectCount(operands, 1, instruction);
+        Operand operand = operands.get(0);
+        if (operand.register >= 0) {
+            stackRegister(out, 0x50, operand, instruction);
+        } else if (operand.isImmediate()) {
+            if (fitsByte(operand.value)) {
+                out.put(0x6A);
+                out.put((int) operand.value);
+            } else {
+                out.put(0x68);
+                out.putInt(imm32(operand.value, instruction));
+            }
+        } else {
+            modRm(out, false, 6, registerOrMemory(operand, instruction), 0xFF);
+        }
+    }
+
+    // push/pop take a full-width register: 32-bit on x86, 64-bit on x86-64
+    private void stackRegister(Bytes out, int opcode, Operand register, AssemblyInstruction instruction) {
+        if (register.size != target.getStackSlotSize()) throw unsupported(instruction);
+        rex(out, false, 0, 0, register.register);
+        out.put(opcode + (register.register & 7));
+    }
+
+    /**
+     * Writes the optional REX prefix, the opcode bytes and the ModRM byte
+     * with any SIB byte and displacement for the r/m operand.
+     */
+    private void modRm(Bytes out, boolean rexW, int reg, Operand rm, int... opcode) {
+        Memory memory = rm.memory;
+        int index = memory != null ? memory.index : -1;
+        int base = memory != null ? memory.base : rm.register;
+        rex(out, rexW, reg, index, base);
+        for (int b : opcode) {
+            out.put(b);
+        }
+
+        int regBits = (reg & 7) << 3;
+        if (memory == null) {
+            out.put(0xC0 | regBits | (rm.register & 7));
+            return;
+        }
+
+        if (memory.base < 0 && memory.index < 0) {
+            if (target == TargetArchitecture.X86_64 && memory.variable != null) {
+                // RIP-relative
+                out.put(0x05 | regBits);
+                out.fixup(Fixup.Kind.RELATIVE, memory.variable, memory.displacement);
+            } else if (target == TargetArchitecture.X86_64) {
+                // Absolute disp32 needs a SIB byte in long mode, since mod 00 rm 101 means RIP
+                out.put(0x04 | regBits);
+                out.put(0x25);
+                out.putInt((int) memory.displacement);
+            } else {
+                out.put(0x05 | regBits);
+                absolute(out, memory);
+            }
+            return;
+        }
+
+        boolean sib = memory.index >= 0 || memory.base < 0 || (memory.base & 7) == 4;
+        int mod;
+        if (memory.base < 0) {
+            mod = 0;
+        } else if (memory.variable == null && memory.displacement == 0 && (memory.base & 7) != 5) {
+            mod = 0;
+        } else if (memory.variable == null && fitsByte(memory.displacement)) {
+            mod = 1;
+        } else {
+            mod = 2;
+        }
+        out.put(mod << 6 | regBits | (sib ? 4 : memory.base & 7));
+        if (sib) {
+            int scaleBits = Integer.numberOfTrailingZeros(memory.scale);
+            int indexBits = memory.index >= 0 ? memory.index & 7 : 4;
+            int baseBits = memory.base >= 0 ? memory.base & 7 : 5;
+            out.put(scaleBits << 6 | indexBits << 3 | baseBits);
+        }
+        if (mod == 1) {
+            out.put((int) memory.displacement);
+        } else if (mod == 2 || memory.base < 0) {
+            absolute(out, memory);
+        }
+    }
+
+    // disp32 holding either a plain displacement or a variable's address plus it
+    private static void absolute(Bytes out, Memory memory) {
+        if (memory.variable != null) {
+            out.fixup(Fixup.Kind.ABSOLUTE, memory.variable, memory.displacement);
+        } else {
+            out.putInt((int) memory.displacement);
+        }
+    }
+
+    private void rex(Bytes out, boolean rexW, int reg, int index, int base) {
+        int rex = (rexW ? 8 : 0)
+                | (reg >= 8 ? 4 : 0)
+                | (index >= 8 ? 2 : 0)
+                | (base >= 8 ? 1 : 0);
+        if (rex != 0) {
+            out.put(0x40 | rex);
+        }
+    }
+
+    /**
+     * Operand size of the instruction from its register operands, else a
+     * memory size keyword, else the default. Returns whether it is 64-bit.
+     */
+    private boolean rexW(List<Operand> operands, AssemblyInstruction instruction) {
+        int size = 0;
+        for (Operand operand : operands) {
+            int operandSize = operand.register >= 0 ? operand.size
+                    : operand.memory != null ? operand.memory.size : 0;
+            if (operandSize == 0) continue;
+            if (size != 0 && size != operandSize) throw unsupported(instruction);
+            size = operandSize;
+        }
+        if (size == 0) {
+            size = wide ? 8 : 4;
+        }
+        if (size != 4 && size != 8) throw unsupported(instruction);
+        return size == 8;
+    }
+
+    private Operand operand(AssemblyOperand operand, AssemblyInstruction instruction, Map<String, Integer> variables) {
+        switch (operand.getKind()) {
+            case REGISTER:
+                return registerOperand(operand.getText(), instruction);
+            case IMMEDIATE:
+                return Operand.immediate(operand.getValue());
+            case MEMORY:
+                return Operand.memory(memory(operand.getText(), instruction, variables));
+            default:
+                return Operand.label(operand.getText());
+        }
+    }
+
+    private Operand registerOperand(String name, AssemblyInstruction instruction) {
+        if (name.equals("cl")) {
+            // Only as a shift count
+            return Operand.register(1, 1);
+        }
+        Integer number = REGISTERS_32.get(name);
+        if (number != null && (number < 8 || target == TargetArchitecture.X86_64)) {
+            return Operand.register(number, 4);
+        }
+        number = REGISTERS_64.get(name);
+        if (number != null && target == TargetArchitecture.X86_64) {
+            return Operand.register(number, 8);
+        }
+        throw unsupported(instruction);
+    }
+
+    // Parses "[base + index*scale + disp]" with an optional size keyword and variable name
+    private Memory memory(String text, AssemblyInstruction instruction, Map<String, Integer> variables) {
+        int open = text.indexOf('[');
+        int close = text.lastIndexOf(']');
+        if (close < open) throw unsupported(instruction);
+        Memory memory = new Memory();
+        String size = text.substring(0, open).replace("ptr", "").trim();
+        switch (size) {
+            case "": memory.size = 0; break;
+            case "dword": memory.size = 4; break;
+            case "qword": memory.size = 8; break;
+            default: throw unsupported(instruction);
+        }
+
+        int addressSize = target.getStackSlotSize();
+        String address = text.substring(open + 1, close);
+        int i = 0;
+        while (i < address.length()) {
+            // Signs between terms, e.g. "esp + 4" or "x - -3"
+            int sign = 1;
+            while (i < address.length() && "+- ".indexOf(address.charAt(i)) >= 0) {
+                if (address.charAt(i) == '-') sign = -sign;
+                i++;
+            }
+            int start = i;
+            while (i < address.length() && address.charAt(i) != '+' && address.charAt(i) != '-') {
+                i++;
+            }
+            String term = address.substring(start, i).trim();
+            if (!term.isEmpty()) {
+                addTerm(memory, term, sign, addressSize, instruction);
+            }
+        }
+        if (memory.variable != null) {
+            variables.computeIfAbsent(memory.variable, name -> variables.size() * VARIABLE_SLOT_SIZE);
+        }
+        if (memory.index == 4) throw unsupported(instruction);
+        return memory;
+    }
+
+    private void addTerm(Memory memory, String term, int sign, int addressSize, AssemblyInstruction instruction) {
+        int star = term.indexOf('*');
+        String name = star >= 0 ? term.substring(0, star).trim() : term;
+        if (AssemblyOperand.isRegisterName(name)) {
+            Operand register = registerOperand(name, instruction);
+            if (register.size != addressSize || sign < 0) throw unsupported(instruction);
+            int scale = star >= 0 ? Integer.parseInt(term.substring(star + 1).trim()) : 1;
+            if (star < 0 && memory.base < 0) {
+                memory.base = register.register;
+            } else if (memory.index < 0 && (scale == 1 || scale == 2 || scale == 4 || scale == 8)) {
+                memory.index = register.register;
+                memory.scale = scale;
+            } else {
+                throw unsupported(instruction);
+            }
+            return;
+        }
+        AssemblyOperand literal = AssemblyOperand.parse(term);
+        if (literal.isImmediate()) {
+            memory.displacement += sign * literal.getValue();
+        } else if (memory.variable == null && sign > 0 && star < 0) {
+            memory.variable = term;
+        } else {
+            throw unsupported(instruction);
+        }
+    }
+
+    private static Operand registerOrMemory(Operand operand, AssemblyInstruction instruction) {
+        if (operand.register < 0 && operand.memory == null) throw unsupported(instruction);
+        return operand;
+    }
+
+    private static long immediate(Operand operand, AssemblyInstruction instruction) {
+        if (!operand.isImmediate()) throw unsupported(instruction);
+        return operand.value;
+    }
+
+    private static int imm32(long value, AssemblyInstruction instruction) {
+        // Accept both signed and unsigned spellings of a 32-bit value
+        if (value < Integer.MIN_VALUE || value > 0xFFFFFFFFL) throw unsupported(instruction);
+        return (int) value;
+    }
+
+    private static void expectCount(List<Operand> operands, int count, AssemblyInstruction instruction) {
+        if (operands.size() != count) throw unsupported(instruction);
+    }
+
+    private void requireLongMode(AssemblyInstruction instruction) {
+        if (target != TargetArchitecture.X86_64) throw unsupported(instruction);
+    }
+
+    private static boolean fitsByte(long value) {
+        return value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+    }
+
+    private static boolean fitsInt(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+
+    private static IllegalArgumentException unsupported(AssemblyInstruction instruction) {
+        return new IllegalArgumentException("Cannot encode: " + instruction.toString().trim());
+    }
+
+    // A decoded operand: a register, an immediate, a memory reference or a label
+    private static final class Operand {
+        int register = -1;
+        int size;
+        boolean immediate;
+        long value;
+        Memory memory;
+        String label;
+
+        static Operand register(int number, int size) {
+            Operand operand = new Operand();
+            operand.register = number;
+            operand.size = size;
+            return operand;
+        }
+
+        static Operand immediate(long value) {
+            Operand operand = new Operand();
+            operand.immediate = true;
+            operand.value = value;
+            return operand;
+        }
+
+        static Operand memory(Memory memory) {
+            Operand operand = new Operand();
+            operand.memory = memory;
+            return operand;
+        }
+
+        static Operand label(String name) {
+            Operand operand = new Operand();
+            operand.label = name;
+            return operand;
+        }
+
+        boolean isImmediate() { return immediate; }
+    }
+
+    private static final class Memory {
+        int size;
+        int base = -1;
+        int index = -1;
+        int scale = 1;
+        long displacement;
+        String variable;
+    }
+
+    // A 32-bit field patched with an address once the layout is final
+    private static final class Fixup {
+        enum Kind {
+            ABSOLUTE,
+            // Relative to the end of the instruction
+            RELATIVE
+        }
+
+        final Kind kind;
+        final int position;
+        final String variable;
+        final long addend;
+
+        Fixup(Kind kind, int position, String variable, long addend) {
+            this.kind = kind;
+            this.position = position;
+            this.variable = variable;
+            this.addend = addend;
+        }
+    }
+
+    private static final class Bytes {
+        byte[] data = new byte[16];
+        int length;
+        List<Fixup> fixups = Collections.emptyList();
+
+        void put(int value) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, length * 2);
+            }
+            data[length++] = (byte) value;
+        }
+
+        void putShort(int value) {
+            put(value);
+            put(value >> 8);
+        }
+
+        void putInt(int value) {
+            putShort(value);
+            putShort(value >> 16);
+        }
+
+        void putLong(long value) {
+            putInt((int) value);
+            putInt((int) (value >> 32));
+        }
+
+        void fixup(Fixup.Kind kind, String variable, long addend) {
+            if (fixups.isEmpty()) {
+                fixups = new ArrayList<>(1);
+            }
+            fixups.add(new Fixup(kind, length, variable, addend));
+            putInt(0);
+        }
+    }
+
+    /**
+     * One instruction's bytes, or a jump or call to a label whose encoding
+     * depends on the layout. Labels are empty chunks.
+     */
+    private static final class Chunk {
+        final Bytes bytes;
+        final Mnemonic jump;
+        final String target;
+        boolean near;
+        int offset;
+
+        Chunk(Bytes bytes) {
+            this.bytes = bytes;
+            this.jump = null;
+            this.target = null;
+        }
+
+        Chunk(Mnemonic jump, String target) {
+            this.bytes = null;
+            this.jump = jump;
+            this.target = target;
+            // call has no short form
+            this.near = jump == Mnemonic.CALL;
+        }
+
+        int size() {
+            if (target == null) return bytes.length;
+            if (!near) return 2;
+            return jump == Mnemonic.JMP || jump == Mnemonic.CALL ? 5 : 6;
+        }
+
+        void writeTo(byte[] text, long textAddress, Map<String, Long> labels, Map<String, Long> variables) {
+            long end = textAddress + offset + size();
+            if (target != null) {
+                int displacement = (int) (labels.get(target) - end);
+                int at = offset;
+                if (!near) {
+                    text[at++] = (byte) (jump == Mnemonic.JMP ? 0xEB : 0x70 | CONDITION_CODES.get(jump));
+                    text[at] = (byte) displacement;
+                    return;
+                }
+                if (jump == Mnemonic.JMP || jump == Mnemonic.CALL) {
+                    text[at++] = (byte) (jump == Mnemonic.JMP ? 0xE9 : 0xE8);
+                } else {
+                    text[at++] = 0x0F;
+                    text[at++] = (byte) (0x80 | CONDITION_CODES.get(jump));
+                }
+                writeInt(text, at, displacement);
+                return;
+            }
+
+            System.arraycopy(bytes.data, 0, text, offset, bytes.length);
+            for (Fixup fixup : bytes.fixups) {
+                long value = variables.get(fixup.variable) + fixup.addend;
+                if (fixup.kind == Fixup.Kind.RELATIVE) {
+                    value -= end;
+                }
+                writeInt(text, offset + fixup.position, (int) value);
+            }
+        }
+
+        private static void writeInt(byte[] text, int at, int value) {
+            for (int i = 0; i < 4; i++) {
+                text[at + i] = (byte) (value >> (8 * i));
+            }
+        }
+    }
+}
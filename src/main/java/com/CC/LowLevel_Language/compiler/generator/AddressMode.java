@@ -0,0 +1,144 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import com.CC.LowLevel_Language.compiler.analysis.RegisterManager;
+import com.CC.LowLevel_Language.compiler.parser.Expression;
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+
+import java.util.function.Function;
+
+/**
+ * An effective address base + index * scale + displacement matched over an
+ * expression tree, so the whole tree can be computed by a single lea.
+ * Only register leaves and constants fit in an address.
+ */
+final class AddressMode {
+    private String base;
+    private String index;
+    private int scale = 1;
+    private long displacement;
+
+    private AddressMode() {}
+
+    /**
+     * Matches the tree against the address forms, or returns null when some
+     * part of it has no address equivalent: a leaf in memory, a division, a
+     * subtracted register or a scale lea cannot encode.
+     */
+    static AddressMode match(Expression node, RegisterManager registers) {
+        return match(node, registers, registers::formatOperand);
+    }
+
+    // As above, with leaves read from where locations says
+    static AddressMode match(Expression node, RegisterManager registers, Function<Operand, String> locations) {
+        if (node.isLeaf()) {
+            String location = locations.apply(node.getOperand());
+            AddressMode address = new AddressMode();
+            if (registers.isRegister(location)) {
+                address.base = location;
+            } else if (registers.isConstant(location) && location.length() <= 11
+                    && fitsDisplacement(Long.parseLong(location))) {
+                address.displacement = Long.parseLong(location);
+            } else {
+                return null;
+            }
+            return address;
+        }
+
+        Opcode operator = node.getOperator();
+        if (operator == Opcode.ADD) {
+            AddressMode left = match(node.getLeft(), registers, locations);
+            AddressMode right = left != null ? match(node.getRight(), registers, locations) : null;
+            return right != null ? left.plus(right) : null;
+        }
+        if (operator == Opcode.SUB) {
+            AddressMode left = match(node.getLeft(), registers, locations);
+            AddressMode right = left != null ? match(node.getRight(), registers, locations) : null;
+            if (right == null || right.base != null || right.index != null) return null;
+            left.displacement -= right.displacement;
+            return fitsDisplacement(left.displacement) ? left : null;
+        }
+        if (operator == Opcode.MUL) {
+            AddressMode left = match(node.getLeft(), registers, locations);
+            AddressMode right = match(node.getRight(), registers, locations);
+            if (left == null || right == null) return null;
+            return left.isRegister() && right.isConstant() ? scaled(left.base, right.displacement)
+                    : right.isRegister() && left.isConstant() ? scaled(right.base, left.displacement)
+                    : null;
+        }
+        return null;
+    }
+
+    // reg * 2/4/8 as an index, reg * 3/5/9 as the register plus itself scaled
+    private static AddressMode scaled(String register, long factor) {
+        AddressMode address = new AddressMode();
+        address.index = register;
+        if (factor == 2 || factor == 4 || factor == 8) {
+            address.scale = (int) factor;
+        } else if (factor == 3 || factor == 5 || factor == 9) {
+            address.base = register;
+            address.scale = (int) factor - 1;
+        } else {
+            return null;
+        }
+        return address;
+    }
+
+    private AddressMode plus(AddressMode other) {
+        AddressMode sum = new AddressMode();
+        sum.displacement = displacement + other.displacement;
+        if (!fitsDisplacement(sum.displacement)) return null;
+
+        // At most one scaled index; a second plain register becomes an index with scale 1
+        if (index != null && other.index != null) return null;
+        sum.index = index != null ? index : other.index;
+        sum.scale = index != null ? scale : other.scale;
+        for (String register : new String[] {base, other.base}) {
+            if (register == null) continue;
+            if (sum.base == null) {
+                sum.base = register;
+            } else if (sum.index == null) {
+                sum.index = register;
+            } else {
+                return null;
+            }
+        }
+        return sum;
+    }
+
+    private boolean isRegister() {
+        return base != null && index == null && displacement == 0;
+    }
+
+    private boolean isConstant() {
+        return base == null && index == null;
+    }
+
+    /**
+     * Whether lea beats the generic mov-then-operate sequence: that needs at
+     * least two instructions once a base is combined with an index or a
+     * displacement, while lea needs one.
+     */
+    boolean isWorthLea() {
+        return base != null && (index != null || displacement != 0);
+    }
+
+    // e.g. "[ebx + ecx*4 - 8]", with registers widened to the address size
+    String format(TargetArchitecture target) {
+        StringBuilder address = new StringBuilder("[").append(target.getFullRegister(base));
+        if (index != null) {
+            address.append(" + ").append(target.getFullRegister(index));
+            if (scale > 1) {
+                address.append('*').append(scale);
+            }
+        }
+        if (displacement != 0) {
+            address.append(displacement < 0 ? " - " : " + ").append(Math.abs(displacement));
+        }
+        return address.append(']').toString();
+    }
+
+    private static boolean fitsDisplacement(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+}
@@ -1,203 +1,982 @@
 package com.CC.LowLevel_Language.compiler.generator;
 
+import com.CC.LowLevel_Language.compiler.analysis.GraphColoringAllocator;
+import com.CC.LowLevel_Language.compiler.analysis.LinearScanAllocator;
+import com.CC.LowLevel_Language.compiler.analysis.LiveInterval;
+import com.CC.LowLevel_Language.compiler.analysis.RegisterAllocator;
 import com.CC.LowLevel_Language.compiler.analysis.RegisterManager;
+import com.CC.LowLevel_Language.compiler.analysis.StackSlotColoring;
+import com.CC.LowLevel_Language.compiler.analysis.SymbolTable;
+import com.CC.LowLevel_Language.compiler.parser.Expression;
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
 import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class AssemblyGenerator {
-    private final RegisterManager registerManager;
-    private final List<String> assemblyCode;
+    // Stack alignment the System V ABIs expect at a call
+    private static final int CALL_ALIGNMENT = 16;
+    private static final Map<Opcode, Mnemonic> CONDITIONAL_JUMPS = new EnumMap<>(Opcode.class);
+
+    static {
+        CONDITIONAL_JUMPS.put(Opcode.IF_GT, Mnemonic.JG);
+        CONDITIONAL_JUMPS.put(Opcode.IF_LT, Mnemonic.JL);
+        CONDITIONAL_JUMPS.put(Opcode.IF_GE, Mnemonic.JGE);
+        CONDITIONAL_JUMPS.put(Opcode.IF_LE, Mnemonic.JLE);
+        CONDITIONAL_JUMPS.put(Opcode.IF_EQ, Mnemonic.JE);
+        CONDITIONAL_JUMPS.put(Opcode.IF_NE, Mnemonic.JNE);
+    }
+
+    @FunctionalInterface
+    private interface InstructionEmitter {
+        void emit(TACInstruction instruction, CompilationContext context);
+    }
+
+    // Dispatch table indexed by opcode; opcodes without an entry are unsupported.
+    // Filled once in the constructor and only read afterwards, so one generator
+    // can serve any number of threads; per-compilation state is in CompilationContext.
+    private final Map<Opcode, InstructionEmitter> emitters;
+    // Whole-program allocators by strategy; strategies without one allocate while streaming
+    private final Map<RegisterAllocationStrategy, RegisterAllocator> allocators;
 
     public AssemblyGenerator() {
-        this.registerManager = new RegisterManager();
-        this.assemblyCode = new ArrayList<>();
+        Map<Opcode, InstructionEmitter> emitters = new EnumMap<>(Opcode.class);
+        emitters.put(Opcode.ADD, this::generateArithmetic);
+        emitters.put(Opcode.SUB, this::generateArithmetic);
+        emitters.put(Opcode.MUL, this::generateArithmetic);
+        emitters.put(Opcode.DIV, this::generateArithmetic);
+        emitters.put(Opcode.MOD, this::generateArithmetic);
+        emitters.put(Opcode.EXPR, this::generateExpression);
+        emitters.put(Opcode.COPY, this::generateAssignment);
+        emitters.put(Opcode.RETURN, this::generateReturn);
+        emitters.put(Opcode.CALL, this::generateCall);
+        emitters.put(Opcode.LABEL, this::generateLabel);
+        emitters.put(Opcode.GOTO, this::generateJump);
+        for (Opcode branch : CONDITIONAL_JUMPS.keySet()) {
+            emitters.put(branch, this::generateComparison);
+        }
+        this.emitters = Collections.unmodifiableMap(emitters);
+
+        Map<RegisterAllocationStrategy, RegisterAllocator> allocators = new EnumMap<>(RegisterAllocationStrategy.class);
+        allocators.put(RegisterAllocationStrategy.LINEAR_SCAN, new LinearScanAllocator());
+        allocators.put(RegisterAllocationStrategy.GRAPH_COLORING, new GraphColoringAllocator());
+        this.allocators = Collections.unmodifiableMap(allocators);
     }
 
     public List<String> generateAssembly(List<TACInstruction> instructions) {
-        assemblyCode.clear();
-        registerManager.reset();
+        return generateAssembly(instructions.iterator());
+    }
+
+    public List<String> generateAssembly(Iterator<TACInstruction> instructions) {
+        return generateAssembly(instructions, new CompilationContext());
+    }
+
+    public List<String> generateAssembly(Iterator<TACInstruction> instructions, CompilationContext context) {
+        List<String> lines = new ArrayList<>();
+        generate(instructions, context, instruction -> lines.add(instruction.toString()));
+        return lines;
+    }
+
+    public List<AssemblyInstruction> generateInstructions(List<TACInstruction> instructions) {
+        return generateInstructions(instructions.iterator(), new CompilationContext());
+    }
 
-        assemblyCode.add("; Generated Assembly Code from TAC");
-        assemblyCode.add(".section .data");
-        assemblyCode.add(".section .text");
-        assemblyCode.add(".global _start");
-        assemblyCode.add("_start:");
+    /**
+     * Generates structured instructions; text is only produced if the caller
+     * renders them.
+     */
+    public List<AssemblyInstruction> generateInstructions(Iterator<TACInstruction> instructions,
+                                                          CompilationContext context) {
+        List<AssemblyInstruction> code = new ArrayList<>();
+        generate(instructions, context, code::add);
+        return code;
+    }
+
+    public int generateAssembly(List<TACInstruction> instructions, Appendable out) {
+        return generateAssembly(instructions.iterator(), out);
+    }
+
+    public int generateAssembly(Iterator<TACInstruction> instructions, Appendable out) {
+        return generateAssembly(instructions, out, new CompilationContext());
+    }
+
+    /**
+     * Writes the assembly for the instructions to out, one newline-terminated
+     * line at a time, and returns the number of lines written. I/O failures
+     * of the sink surface as UncheckedIOException.
+     */
+    public int generateAssembly(Iterator<TACInstruction> instructions, Appendable out, CompilationContext context) {
+        return generate(instructions, context, instruction -> {
+            try {
+                instruction.appendTo(out);
+                out.append('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 
-        for (TACInstruction instruction : instructions) {
-            generateInstructionAssembly(instruction);
+    private int generate(Iterator<TACInstruction> instructions, CompilationContext context,
+                         Consumer<AssemblyInstruction> sink) {
+        context.begin(sink);
+
+        emit(context, AssemblyInstruction.comment("Generated Assembly Code from TAC"));
+        emit(context, AssemblyInstruction.directive(".section", ".data"));
+        emit(context, AssemblyInstruction.directive(".section", ".text"));
+        emit(context, AssemblyInstruction.directive(".global", "_start"));
+        emit(context, AssemblyInstruction.label("_start"));
+
+        Iterator<TACInstruction> program = allocateRegisters(instructions, context);
+        emitPrologue(context);
+        RegisterManager registerManager = context.getRegisterManager();
+        for (int index = 0; program.hasNext(); index++) {
+            registerManager.setPosition(index);
+            generateInstructionAssembly(program.next(), context);
         }
 
-        // Add program termination
-        assemblyCode.add("mov eax, 1     ; sys_exit");
-        assemblyCode.add("int 0x80       ; call kernel");
+        // Falling off the end exits with status 0
+        emitExit("0", context);
+
+        context.end();
+        return context.getLineCount();
+    }
+
+    /**
+     * Runs the register allocator of the context's strategy. Linear scan and
+     * graph coloring need the live ranges of the whole program, so the
+     * instructions are buffered first; the sequential strategy allocates
+     * while streaming.
+     */
+    private Iterator<TACInstruction> allocateRegisters(Iterator<TACInstruction> instructions,
+                                                       CompilationContext context) {
+        RegisterAllocator allocator = allocators.get(context.getAllocationStrategy());
+        if (allocator == null) {
+            return instructions;
+        }
+        List<TACInstruction> program = new ArrayList<>();
+        instructions.forEachRemaining(program::add);
+        List<LiveInterval> intervals = allocator.allocate(program, context.getTarget().getRegisters(context.isWide()),
+                new MachineConstraints(context.getTarget(), context.isWide()), context.getSymbolTable());
+        context.getRegisterManager().assign(intervals);
+        allocateFrame(intervals, context);
+        return program.iterator();
+    }
+
+    /**
+     * Gives every spilled variable an operand-sized slot below the frame
+     * pointer, addressed as e.g. "[ebp - 8]", unless it was rematerialized
+     * as a constant. Spills that are never live at the same time share a
+     * slot, and the frame is rounded up to whole stack words. The sequential
+     * strategy decides spills while streaming, too late to size a frame, so
+     * its spills stay in the data area.
+     */
+    private static void allocateFrame(List<LiveInterval> intervals, CompilationContext context) {
+        TargetArchitecture target = context.getTarget();
+        SymbolTable symbols = context.getSymbolTable();
+        StackSlotColoring.assign(intervals, symbols, context.isWide() ? 8 : 4);
+        for (LiveInterval interval : intervals) {
+            if (interval.isSpilled() && !interval.isRematerialized()) {
+                String variable = interval.getVariable();
+                context.getRegisterManager().bindToStack(variable,
+                        "[" + target.getFramePointer() + " - " + -symbols.getSymbolStackOffset(variable) + "]");
+            }
+        }
+        int word = target.getStackSlotSize();
+        context.setFrameSize((symbols.getFrameSize() + word - 1) / word * word);
+    }
 
-        return new ArrayList<>(assemblyCode);
+    // Leaves the program through sys_exit with the given status. The status
+    // is loaded before the epilogue, since it may live in a frame slot
+    private static void emitExit(String status, CompilationContext context) {
+        TargetArchitecture target = context.getTarget();
+        String statusRegister = target.getExitStatusRegister(context.isWide());
+        if (!status.equals(statusRegister)) {
+            emit(context, instruction(Mnemonic.MOV, statusRegister, status).withComment("exit status", 15));
+        }
+        emitEpilogue(context);
+        emit(context, instruction(Mnemonic.MOV, "eax", target.getExitSyscall()).withComment("sys_exit", 15));
+        emit(context, target.kernelCall().withComment("call kernel", 15));
     }
 
-    private void generateInstructionAssembly(TACInstruction instruction) {
-        if (instruction.isLabel()) {
-            assemblyCode.add(instruction.getLabel() + ":");
+    private static void emitPrologue(CompilationContext context) {
+        if (context.getFrameSize() == 0) {
             return;
         }
+        TargetArchitecture target = context.getTarget();
+        emit(context, Mnemonic.PUSH, target.getFramePointer());
+        emit(context, Mnemonic.MOV, target.getFramePointer(), target.getStackPointer());
+        emit(context, instruction(Mnemonic.SUB, target.getStackPointer(), Integer.toString(context.getFrameSize()))
+                .withComment("spill slots"));
+    }
 
-        String operation = instruction.getOperation();
+    private static void emitEpilogue(CompilationContext context) {
+        if (context.getFrameSize() == 0) {
+            return;
+        }
+        TargetArchitecture target = context.getTarget();
+        emit(context, Mnemonic.MOV, target.getStackPointer(), target.getFramePointer());
+        emit(context, Mnemonic.POP, target.getFramePointer());
+    }
 
-        switch (operation) {
-            case "+":
-                generateAddition(instruction);
-                break;
-            case "-":
-                generateSubtraction(instruction);
-                break;
-            case "*":
-                generateMultiplication(instruction);
-                break;
-            case "/":
-                generateDivision(instruction);
-                break;
-            case "=":
-                generateAssignment(instruction);
-                break;
-            case "return":
-                generateReturn(instruction);
-                break;
-            case ">":
-            case "<":
-            case ">=":
-            case "<=":
-            case "==":
-            case "!=":
-                generateComparison(instruction);
-                break;
-            default:
-                assemblyCode.add("; Unsupported operation: " + operation);
+    // Splits newline-terminated text back into lines for callers that need a list
+    public static List<String> splitLines(CharSequence text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.subSequence(start, i).toString());
+                start = i + 1;
+            }
         }
+        if (start < text.length()) {
+            lines.add(text.subSequence(start, text.length()).toString());
+        }
+        return lines;
     }
 
-    private void generateAddition(TACInstruction instruction) {
-        String result = registerManager.formatOperand(instruction.getResult());
-        String operand1 = registerManager.formatOperand(instruction.getOperand1());
-        String operand2 = registerManager.formatOperand(instruction.getOperand2());
+    private static void emit(CompilationContext context, AssemblyInstruction instruction) {
+        context.emit(instruction);
+    }
 
-        assemblyCode.add("; " + instruction.getResult() + " = " +
-                instruction.getOperand1() + " + " + instruction.getOperand2());
+    private static void emit(CompilationContext context, Mnemonic mnemonic, String... operands) {
+        context.emit(instruction(mnemonic, operands));
+    }
+
+    private static void comment(CompilationContext context, String text) {
+        emit(context, AssemblyInstruction.comment(text));
+    }
 
-        // Move first operand to result register/memory
-        if (!result.equals(operand1)) {
-            assemblyCode.add("mov " + result + ", " + operand1);
+    // Operands come from RegisterManager locations and are classified here
+    private static AssemblyInstruction instruction(Mnemonic mnemonic, String... operands) {
+        AssemblyInstruction instruction = new AssemblyInstruction(mnemonic);
+        for (String operand : operands) {
+            instruction.addOperand(AssemblyOperand.parse(operand));
         }
+        return instruction;
+    }
 
-        // Add second operand
-        assemblyCode.add("add " + result + ", " + operand2);
+    private void generateInstructionAssembly(TACInstruction instruction, CompilationContext context) {
+        InstructionEmitter emitter = emitters.get(instruction.getOpcode());
+        if (emitter != null) {
+            emitter.emit(instruction, context);
+        } else {
+            comment(context, "Unsupported operation: " + instruction.getOperation());
+        }
     }
 
-    private void generateSubtraction(TACInstruction instruction) {
+    private void generateLabel(TACInstruction instruction, CompilationContext context) {
+        emit(context, AssemblyInstruction.label(instruction.getLabel().getText()));
+    }
+
+    // result = operand1 op operand2 for +, -, *, / and %, selected as a two-leaf tree
+    private void generateArithmetic(TACInstruction instruction, CompilationContext context) {
+        comment(context, instruction.toString());
+        select(Expression.binary(instruction.getOpcode(),
+                Expression.leaf(instruction.getOperand1()), Expression.leaf(instruction.getOperand2())),
+                instruction, context);
+    }
+
+    private void generateAssignment(TACInstruction instruction, CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
         String result = registerManager.formatOperand(instruction.getResult());
         String operand1 = registerManager.formatOperand(instruction.getOperand1());
-        String operand2 = registerManager.formatOperand(instruction.getOperand2());
-
-        assemblyCode.add("; " + instruction.getResult() + " = " +
-                instruction.getOperand1() + " - " + instruction.getOperand2());
 
-        // Move first operand to result register/memory
-        if (!result.equals(operand1)) {
-            assemblyCode.add("mov " + result + ", " + operand1);
+        comment(context, instruction.getResult() + " = " + instruction.getOperand1());
+        if (result.equals(operand1)) {
+            // Coalesced copies share a location and need no instruction
+            return;
         }
+        if (registerManager.isMemoryReference(result) && registerManager.isMemoryReference(operand1)) {
+            // Both variables spilled: x86 has no memory-to-memory move
+            String scratch = acquireScratch(new HashSet<>(), context);
+            emit(context, Mnemonic.MOV, scratch, operand1);
+            emit(context, Mnemonic.MOV, result, scratch);
+            releaseScratch(scratch, context);
+            return;
+        }
+        emit(context, Mnemonic.MOV, result, operand1);
+    }
 
-        // Subtract second operand
-        assemblyCode.add("sub " + result + ", " + operand2);
+    private void generateExpression(TACInstruction instruction, CompilationContext context) {
+        comment(context, instruction.toString());
+        select(instruction.getExpression(), instruction, context);
     }
 
-    private void generateMultiplication(TACInstruction instruction) {
+    /**
+     * Covers the tree with the cheapest instructions that compute it into the
+     * instruction's result. When the result already holds one operand the
+     * operation is done in place; otherwise the tree is evaluated into the
+     * result register, or into a scratch register that is then stored.
+     */
+    private void select(Expression expression, TACInstruction instruction, CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
         String result = registerManager.formatOperand(instruction.getResult());
-        String operand1 = registerManager.formatOperand(instruction.getOperand1());
-        String operand2 = registerManager.formatOperand(instruction.getOperand2());
 
-        assemblyCode.add("; " + instruction.getResult() + " = " +
-                instruction.getOperand1() + " * " + instruction.getOperand2());
+        // Registers read by the expression must survive until it is fully evaluated
+        Set<String> reserved = new HashSet<>();
+        reserveLeaves(expression, reserved, context);
+        if (selectInPlace(expression, result, reserved, context)) {
+            return;
+        }
+        boolean intoResult = registerManager.isRegister(result) && !reserved.contains(result);
+        reserved.add(result);
 
-        // Move first operand to result register/memory
-        if (!result.equals(operand1)) {
-            assemblyCode.add("mov " + result + ", " + operand1);
+        String target = intoResult ? result : acquireScratch(reserved, context);
+        if (target == null) {
+            evaluateParked(expression, result, reserved, context);
+            return;
         }
+        evaluate(expression, target, reserved, context);
+        if (!intoResult) {
+            emit(context, Mnemonic.MOV, result, target);
+            releaseScratch(target, context);
+        }
+    }
 
-        // Multiply by second operand
-        assemblyCode.add("imul " + result + ", " + operand2);
+    /**
+     * Every register holds a value the expression reads, so one of them is
+     * parked on the stack and the tree is evaluated in it, with reads of its
+     * variable going to the saved slot. The result's own register is taken
+     * when it has one, since its old value is not needed afterwards;
+     * otherwise the parked value is restored once the result is stored.
+     */
+    private void evaluateParked(Expression expression, String result, Set<String> reserved,
+                                CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
+        String target = null;
+        if (registerManager.isRegister(result)) {
+            target = result;
+        } else {
+            for (String candidate : reserved) {
+                if (registerManager.isRegister(candidate) && !context.getBorrowedRegisters().contains(candidate)) {
+                    target = candidate;
+                    break;
+                }
+            }
+        }
+        if (target == null) {
+            throw new IllegalStateException("No register left to evaluate: " + expression);
+        }
+        TargetArchitecture architecture = context.getTarget();
+        emit(context, instruction(Mnemonic.PUSH, architecture.getFullRegister(target)).withComment("park"));
+        context.getParkedRegisters().put(target, context.getStackDepth());
+        evaluate(expression, target, reserved, context);
+        context.getParkedRegisters().remove(target);
+        if (target.equals(result)) {
+            emit(context, Mnemonic.ADD, architecture.getStackPointer(),
+                    Integer.toString(architecture.getStackSlotSize()));
+        } else {
+            emit(context, Mnemonic.MOV, result, target);
+            emit(context, Mnemonic.POP, architecture.getFullRegister(target));
+        }
     }
 
-    private void generateDivision(TACInstruction instruction) {
-        String result = registerManager.formatOperand(instruction.getResult());
-        String operand1 = registerManager.formatOperand(instruction.getOperand1());
-        String operand2 = registerManager.formatOperand(instruction.getOperand2());
+    // Where a leaf is read from: its location, or the stack slot its register is parked in
+    private static String locate(Operand operand, CompilationContext context) {
+        String location = context.getRegisterManager().formatOperand(operand);
+        Integer depth = context.getParkedRegisters().get(location);
+        if (depth == null) {
+            return location;
+        }
+        int offset = context.getStackDepth() - depth;
+        return "[" + context.getTarget().getStackPointer() + (offset > 0 ? " + " + offset : "") + "]";
+    }
 
-        assemblyCode.add("; " + instruction.getResult() + " = " +
-                instruction.getOperand1() + " / " + instruction.getOperand2());
+    /**
+     * Tiles for a root whose result location is also one of its operands,
+     * such as a = a + b, a = b + a (commutative swap) or a = b - a (negate
+     * and add), and for a result in memory computed from register or
+     * constant operands. Returns false when none applies.
+     */
+    private boolean selectInPlace(Expression node, String result, Set<String> reserved, CompilationContext context) {
+        Opcode operator = node.getOperator();
+        if (node.isLeaf() || (operator != Opcode.ADD && operator != Opcode.SUB && operator != Opcode.MUL)) {
+            return false;
+        }
+        RegisterManager registerManager = context.getRegisterManager();
+        boolean commutative = operator != Opcode.SUB;
+        Expression left = node.getLeft();
+        Expression right = node.getRight();
+        String leftLocation = left.isLeaf() ? locate(left.getOperand(), context) : null;
+        String rightLocation = right.isLeaf() ? locate(right.getOperand(), context) : null;
+
+        Expression other;
+        if (result.equals(leftLocation)) {
+            other = right;
+        } else if (commutative && result.equals(rightLocation)) {
+            other = left;
+        } else if (operator == Opcode.SUB && result.equals(rightLocation) && leftLocation != null
+                && registerManager.isRegister(result)) {
+            // result = left - result
+            emit(context, Mnemonic.NEG, result);
+            emit(context, Mnemonic.ADD, result, leftLocation);
+            return true;
+        } else if (registerManager.isMemoryReference(result) && operator != Opcode.MUL
+                && leftLocation != null && !registerManager.isMemoryReference(leftLocation)
+                && rightLocation != null && !registerManager.isMemoryReference(rightLocation)) {
+            emit(context, Mnemonic.MOV, result, leftLocation);
+            applyOperator(operator, result, rightLocation, context);
+            return true;
+        } else {
+            return false;
+        }
 
-        // Division requires eax and edx registers
-        assemblyCode.add("mov eax, " + operand1);
-        assemblyCode.add("cdq                 ; sign extend eax to edx:eax");
-        assemblyCode.add("idiv " + operand2 + " ; divide edx:eax by operand2");
-        assemblyCode.add("mov " + result + ", eax ; store quotient");
+        if (other.isLeaf()) {
+            String operand = locate(other.getOperand(), context);
+            if (!isLegal(operator, result, operand, registerManager)) {
+                return false;
+            }
+            applyOperator(operator, result, operand, context);
+            return true;
+        }
+        if (!isLegal(operator, result, "", registerManager)) {
+            return false;
+        }
+        // The other side needs a register of its own; result keeps its value meanwhile
+        String scratch = acquireScratch(reserved, context);
+        if (scratch == null) {
+            return false;
+        }
+        evaluate(other, scratch, reserved, context);
+        applyOperator(operator, result, scratch, context);
+        releaseScratch(scratch, context);
+        return true;
     }
 
-    private void generateAssignment(TACInstruction instruction) {
-        String result = registerManager.formatOperand(instruction.getResult());
-        String operand1 = registerManager.formatOperand(instruction.getOperand1());
+    // x86 has no memory-to-memory forms, and imul needs a register destination
+    private static boolean isLegal(Opcode operator, String destination, String source, RegisterManager registerManager) {
+        if (!registerManager.isMemoryReference(destination)) {
+            return true;
+        }
+        return operator != Opcode.MUL && !registerManager.isMemoryReference(source);
+    }
 
-        assemblyCode.add("; " + instruction.getResult() + " = " + instruction.getOperand1());
-        assemblyCode.add("mov " + result + ", " + operand1);
+    private void reserveLeaves(Expression node, Set<String> reserved, CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
+        if (node.isLeaf()) {
+            String location = registerManager.formatOperand(node.getOperand());
+            if (registerManager.isRegister(location)) {
+                reserved.add(location);
+            }
+        } else {
+            reserveLeaves(node.getLeft(), reserved, context);
+            reserveLeaves(node.getRight(), reserved, context);
+        }
     }
 
-    private void generateReturn(TACInstruction instruction) {
+    /**
+     * Sethi-Ullman evaluation into target: the subtree that needs more
+     * registers goes first so the other one can reuse them, and a leaf on the
+     * right is used directly as the instruction operand.
+     */
+    private void evaluate(Expression node, String target, Set<String> reserved, CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
+        if (node.isLeaf()) {
+            String location = locate(node.getOperand(), context);
+            if (!location.equals(target)) {
+                emit(context, Mnemonic.MOV, target, location);
+            }
+            return;
+        }
+
+        // Additions of registers, constants and registers scaled by 2-9 fold into one lea
+        AddressMode address = AddressMode.match(node, registerManager, operand -> locate(operand, context));
+        if (address != null && address.isWorthLea()) {
+            emit(context, Mnemonic.LEA, target, address.format(context.getTarget()));
+            return;
+        }
+
+        Opcode operator = node.getOperator();
+        boolean commutative = operator == Opcode.ADD || operator == Opcode.MUL;
+        Expression left = node.getLeft();
+        Expression right = node.getRight();
+        if (left.isLeaf() && right.isLeaf() && operator == Opcode.MUL) {
+            // Three-operand imul multiplies a register or memory operand by a constant into target
+            String leftLocation = locate(left.getOperand(), context);
+            String rightLocation = locate(right.getOperand(), context);
+            boolean leftConstant = registerManager.isConstant(leftLocation);
+            boolean rightConstant = registerManager.isConstant(rightLocation);
+            if (leftConstant != rightConstant) {
+                emit(context, Mnemonic.IMUL, target, rightConstant ? leftLocation : rightLocation,
+                        rightConstant ? rightLocation : leftLocation);
+                return;
+            }
+        }
+        if (right.isLeaf()) {
+            evaluate(left, target, reserved, context);
+            applyOperator(operator, target, locate(right.getOperand(), context), context);
+            return;
+        }
+        if (left.isLeaf() && (commutative || operator == Opcode.SUB)) {
+            // Compute the subtree in target and fold the leaf in as the operand, no scratch needed
+            String leftLocation = locate(left.getOperand(), context);
+            evaluate(right, target, reserved, context);
+            if (operator == Opcode.SUB) {
+                emit(context, Mnemonic.NEG, target);
+                emit(context, Mnemonic.ADD, target, leftLocation);
+            } else {
+                applyOperator(operator, target, leftLocation, context);
+            }
+            return;
+        }
+
+        boolean division = operator == Opcode.DIV || operator == Opcode.MOD;
+        String scratch = division ? acquireDivisorScratch(reserved, context) : acquireScratch(reserved, context);
+        if (scratch == null) {
+            // Out of registers: park the right operand on the stack
+            TargetArchitecture architecture = context.getTarget();
+            evaluate(right, target, reserved, context);
+            emit(context, Mnemonic.PUSH, architecture.getFullRegister(target));
+            evaluate(left, target, reserved, context);
+            applyOperator(node.getOperator(), target, stackOperand(context, 0), context);
+            emit(context, Mnemonic.ADD, architecture.getStackPointer(),
+                    Integer.toString(architecture.getStackSlotSize()));
+            return;
+        }
+
+        if (left.getRegisterNeed() >= right.getRegisterNeed()) {
+            evaluate(left, target, reserved, context);
+            evaluate(right, scratch, reserved, context);
+        } else {
+            evaluate(right, scratch, reserved, context);
+            evaluate(left, target, reserved, context);
+        }
+        applyOperator(node.getOperator(), target, scratch, context);
+        releaseScratch(scratch, context);
+    }
+
+    private void applyOperator(Opcode operator, String target, String operand, CompilationContext context) {
+        switch (operator) {
+            case ADD:
+                emit(context, Mnemonic.ADD, target, operand);
+                break;
+            case SUB:
+                emit(context, Mnemonic.SUB, target, operand);
+                break;
+            case MUL:
+                emit(context, Mnemonic.IMUL, target, operand);
+                break;
+            default:
+                divide(operator, target, operand, context);
+                break;
+        }
+    }
+
+    /**
+     * idiv works on edx:eax. eax and edx are saved around it only while they
+     * hold a live value; the allocator keeps variables out of them across a
+     * division, so this is normally just the scratch registers of an
+     * enclosing expression. The divisor is pushed when idiv cannot read it
+     * in place: a constant, eax or edx, or a stack-relative slot.
+     */
+    private void divide(Opcode operator, String target, String divisor, CompilationContext context) {
+        ConstantDivisor constant = ConstantDivisor.of(divisor, context.isWide());
+        if (constant != null) {
+            if (constant.isPowerOfTwo()) {
+                divideByPowerOfTwo(operator, target, constant, context);
+            } else {
+                divideByMagic(operator, target, constant, context);
+            }
+            return;
+        }
+        TargetArchitecture architecture = context.getTarget();
+        RegisterManager registerManager = context.getRegisterManager();
+        String accumulator = architecture.getAccumulator(context.isWide());
+        String remainder = architecture.getRemainderRegister(context.isWide());
+        boolean saveEax = !target.equals(accumulator) && registerManager.isInUse(accumulator);
+        boolean saveEdx = !target.equals(remainder) && registerManager.isInUse(remainder);
+        boolean pushDivisor = registerManager.isConstant(divisor) || divisor.equals(accumulator)
+                || divisor.equals(remainder) || divisor.contains(architecture.getStackPointer());
+        int divisorOffset = 0;
+
+        if (pushDivisor) {
+            String pushedDivisor = AssemblyOperand.isRegisterName(divisor) ? architecture.getFullRegister(divisor) : divisor;
+            emit(context, instruction(Mnemonic.PUSH, pushedDivisor).withComment("divisor"));
+        }
+        if (saveEax) {
+            emit(context, Mnemonic.PUSH, architecture.getFullRegister(accumulator));
+            divisorOffset += architecture.getStackSlotSize();
+        }
+        if (saveEdx) {
+            emit(context, Mnemonic.PUSH, architecture.getFullRegister(remainder));
+            divisorOffset += architecture.getStackSlotSize();
+        }
+        if (!target.equals(accumulator)) {
+            emit(context, Mnemonic.MOV, accumulator, target);
+        }
+        emit(context, signExtension(context));
+        if (pushDivisor) {
+            emit(context, Mnemonic.IDIV, stackOperand(context, divisorOffset));
+        } else if (registerManager.isMemoryReference(divisor)) {
+            emit(context, Mnemonic.IDIV, architecture.getOperandSize(context.isWide()) + " " + divisor);
+        } else {
+            emit(context, Mnemonic.IDIV, divisor);
+        }
+        String resultRegister = operator == Opcode.MOD ? remainder : accumulator;
+        if (!target.equals(resultRegister)) {
+            emit(context, Mnemonic.MOV, target, resultRegister);
+        }
+        if (saveEdx) {
+            emit(context, Mnemonic.POP, architecture.getFullRegister(remainder));
+        }
+        if (saveEax) {
+            emit(context, Mnemonic.POP, architecture.getFullRegister(accumulator));
+        }
+        if (pushDivisor) {
+            emit(context, Mnemonic.ADD, architecture.getStackPointer(),
+                    Integer.toString(architecture.getStackSlotSize()));
+        }
+    }
+
+    /**
+     * target / 2^k rounds toward zero by adding 2^k - 1 to negative dividends
+     * before the arithmetic shift; target % 2^k subtracts the dividend rounded
+     * the same way. The bias is built in edx, or eax when target is edx, and
+     * saved around its use if it holds a live value.
+     */
+    private void divideByPowerOfTwo(Opcode operator, String target, ConstantDivisor divisor,
+                                    CompilationContext context) {
+        int k = divisor.getPowerOfTwo();
+        if (k == 0) {
+            if (operator == Opcode.MOD) {
+                emit(context, Mnemonic.MOV, target, "0");
+            } else if (divisor.isNegative()) {
+                emit(context, Mnemonic.NEG, target);
+            }
+            return;
+        }
+        TargetArchitecture architecture = context.getTarget();
+        String bias = architecture.getRemainderRegister(context.isWide());
+        if (target.equals(bias)) {
+            bias = architecture.getAccumulator(context.isWide());
+        }
+        int width = divisor.getWidth();
+        boolean saveBias = context.getRegisterManager().isInUse(bias);
+        if (saveBias) {
+            emit(context, Mnemonic.PUSH, architecture.getFullRegister(bias));
+        }
+        emit(context, Mnemonic.MOV, bias, target);
+        if (k > 1) {
+            emit(context, Mnemonic.SAR, bias, Integer.toString(width - 1));
+        }
+        emit(context, instruction(Mnemonic.SHR, bias, Integer.toString(width - k))
+                .withComment("2^" + k + " - 1 if negative"));
+        if (operator == Opcode.MOD) {
+            emit(context, Mnemonic.ADD, bias, target);
+            emit(context, Mnemonic.AND, bias, Long.toString(-(1L << k)));
+            emit(context, Mnemonic.SUB, target, bias);
+        } else {
+            emit(context, Mnemonic.ADD, target, bias);
+            emit(context, Mnemonic.SAR, target, Integer.toString(k));
+            if (divisor.isNegative()) {
+                emit(context, Mnemonic.NEG, target);
+            }
+        }
+        if (saveBias) {
+            emit(context, Mnemonic.POP, architecture.getFullRegister(bias));
+        }
+    }
+
+    /**
+     * target / d as the high half of target * magic, shifted, plus one for
+     * negative dividends; target % d as target - (target / |d|) * |d|. The
+     * one-operand imul writes edx:eax, so whichever of them holds a live
+     * value is preserved; when target is one of them the dividend is kept
+     * on the stack.
+     */
+    private void divideByMagic(Opcode operator, String target, ConstantDivisor divisor,
+                               CompilationContext context) {
+        TargetArchitecture architecture = context.getTarget();
+        boolean wide = context.isWide();
+        String accumulator = architecture.getAccumulator(wide);
+        String remainder = architecture.getRemainderRegister(wide);
+        RegisterManager registerManager = context.getRegisterManager();
+        boolean fixedTarget = target.equals(accumulator) || target.equals(remainder);
+        boolean saveEax = !target.equals(accumulator) && registerManager.isInUse(accumulator);
+        boolean saveEdx = !target.equals(remainder) && registerManager.isInUse(remainder);
+        int slot = architecture.getStackSlotSize();
+
+        String dividend = target;
+        if (fixedTarget) {
+            emit(context, instruction(Mnemonic.PUSH, architecture.getFullRegister(target)).withComment("dividend"));
+        }
+        if (saveEax) {
+            emit(context, Mnemonic.PUSH, architecture.getFullRegister(accumulator));
+        }
+        if (saveEdx) {
+            emit(context, Mnemonic.PUSH, architecture.getFullRegister(remainder));
+        }
+        if (fixedTarget) {
+            dividend = stackOperand(context, (saveEax || saveEdx) ? slot : 0);
+        }
+        emit(context, Mnemonic.MOV, accumulator, Long.toString(divisor.getMagic()));
+        emit(context, instruction(Mnemonic.IMUL, dividend).withComment("high half in " + remainder));
+        if (divisor.needsAdd()) {
+            emit(context, Mnemonic.ADD, remainder, dividend);
+        }
+        if (divisor.getShift() > 0) {
+            emit(context, Mnemonic.SAR, remainder, Integer.toString(divisor.getShift()));
+        }
+        emit(context, Mnemonic.MOV, accumulator, remainder);
+        emit(context, Mnemonic.SHR, accumulator, Integer.toString(divisor.getWidth() - 1));
+        emit(context, instruction(Mnemonic.ADD, remainder, accumulator).withComment("quotient by |divisor|"));
+
+        if (operator == Opcode.MOD) {
+            emit(context, Mnemonic.IMUL, remainder, remainder, Long.toString(Math.abs(divisor.getDivisor())));
+            if (!fixedTarget) {
+                emit(context, Mnemonic.SUB, target, remainder);
+            } else {
+                emit(context, Mnemonic.NEG, remainder);
+                emit(context, Mnemonic.ADD, remainder, dividend);
+                if (!target.equals(remainder)) {
+                    emit(context, Mnemonic.MOV, target, remainder);
+                }
+            }
+        } else {
+            if (divisor.isNegative()) {
+                emit(context, Mnemonic.NEG, remainder);
+            }
+            if (!target.equals(remainder)) {
+                emit(context, Mnemonic.MOV, target, remainder);
+            }
+        }
+
+        if (saveEdx) {
+            emit(context, Mnemonic.POP, architecture.getFullRegister(remainder));
+        }
+        if (saveEax) {
+            emit(context, Mnemonic.POP, architecture.getFullRegister(accumulator));
+        }
+        if (fixedTarget) {
+            emit(context, Mnemonic.ADD, architecture.getStackPointer(), Integer.toString(slot));
+        }
+    }
+
+    private static AssemblyInstruction signExtension(CompilationContext context) {
+        boolean wide = context.isWide();
+        String accumulator = context.getTarget().getAccumulator(wide);
+        return instruction(context.getTarget().getSignExtension(wide))
+                .withComment("sign extend " + accumulator + " to " + dividend(context), 20);
+    }
+
+    // e.g. "edx:eax"
+    private static String dividend(CompilationContext context) {
+        boolean wide = context.isWide();
+        return context.getTarget().getRemainderRegister(wide) + ":" + context.getTarget().getAccumulator(wide);
+    }
+
+    // Operand-sized stack slot at the given offset, e.g. "dword [esp + 4]"
+    private static String stackOperand(CompilationContext context, int offset) {
+        TargetArchitecture architecture = context.getTarget();
+        return architecture.getOperandSize(context.isWide()) + " [" + architecture.getStackPointer()
+                + (offset > 0 ? " + " + offset : "") + "]";
+    }
+
+    // A free register, or else a variable register saved on the stack until released
+    private String acquireScratch(Set<String> reserved, CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
+        String register = registerManager.allocateRegister();
+        if (register != null) {
+            return register;
+        }
+        for (String candidate : registerManager.getAssignedRegisters()) {
+            if (!reserved.contains(candidate) && !context.getBorrowedRegisters().contains(candidate)) {
+                emit(context, Mnemonic.PUSH, context.getTarget().getFullRegister(candidate));
+                context.getBorrowedRegisters().push(candidate);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // A scratch register outside eax and edx when one is free, since idiv overwrites both
+    private String acquireDivisorScratch(Set<String> reserved, CompilationContext context) {
+        TargetArchitecture architecture = context.getTarget();
+        String accumulator = architecture.getAccumulator(context.isWide());
+        String remainder = architecture.getRemainderRegister(context.isWide());
+        List<String> skipped = new ArrayList<>(2);
+        String scratch = acquireScratch(reserved, context);
+        while (scratch != null && (scratch.equals(accumulator) || scratch.equals(remainder))) {
+            String next = context.getRegisterManager().allocateRegister();
+            if (next == null) {
+                break;
+            }
+            skipped.add(scratch);
+            scratch = next;
+        }
+        for (String register : skipped) {
+            releaseScratch(register, context);
+        }
+        return scratch;
+    }
+
+    private void releaseScratch(String register, CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
+        if (register.equals(context.getBorrowedRegisters().peek())) {
+            context.getBorrowedRegisters().pop();
+            emit(context, Mnemonic.POP, context.getTarget().getFullRegister(register));
+        } else {
+            registerManager.releaseRegister(register);
+        }
+    }
+
+    private void generateReturn(TACInstruction instruction, CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
+        if (context.isExecutable()) {
+            // _start has no return address; the returned value becomes the exit status
+            comment(context, instruction.getOperand1() != null ? "return " + instruction.getOperand1() : "return");
+            emitExit(instruction.getOperand1() != null ? registerManager.formatOperand(instruction.getOperand1()) : "0",
+                    context);
+            return;
+        }
         if (instruction.getOperand1() != null) {
             String returnValue = registerManager.formatOperand(instruction.getOperand1());
-            assemblyCode.add("; return " + instruction.getOperand1());
-            assemblyCode.add("mov eax, " + returnValue + " ; prepare return value");
+            comment(context, "return " + instruction.getOperand1());
+            String accumulator = context.getTarget().getAccumulator(context.isWide());
+            if (!returnValue.equals(accumulator)) {
+                emit(context, instruction(Mnemonic.MOV, accumulator, returnValue).withComment("prepare return value"));
+            }
         } else {
-            assemblyCode.add("; return");
+            comment(context, "return");
         }
-        assemblyCode.add("ret                     ; return from function");
+        emitEpilogue(context);
+        emit(context, instruction(Mnemonic.RET).withComment("return from function", 24));
     }
 
-    private void generateComparison(TACInstruction instruction) {
+    private void generateComparison(TACInstruction instruction, CompilationContext context) {
+        RegisterManager registerManager = context.getRegisterManager();
         String operand1 = registerManager.formatOperand(instruction.getOperand1());
         String operand2 = registerManager.formatOperand(instruction.getOperand2());
-        String label = instruction.getResult(); // The label to jump to
-        String operation = instruction.getOperation();
+        String label = instruction.getTarget().getText();
 
-        assemblyCode.add("; if " + instruction.getOperand1() + " " + operation +
+        comment(context, "if " + instruction.getOperand1() + " " + instruction.getOperation() +
                 " " + instruction.getOperand2() + " goto " + label);
 
-        assemblyCode.add("cmp " + operand1 + ", " + operand2);
+        if (registerManager.isConstant(operand1)
+                || registerManager.isMemoryReference(operand1) && registerManager.isMemoryReference(operand2)) {
+            // cmp needs a register or memory first operand, and at most one memory operand
+            Set<String> reserved = new HashSet<>();
+            reserved.add(operand2);
+            String scratch = acquireScratch(reserved, context);
+            emit(context, Mnemonic.MOV, scratch, operand1);
+            emit(context, Mnemonic.CMP, scratch, operand2);
+            releaseScratch(scratch, context);
+        } else {
+            emit(context, Mnemonic.CMP, operand1, operand2);
+        }
+        emit(context, CONDITIONAL_JUMPS.get(instruction.getOpcode()), label);
+    }
 
-        // Generate appropriate jump instruction
-        switch (operation) {
-            case ">":
-                assemblyCode.add("jg " + label);
-                break;
-            case "<":
-                assemblyCode.add("jl " + label);
-                break;
-            case ">=":
-                assemblyCode.add("jge " + label);
-                break;
-            case "<=":
-                assemblyCode.add("jle " + label);
-                break;
-            case "==":
-                assemblyCode.add("je " + label);
-                break;
-            case "!=":
-                assemblyCode.add("jne " + label);
-                break;
-            default:
-                assemblyCode.add("jmp " + label + " ; unconditional jump");
+    /**
+     * call f, a, b: saves the caller-saved registers that stay live across
+     * the call, passes the arguments on the stack right to left (cdecl) or
+     * in the argument registers first (System V), keeps the stack 16-byte
+     * aligned at the call and drops the stacked arguments afterwards. The
+     * whole-program allocators already keep live values out of the
+     * clobbered registers, so the saves only show up when allocating while
+     * streaming.
+     */
+    private void generateCall(TACInstruction instruction, CompilationContext context) {
+        TargetArchitecture architecture = context.getTarget();
+        boolean wide = context.isWide();
+        RegisterManager registerManager = context.getRegisterManager();
+        int slot = architecture.getStackSlotSize();
+        comment(context, instruction.toString());
+
+        List<String> saved = new ArrayList<>();
+        for (String register : architecture.getCallerSavedRegisters(wide)) {
+            if (registerManager.isLiveAfter(register)) {
+                emit(context, instruction(Mnemonic.PUSH, architecture.getFullRegister(register))
+                        .withComment("caller-saved"));
+                saved.add(register);
+            }
+        }
+
+        List<String> arguments = new ArrayList<>();
+        for (Operand argument : instruction.getArguments()) {
+            arguments.add(registerManager.formatOperand(argument));
+        }
+        List<String> argumentRegisters = architecture.getArgumentRegisters(wide);
+        int inRegisters = Math.min(arguments.size(), argumentRegisters.size());
+        int stacked = (arguments.size() - inRegisters) * slot;
+
+        int padding = Math.floorMod(-(context.getStackDepth() + stacked), CALL_ALIGNMENT);
+        if (padding > 0) {
+            emit(context, instruction(Mnemonic.SUB, architecture.getStackPointer(), Integer.toString(padding))
+                    .withComment("align stack"));
+        }
+        for (int i = arguments.size() - 1; i >= inRegisters; i--) {
+            pushArgument(arguments.get(i), context);
+        }
+        passInRegisters(arguments.subList(0, inRegisters), argumentRegisters, context);
+
+        emit(context, Mnemonic.CALL, instruction.getOperand1().getText());
+        if (padding + stacked > 0) {
+            emit(context, instruction(Mnemonic.ADD, architecture.getStackPointer(),
+                    Integer.toString(padding + stacked)).withComment(stacked > 0 ? "drop arguments" : "align stack"));
+        }
+        for (int i = saved.size() - 1; i >= 0; i--) {
+            emit(context, Mnemonic.POP, architecture.getFullRegister(saved.get(i)));
+        }
+    }
+
+    // Pushes a whole stack word; on x86-64 that reads a qword even for a 32-bit variable
+    private static void pushArgument(String argument, CompilationContext context) {
+        TargetArchitecture architecture = context.getTarget();
+        RegisterManager registerManager = context.getRegisterManager();
+        if (registerManager.isRegister(argument)) {
+            emit(context, Mnemonic.PUSH, architecture.getFullRegister(argument));
+        } else if (registerManager.isMemoryReference(argument)) {
+            emit(context, Mnemonic.PUSH, architecture.getOperandSize(architecture == TargetArchitecture.X86_64)
+                    + " " + argument);
+        } else {
+            emit(context, Mnemonic.PUSH, argument);
+        }
+    }
+
+    /**
+     * Moves the arguments into their registers in order. When a later
+     * argument sits in an earlier argument register, the register sources
+     * go through the stack instead so none is overwritten before it is read.
+     */
+    private static void passInRegisters(List<String> arguments, List<String> registers,
+                                        CompilationContext context) {
+        TargetArchitecture architecture = context.getTarget();
+        RegisterManager registerManager = context.getRegisterManager();
+        boolean overlapping = false;
+        for (int i = 0; i < arguments.size() && !overlapping; i++) {
+            String target = architecture.getFullRegister(registers.get(i));
+            for (int j = i + 1; j < arguments.size(); j++) {
+                String source = arguments.get(j);
+                if (registerManager.isRegister(source) && architecture.getFullRegister(source).equals(target)) {
+                    overlapping = true;
+                }
+            }
+        }
+
+        List<Integer> pushed = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); i++) {
+            if (overlapping && registerManager.isRegister(arguments.get(i))) {
+                emit(context, Mnemonic.PUSH, architecture.getFullRegister(arguments.get(i)));
+                pushed.add(i);
+            }
+        }
+        for (int i = 0; i < arguments.size(); i++) {
+            if (!pushed.contains(i) && !arguments.get(i).equals(registers.get(i))) {
+                emit(context, Mnemonic.MOV, registers.get(i), arguments.get(i));
+            }
+        }
+        for (int i = pushed.size() - 1; i >= 0; i--) {
+            emit(context, Mnemonic.POP, architecture.getFullRegister(registers.get(pushed.get(i))));
         }
     }
 
-    public void reset() {
-        assemblyCode.clear();
-        registerManager.reset();
+    private void generateJump(TACInstruction instruction, CompilationContext context) {
+        comment(context, "goto " + instruction.getTarget());
+        emit(context, Mnemonic.JMP, instruction.getTarget().getText());
     }
 }
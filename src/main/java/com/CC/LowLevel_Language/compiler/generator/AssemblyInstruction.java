@@ -1,70 +1,279 @@
 package com.CC.LowLevel_Language.compiler.generator;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 
+/**
+ * One line of generated assembly in structured form. Instructions carry a
+ * typed mnemonic and classified operands, so passes can inspect them without
+ * re-parsing text; the text itself is only produced when rendered.
+ */
 public class AssemblyInstruction {
+    public enum Kind {
+        INSTRUCTION,
+        LABEL,
+        COMMENT,
+        DIRECTIVE,
+        BLANK
+    }
+
+    private Kind kind;
+    private Mnemonic opcode;
     private String mnemonic;
-    private List<String> operands;
+    private List<AssemblyOperand> operands;
     private String label;
     private String comment;
+    private int commentColumn;
+    // Source or rendered text, dropped whenever a field changes
+    private String text;
 
     public AssemblyInstruction() {
+        this.kind = Kind.INSTRUCTION;
         this.operands = new ArrayList<>();
     }
 
-    public AssemblyInstruction(String mnemonic, List<String> operands) {
+    public AssemblyInstruction(Mnemonic opcode, AssemblyOperand... operands) {
+        this(opcode.getText(), new ArrayList<>(Arrays.asList(operands)));
+    }
+
+    public AssemblyInstruction(String mnemonic, List<AssemblyOperand> operands) {
+        this.kind = Kind.INSTRUCTION;
         this.mnemonic = mnemonic;
+        this.opcode = Mnemonic.fromText(mnemonic);
         this.operands = operands != null ? operands : new ArrayList<>();
     }
 
-    public AssemblyInstruction(String mnemonic, List<String> operands, String label) {
-        this(mnemonic, operands);
-        this.label = label;
+    public static AssemblyInstruction label(String name) {
+        AssemblyInstruction line = new AssemblyInstruction();
+        line.kind = Kind.LABEL;
+        line.label = name;
+        return line;
+    }
+
+    public static AssemblyInstruction comment(String text) {
+        AssemblyInstruction line = new AssemblyInstruction();
+        line.kind = Kind.COMMENT;
+        line.comment = text;
+        return line;
+    }
+
+    // e.g. directive(".section", ".text")
+    public static AssemblyInstruction directive(String name, String... arguments) {
+        AssemblyInstruction line = new AssemblyInstruction();
+        line.kind = Kind.DIRECTIVE;
+        line.mnemonic = name;
+        for (String argument : arguments) {
+            line.operands.add(AssemblyOperand.symbol(argument));
+        }
+        return line;
+    }
+
+    public static AssemblyInstruction blank() {
+        AssemblyInstruction line = new AssemblyInstruction();
+        line.kind = Kind.BLANK;
+        return line;
+    }
+
+    /**
+     * Parses one line of assembly text. The line is kept as written, so
+     * rendering an unmodified instruction returns exactly the input.
+     */
+    public static AssemblyInstruction parse(String line) {
+        String trimmed = line.trim();
+        AssemblyInstruction instruction;
+        if (trimmed.isEmpty()) {
+            instruction = blank();
+        } else if (trimmed.startsWith(";")) {
+            instruction = comment(trimmed.substring(1).trim());
+        } else if (trimmed.startsWith(".")) {
+            instruction = parseBody(trimmed);
+            instruction.kind = Kind.DIRECTIVE;
+            instruction.opcode = null;
+        } else if (trimmed.endsWith(":")) {
+            instruction = label(trimmed.substring(0, trimmed.length() - 1));
+        } else {
+            instruction = parseBody(trimmed);
+        }
+        instruction.text = line;
+        return instruction;
+    }
+
+    private static AssemblyInstruction parseBody(String trimmed) {
+        String body = trimmed;
+        String comment = null;
+        int commentStart = trimmed.indexOf(';');
+        if (commentStart >= 0) {
+            body = trimmed.substring(0, commentStart).trim();
+            comment = trimmed.substring(commentStart + 1).trim();
+        }
+
+        int space = 0;
+        while (space < body.length() && !Character.isWhitespace(body.charAt(space))) {
+            space++;
+        }
+        List<AssemblyOperand> operands = new ArrayList<>();
+        for (String operand : body.substring(space).split(",")) {
+            String text = operand.trim();
+            if (!text.isEmpty()) {
+                operands.add(AssemblyOperand.parse(text));
+            }
+        }
+
+        AssemblyInstruction instruction = new AssemblyInstruction(body.substring(0, space), operands);
+        if (comment != null) {
+            instruction.comment = comment;
+            instruction.commentColumn = commentStart;
+        }
+        return instruction;
+    }
+
+    /**
+     * Adds a trailing comment, padded so that the ';' starts at the given
+     * column (or one space after the instruction when it is longer).
+     */
+    public AssemblyInstruction withComment(String comment, int column) {
+        this.comment = comment;
+        this.commentColumn = column;
+        this.text = null;
+        return this;
+    }
+
+    public AssemblyInstruction withComment(String comment) {
+        return withComment(comment, 0);
     }
 
     // Getters and Setters
+    public Kind getKind() { return kind; }
+
+    public boolean isInstruction() { return kind == Kind.INSTRUCTION; }
+
+    // Typed mnemonic; null for directives and mnemonics the compiler does not know
+    public Mnemonic getOpcode() { return opcode; }
+
+    public boolean is(Mnemonic mnemonic) { return opcode == mnemonic; }
+
     public String getMnemonic() { return mnemonic; }
-    public void setMnemonic(String mnemonic) { this.mnemonic = mnemonic; }
+    public void setMnemonic(String mnemonic) {
+        this.mnemonic = mnemonic;
+        this.opcode = kind == Kind.INSTRUCTION ? Mnemonic.fromText(mnemonic) : null;
+        this.text = null;
+    }
+
+    public List<AssemblyOperand> getOperands() { return operands; }
+    public void setOperands(List<AssemblyOperand> operands) {
+        this.operands = operands;
+        this.text = null;
+    }
 
-    public List<String> getOperands() { return operands; }
-    public void setOperands(List<String> operands) { this.operands = operands; }
+    public int getOperandCount() { return operands.size(); }
+    public AssemblyOperand getOperand(int index) { return operands.get(index); }
 
     public String getLabel() { return label; }
-    public void setLabel(String label) { this.label = label; }
+    public void setLabel(String label) {
+        this.label = label;
+        this.text = null;
+    }
 
     public String getComment() { return comment; }
-    public void setComment(String comment) { this.comment = comment; }
+    public void setComment(String comment) {
+        this.comment = comment;
+        this.text = null;
+    }
 
-    public void addOperand(String operand) {
+    public int getCommentColumn() { return commentColumn; }
+
+    public void addOperand(AssemblyOperand operand) {
         if (this.operands == null) {
             this.operands = new ArrayList<>();
         }
         this.operands.add(operand);
+        this.text = null;
     }
 
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-
-        // Add label if present
-        if (label != null && !label.isEmpty()) {
-            sb.append(label).append(":\n");
+    /**
+     * Writes the line without a trailing newline. Rendering straight into the
+     * sink avoids building a String per line.
+     */
+    public void appendTo(Appendable out) throws IOException {
+        if (text != null) {
+            out.append(text);
+            return;
         }
 
-        // Add instruction with proper indentation
-        sb.append("\t").append(mnemonic);
+        switch (kind) {
+            case BLANK:
+                return;
+            case LABEL:
+                out.append(label).append(':');
+                return;
+            case COMMENT:
+                out.append("; ").append(comment);
+                return;
+            default:
+                break;
+        }
 
-        // Add operands
-        if (!operands.isEmpty()) {
-            sb.append(" ").append(String.join(", ", operands));
+        int length = mnemonic.length();
+        out.append(mnemonic);
+        for (int i = 0; i < operands.size(); i++) {
+            String operand = operands.get(i).getText();
+            out.append(i == 0 ? " " : ", ").append(operand);
+            length += operand.length() + (i == 0 ? 1 : 2);
         }
+        if (comment != null) {
+            do {
+                out.append(' ');
+            } while (++length < commentColumn);
+            out.append("; ").append(comment);
+        }
+    }
 
-        // Add comment if present
-        if (comment != null && !comment.isEmpty()) {
-            sb.append("\t\t; ").append(comment);
+    // Renders every line followed by a newline
+    public static String render(List<AssemblyInstruction> instructions) {
+        StringBuilder code = new StringBuilder(instructions.size() * 24);
+        for (AssemblyInstruction instruction : instructions) {
+            try {
+                instruction.appendTo(code);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            code.append('\n');
         }
+        return code.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof AssemblyInstruction)) return false;
+        AssemblyInstruction instruction = (AssemblyInstruction) other;
+        return kind == instruction.kind
+                && Objects.equals(mnemonic, instruction.mnemonic)
+                && Objects.equals(operands, instruction.operands)
+                && Objects.equals(label, instruction.label)
+                && Objects.equals(comment, instruction.comment);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, mnemonic, operands, label, comment);
+    }
 
-        return sb.toString();
+    @Override
+    public String toString() {
+        if (text == null) {
+            StringBuilder line = new StringBuilder();
+            try {
+                appendTo(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            text = line.toString();
+        }
+        return text;
     }
 }
@@ -0,0 +1,142 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One operand of an assembly instruction, classified once when created:
+ * a register, an immediate with its value, a memory reference, or a symbol
+ * such as a jump target.
+ */
+public final class AssemblyOperand {
+    public enum Kind {
+        REGISTER,
+        IMMEDIATE,
+        MEMORY,
+        SYMBOL
+    }
+
+    private static final Set<String> REGISTER_NAMES = new HashSet<>(Arrays.asList(
+            "eax", "ebx", "ecx", "edx", "esi", "edi", "ebp", "esp",
+            "ax", "bx", "cx", "dx", "si", "di", "bp", "sp",
+            "al", "ah", "bl", "bh", "cl", "ch", "dl", "dh",
+            "rax", "rbx", "rcx", "rdx", "rsi", "rdi", "rbp", "rsp",
+            "sil", "dil", "bpl", "spl"));
+
+    static {
+        // x86-64 numbered registers and their 32-, 16- and 8-bit views
+        for (int i = 8; i <= 15; i++) {
+            REGISTER_NAMES.addAll(Arrays.asList("r" + i, "r" + i + "d", "r" + i + "w", "r" + i + "b"));
+        }
+    }
+
+    private final Kind kind;
+    private final String text;
+    private final long value;
+
+    private AssemblyOperand(Kind kind, String text, long value) {
+        this.kind = kind;
+        this.text = text;
+        this.value = value;
+    }
+
+    public static AssemblyOperand register(String name) {
+        return new AssemblyOperand(Kind.REGISTER, name, 0);
+    }
+
+    public static AssemblyOperand immediate(long value) {
+        return new AssemblyOperand(Kind.IMMEDIATE, Long.toString(value), value);
+    }
+
+    public static AssemblyOperand memory(String text) {
+        return new AssemblyOperand(Kind.MEMORY, text, 0);
+    }
+
+    public static AssemblyOperand symbol(String name) {
+        return new AssemblyOperand(Kind.SYMBOL, name, 0);
+    }
+
+    /**
+     * Classifies operand text as written in assembly source, e.g. "eax",
+     * "-3", "0x80", "[x]" or "dword [esp + 4]".
+     */
+    public static AssemblyOperand parse(String text) {
+        if (text.indexOf('[') >= 0) {
+            return memory(text);
+        }
+        if (REGISTER_NAMES.contains(text)) {
+            return register(text);
+        }
+        Long literal = parseLiteral(text);
+        if (literal != null) {
+            return new AssemblyOperand(Kind.IMMEDIATE, text, literal);
+        }
+        return symbol(text);
+    }
+
+    public static boolean isRegisterName(String name) {
+        return REGISTER_NAMES.contains(name);
+    }
+
+    public Kind getKind() { return kind; }
+    public String getText() { return text; }
+
+    // Numeric value of an immediate; 0 for every other kind
+    public long getValue() { return value; }
+
+    public boolean isRegister() { return kind == Kind.REGISTER; }
+    public boolean isImmediate() { return kind == Kind.IMMEDIATE; }
+    public boolean isMemory() { return kind == Kind.MEMORY; }
+
+    // Decimal (optionally negative) or 0x-prefixed hex within the range of a long
+    private static Long parseLiteral(String text) {
+        int length = text.length();
+        if (length > 2 && text.charAt(0) == '0' && (text.charAt(1) == 'x' || text.charAt(1) == 'X')) {
+            if (length > 18) return null;
+            long value = 0;
+            for (int i = 2; i < length; i++) {
+                int digit = Character.digit(text.charAt(i), 16);
+                if (digit < 0) return null;
+                value = value * 16 + digit;
+            }
+            return value;
+        }
+
+        int start = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+        if (start == length || length - start > 19) return null;
+        if (length - start == 19) {
+            // May overflow; 64-bit magic multipliers are this long
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return null;
+            value = value * 10 + (c - '0');
+        }
+        return start == 1 ? -value : value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof AssemblyOperand)) return false;
+        AssemblyOperand operand = (AssemblyOperand) other;
+        return kind == operand.kind && text.equals(operand.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * kind.hashCode() + text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
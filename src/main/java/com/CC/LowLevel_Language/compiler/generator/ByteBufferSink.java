@@ -0,0 +1,40 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Appendable that writes assembly text as ASCII straight into a ByteBuffer,
+ * such as a mapped output file or a reusable direct buffer, without building
+ * intermediate strings. Characters outside ASCII are written as '?'. Throws
+ * BufferOverflowException once the buffer is full.
+ */
+public class ByteBufferSink implements Appendable {
+    private final ByteBuffer buffer;
+
+    public ByteBufferSink(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public ByteBufferSink append(CharSequence text) {
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public ByteBufferSink append(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBufferSink append(char c) {
+        buffer.put(c < 0x80 ? (byte) c : (byte) '?');
+        return this;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+}
@@ -0,0 +1,119 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import com.CC.LowLevel_Language.compiler.analysis.RegisterManager;
+import com.CC.LowLevel_Language.compiler.analysis.SymbolTable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Mutable state of a single compilation. The pipeline stages are shared and
+ * hold no per-request state; everything that changes while code is being
+ * generated lives here instead. A context is cheap to create and must only
+ * be used by one thread at a time.
+ */
+public class CompilationContext {
+    private final CompilationOptions options;
+    private final TargetArchitecture target;
+    // Whether operations use the 64-bit register views
+    private final boolean wide;
+    private final RegisterAllocationStrategy allocationStrategy;
+    private final RegisterManager registerManager;
+    // Live ranges of the variables, filled by the register allocator
+    private final SymbolTable symbolTable;
+    // Variable registers borrowed as scratch while evaluating an expression, innermost first
+    private final Deque<String> borrowedRegisters;
+    // Whether the code runs as a whole program, where return means exit
+    private boolean executable;
+    // Receives each generated instruction as it is produced
+    private Consumer<AssemblyInstruction> sink;
+    private int lineCount;
+    // Bytes reserved below the frame pointer for spilled variables; 0 when there is no frame
+    private int frameSize;
+    // Bytes pushed by the generated code so far, net of pops
+    private int stackDepth;
+    // Registers saved on the stack while an expression borrows them, with the depth just after the push
+    private final Map<String, Integer> parkedRegisters;
+
+    public CompilationContext() {
+        this(new CompilationOptions());
+    }
+
+    public CompilationContext(CompilationOptions options) {
+        this.options = options;
+        this.target = TargetArchitecture.fromName(options.getTargetArchitecture());
+        this.wide = target == TargetArchitecture.X86_64 && options.isUse64BitOperations();
+        this.allocationStrategy = RegisterAllocationStrategy.fromName(options.getRegisterAllocationStrategy());
+        this.registerManager = new RegisterManager(target.getRegisters(wide));
+        this.symbolTable = new SymbolTable();
+        this.borrowedRegisters = new ArrayDeque<>();
+        this.parkedRegisters = new HashMap<>();
+    }
+
+    public CompilationOptions getOptions() { return options; }
+    public TargetArchitecture getTarget() { return target; }
+    public boolean isWide() { return wide; }
+    public RegisterAllocationStrategy getAllocationStrategy() { return allocationStrategy; }
+    public RegisterManager getRegisterManager() { return registerManager; }
+    public SymbolTable getSymbolTable() { return symbolTable; }
+
+    public boolean isExecutable() { return executable; }
+
+    /**
+     * Marks the code as a standalone executable entered at _start, which has
+     * no caller to return to: a return then exits with the returned value
+     * as the status.
+     */
+    public void setExecutable(boolean executable) { this.executable = executable; }
+
+    Deque<String> getBorrowedRegisters() { return borrowedRegisters; }
+
+    Map<String, Integer> getParkedRegisters() { return parkedRegisters; }
+
+    int getStackDepth() { return stackDepth; }
+
+    public int getLineCount() { return lineCount; }
+
+    public int getFrameSize() { return frameSize; }
+    void setFrameSize(int frameSize) { this.frameSize = frameSize; }
+
+    // Starts a generate run that sends its output to sink
+    void begin(Consumer<AssemblyInstruction> sink) {
+        this.sink = sink;
+        this.lineCount = 0;
+        this.frameSize = 0;
+        this.stackDepth = 0;
+        borrowedRegisters.clear();
+        parkedRegisters.clear();
+        registerManager.reset();
+        symbolTable.clear();
+    }
+
+    void end() {
+        this.sink = null;
+    }
+
+    void emit(AssemblyInstruction instruction) {
+        trackStack(instruction);
+        sink.accept(instruction);
+        lineCount++;
+    }
+
+    // Follows push, pop and immediate adjustments of the stack pointer, so parked values stay addressable
+    private void trackStack(AssemblyInstruction instruction) {
+        if (instruction.is(Mnemonic.PUSH)) {
+            stackDepth += target.getStackSlotSize();
+        } else if (instruction.is(Mnemonic.POP)) {
+            stackDepth -= target.getStackSlotSize();
+        } else if ((instruction.is(Mnemonic.ADD) || instruction.is(Mnemonic.SUB))
+                && instruction.getOperandCount() == 2
+                && instruction.getOperand(0).getText().equals(target.getStackPointer())
+                && instruction.getOperand(1).isImmediate()) {
+            long bytes = instruction.getOperand(1).getValue();
+            stackDepth += instruction.is(Mnemonic.SUB) ? bytes : -bytes;
+        }
+    }
+}
@@ -4,6 +4,8 @@ package com.CC.LowLevel_Language.compiler.generator;
 public class CompilationOptions {
     private String registerAllocationStrategy;
     private String targetArchitecture;
+    // Only honoured on x86-64, where it selects the 64-bit register views
+    private boolean use64BitOperations;
 
     public String getRegisterAllocationStrategy() { return registerAllocationStrategy; }
     public void setRegisterAllocationStrategy(String strategy) {
@@ -12,5 +14,10 @@ public class CompilationOptions {
 
     public String getTargetArchitecture() { return targetArchitecture; }
     public void setTargetArchitecture(String arch) { this.targetArchitecture = arch; }
+
+    public boolean isUse64BitOperations() { return use64BitOperations; }
+    public void setUse64BitOperations(boolean use64BitOperations) {
+        this.use64BitOperations = use64BitOperations;
+    }
 }
 
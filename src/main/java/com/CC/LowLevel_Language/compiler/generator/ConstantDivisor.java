@@ -0,0 +1,109 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import java.math.BigInteger;
+
+/**
+ * A compile-time divisor for signed division replaced by cheaper code.
+ * Powers of two become shifts that round toward zero. Any other divisor
+ * becomes a multiply by a magic number that keeps the high half of the
+ * product, followed by a shift (Hacker's Delight, chapter 10). The quotient
+ * is computed for |d| and negated for negative divisors.
+ */
+final class ConstantDivisor {
+    private final long divisor;
+    private final int width;
+    // log2 |d| for powers of two, otherwise -1
+    private final int powerOfTwo;
+    private final long magic;
+    private final int shift;
+
+    private ConstantDivisor(long divisor, int width, int powerOfTwo, long magic, int shift) {
+        this.divisor = divisor;
+        this.width = width;
+        this.powerOfTwo = powerOfTwo;
+        this.magic = magic;
+        this.shift = shift;
+    }
+
+    /**
+     * The divisor for a constant operand, or null when idiv has to stay:
+     * the operand is not a constant, is 0, or cannot be negated or used as
+     * an immediate at the given operand width.
+     */
+    static ConstantDivisor of(String operand, boolean wide) {
+        long value;
+        try {
+            value = Long.parseLong(operand);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        int width = wide ? 64 : 32;
+        if (value == 0 || value < Integer.MIN_VALUE + 1 || value > Integer.MAX_VALUE) {
+            return null;
+        }
+        long absolute = Math.abs(value);
+        if (Long.bitCount(absolute) == 1) {
+            return new ConstantDivisor(value, width, Long.numberOfTrailingZeros(absolute), 0, 0);
+        }
+        return magic(value, width);
+    }
+
+    // Smallest magic multiplier and shift exact for every dividend of the width
+    private static ConstantDivisor magic(long value, int width) {
+        BigInteger ad = BigInteger.valueOf(Math.abs(value));
+        BigInteger two = BigInteger.valueOf(2);
+        BigInteger signBit = BigInteger.ONE.shiftLeft(width - 1);
+        BigInteger anc = signBit.subtract(BigInteger.ONE).subtract(signBit.mod(ad));
+        BigInteger q1 = signBit.divide(anc);
+        BigInteger r1 = signBit.subtract(q1.multiply(anc));
+        BigInteger q2 = signBit.divide(ad);
+        BigInteger r2 = signBit.subtract(q2.multiply(ad));
+        int p = width - 1;
+        BigInteger delta;
+        do {
+            p++;
+            q1 = q1.multiply(two);
+            r1 = r1.multiply(two);
+            if (r1.compareTo(anc) >= 0) {
+                q1 = q1.add(BigInteger.ONE);
+                r1 = r1.subtract(anc);
+            }
+            q2 = q2.multiply(two);
+            r2 = r2.multiply(two);
+            if (r2.compareTo(ad) >= 0) {
+                q2 = q2.add(BigInteger.ONE);
+                r2 = r2.subtract(ad);
+            }
+            delta = ad.subtract(r2);
+        } while (q1.compareTo(delta) < 0 || (q1.equals(delta) && r1.signum() == 0));
+
+        // The multiplier as the signed value of the operand width
+        long magic = q2.add(BigInteger.ONE).longValue();
+        if (width == 32) {
+            magic = (int) magic;
+        }
+        return new ConstantDivisor(value, width, -1, magic, p - width);
+    }
+
+    long getDivisor() { return divisor; }
+
+    boolean isNegative() { return divisor < 0; }
+
+    // Operand width in bits
+    int getWidth() { return width; }
+
+    boolean isPowerOfTwo() { return powerOfTwo >= 0; }
+
+    int getPowerOfTwo() { return powerOfTwo; }
+
+    long getMagic() { return magic; }
+
+    // Arithmetic shift applied to the high half of the product
+    int getShift() { return shift; }
+
+    /**
+     * Whether the high half of the product needs the dividend added back,
+     * because the magic number is too large to be positive at this width.
+     */
+    boolean needsAdd() { return magic < 0; }
+}
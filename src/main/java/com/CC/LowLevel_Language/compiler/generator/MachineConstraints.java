@@ -0,0 +1,121 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import com.CC.LowLevel_Language.compiler.analysis.RegisterConstraint;
+import com.CC.LowLevel_Language.compiler.analysis.RegisterConstraints;
+import com.CC.LowLevel_Language.compiler.parser.Expression;
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fixed registers of the code the generator emits for a target. idiv takes
+ * its dividend in edx:eax and leaves the quotient in eax and the remainder in
+ * edx; division by a constant uses both for the multiply-high sequence, or
+ * edx alone for the rounding bias of a power of two. A call may overwrite
+ * every caller-saved register and returns in eax, and a returned value is
+ * moved to eax.
+ */
+final class MachineConstraints implements RegisterConstraints {
+    private static final int ACCUMULATOR = 1;
+    private static final int REMAINDER = 2;
+
+    private final boolean wide;
+    private final String accumulator;
+    private final String remainder;
+    // Division constraints by clobber bits, then by result register: none, accumulator, remainder
+    private final RegisterConstraint[][] divisions = new RegisterConstraint[4][3];
+    private final RegisterConstraint call;
+    private final RegisterConstraint returnValue;
+
+    MachineConstraints(TargetArchitecture target, boolean wide) {
+        this.wide = wide;
+        this.accumulator = target.getAccumulator(wide);
+        this.remainder = target.getRemainderRegister(wide);
+        for (int clobbers = 0; clobbers < 4; clobbers++) {
+            List<String> registers = new ArrayList<>();
+            if ((clobbers & ACCUMULATOR) != 0) registers.add(accumulator);
+            if ((clobbers & REMAINDER) != 0) registers.add(remainder);
+            divisions[clobbers][0] = new RegisterConstraint(registers, null, null);
+            divisions[clobbers][1] = new RegisterConstraint(registers, accumulator, null);
+            divisions[clobbers][2] = new RegisterConstraint(registers, remainder, null);
+        }
+        this.call = new RegisterConstraint(target.getCallerSavedRegisters(wide), accumulator, null);
+        this.returnValue = new RegisterConstraint(Collections.emptyList(), null, accumulator);
+    }
+
+    @Override
+    public RegisterConstraint of(TACInstruction instruction) {
+        Opcode opcode = instruction.getOpcode();
+        switch (opcode) {
+            case DIV:
+            case MOD:
+                return division(opcode, instruction.getOperand2(), clobbers(opcode, instruction.getOperand2()));
+            case EXPR:
+                Expression root = instruction.getExpression();
+                int clobbers = clobbers(root);
+                if (clobbers == 0) {
+                    return null;
+                }
+                boolean rootDivision = root.getOperator() == Opcode.DIV || root.getOperator() == Opcode.MOD;
+                if (!rootDivision) {
+                    return divisions[clobbers][0];
+                }
+                return root.getRight().isLeaf()
+                        ? division(root.getOperator(), root.getRight().getOperand(), clobbers)
+                        : divisions[clobbers][root.getOperator() == Opcode.MOD ? 2 : 1];
+            case CALL:
+                return call;
+            case RETURN:
+                return instruction.getOperand1() != null ? returnValue : null;
+            default:
+                return null;
+        }
+    }
+
+    // Where the emitted sequence leaves the result: idiv in eax or edx, multiply-high quotients in edx
+    private RegisterConstraint division(Opcode operator, Operand divisor, int clobbers) {
+        ConstantDivisor constant = constant(divisor);
+        int result;
+        if (constant == null) {
+            result = operator == Opcode.MOD ? 2 : 1;
+        } else if (!constant.isPowerOfTwo() && operator == Opcode.DIV) {
+            result = 2;
+        } else {
+            result = 0;
+        }
+        return divisions[clobbers][result];
+    }
+
+    private int clobbers(Expression node) {
+        if (node.isLeaf()) {
+            return 0;
+        }
+        int clobbers = clobbers(node.getLeft()) | clobbers(node.getRight());
+        Opcode operator = node.getOperator();
+        if (operator == Opcode.DIV || operator == Opcode.MOD) {
+            clobbers |= node.getRight().isLeaf()
+                    ? clobbers(operator, node.getRight().getOperand())
+                    : ACCUMULATOR | REMAINDER;
+        }
+        return clobbers;
+    }
+
+    private int clobbers(Opcode operator, Operand divisor) {
+        ConstantDivisor constant = constant(divisor);
+        if (constant == null) {
+            return ACCUMULATOR | REMAINDER;
+        }
+        if (!constant.isPowerOfTwo()) {
+            return ACCUMULATOR | REMAINDER;
+        }
+        return constant.getPowerOfTwo() == 0 ? 0 : REMAINDER;
+    }
+
+    private ConstantDivisor constant(Operand divisor) {
+        return divisor.isVariable() ? null : ConstantDivisor.of(divisor.getText(), wide);
+    }
+}
@@ -0,0 +1,93 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * x86 mnemonics the compiler emits or recognizes, with the categories the
+ * optimizer and resource analyzer ask about.
+ */
+public enum Mnemonic {
+    MOV("mov", Category.DATA),
+    LEA("lea", Category.DATA),
+    ADD("add", Category.ARITHMETIC),
+    SUB("sub", Category.ARITHMETIC),
+    IMUL("imul", Category.ARITHMETIC),
+    IDIV("idiv", Category.ARITHMETIC),
+    MUL("mul", Category.ARITHMETIC),
+    DIV("div", Category.ARITHMETIC),
+    INC("inc", Category.ARITHMETIC),
+    DEC("dec", Category.ARITHMETIC),
+    NEG("neg", Category.ARITHMETIC),
+    SHL("shl", Category.ARITHMETIC),
+    SHR("shr", Category.ARITHMETIC),
+    SAL("sal", Category.ARITHMETIC),
+    SAR("sar", Category.ARITHMETIC),
+    AND("and", Category.LOGIC),
+    OR("or", Category.LOGIC),
+    XOR("xor", Category.LOGIC),
+    CDQ("cdq", Category.DATA),
+    CQO("cqo", Category.DATA),
+    CMP("cmp", Category.COMPARE),
+    TEST("test", Category.COMPARE),
+    JMP("jmp", Category.CONTROL),
+    JE("je", Category.CONTROL),
+    JNE("jne", Category.CONTROL),
+    JG("jg", Category.CONTROL),
+    JL("jl", Category.CONTROL),
+    JGE("jge", Category.CONTROL),
+    JLE("jle", Category.CONTROL),
+    CALL("call", Category.CONTROL),
+    RET("ret", Category.CONTROL),
+    PUSH("push", Category.STACK),
+    POP("pop", Category.STACK),
+    INT("int", Category.SYSTEM),
+    SYSCALL("syscall", Category.SYSTEM),
+    NOP("nop", Category.SYSTEM);
+
+    public enum Category {
+        DATA,
+        ARITHMETIC,
+        LOGIC,
+        COMPARE,
+        CONTROL,
+        STACK,
+        SYSTEM
+    }
+
+    private static final Map<String, Mnemonic> BY_TEXT = new HashMap<>();
+
+    static {
+        for (Mnemonic mnemonic : values()) {
+            BY_TEXT.put(mnemonic.text, mnemonic);
+        }
+    }
+
+    private final String text;
+    private final Category category;
+
+    Mnemonic(String text, Category category) {
+        this.text = text;
+        this.category = category;
+    }
+
+    public String getText() { return text; }
+    public Category getCategory() { return category; }
+
+    public boolean isArithmetic() { return category == Category.ARITHMETIC; }
+
+    // Jumps, calls and returns
+    public boolean isControlTransfer() { return category == Category.CONTROL; }
+
+    // Returns null for mnemonics this compiler does not know
+    public static Mnemonic fromText(String text) {
+        Mnemonic mnemonic = BY_TEXT.get(text);
+        return mnemonic != null ? mnemonic : BY_TEXT.get(text.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
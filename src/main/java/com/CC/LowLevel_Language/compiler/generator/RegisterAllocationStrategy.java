@@ -0,0 +1,48 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import java.util.Locale;
+
+/**
+ * How variables are mapped to registers, as named in CompilationOptions.
+ */
+public enum RegisterAllocationStrategy {
+    // Live intervals over the whole program; registers are reused once a variable is dead
+    LINEAR_SCAN("linear-scan"),
+    // Iterated register coalescing; slower, but fewer spills and copies
+    GRAPH_COLORING("graph-coloring"),
+    // First come, first served while streaming; a register is never freed
+    SEQUENTIAL("sequential");
+
+    private final String name;
+
+    RegisterAllocationStrategy(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Resolves a strategy name; null or blank means linear scan.
+     */
+    public static RegisterAllocationStrategy fromName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return LINEAR_SCAN;
+        }
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "linear-scan":
+            case "linear_scan":
+            case "linearscan":
+                return LINEAR_SCAN;
+            case "graph-coloring":
+            case "graph_coloring":
+            case "coloring":
+            case "irc":
+                return GRAPH_COLORING;
+            case "sequential":
+            case "simple":
+                return SEQUENTIAL;
+            default:
+                throw new IllegalArgumentException("Unknown register allocation strategy: " + name);
+        }
+    }
+
+    public String getName() { return name; }
+}
@@ -0,0 +1,175 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Machines the generator can target. Each one knows its allocatable
+ * registers, its stack word and how a program hands control back to the
+ * kernel.
+ */
+public enum TargetArchitecture {
+    X86("x86", 4, "esp", "ebp", "1", "ebx", Mnemonic.INT, "0x80"),
+    X86_64("x86-64", 8, "rsp", "rbp", "60", "rdi", Mnemonic.SYSCALL, null);
+
+    private static final List<String> REGISTERS_32 = Collections.unmodifiableList(Arrays.asList(
+            "eax", "ebx", "ecx", "edx", "esi", "edi"));
+    // rsp and rbp stay reserved for the stack frame
+    private static final List<String> REGISTERS_64 = Collections.unmodifiableList(Arrays.asList(
+            "rax", "rbx", "rcx", "rdx", "rsi", "rdi",
+            "r8", "r9", "r10", "r11", "r12", "r13", "r14", "r15"));
+    private static final List<String> REGISTERS_64_LOW = Collections.unmodifiableList(Arrays.asList(
+            "eax", "ebx", "ecx", "edx", "esi", "edi",
+            "r8d", "r9d", "r10d", "r11d", "r12d", "r13d", "r14d", "r15d"));
+    // System V argument registers, in argument order
+    private static final List<String> ARGUMENTS_64 = Collections.unmodifiableList(Arrays.asList(
+            "rdi", "rsi", "rdx", "rcx", "r8", "r9"));
+    private static final List<String> ARGUMENTS_64_LOW = Collections.unmodifiableList(Arrays.asList(
+            "edi", "esi", "edx", "ecx", "r8d", "r9d"));
+
+    private final String name;
+    private final int stackSlotSize;
+    private final String stackPointer;
+    private final String framePointer;
+    private final String exitSyscall;
+    // Full register holding the exit status argument of sys_exit
+    private final String exitStatus;
+    private final Mnemonic kernelCall;
+    private final String kernelCallOperand;
+
+    TargetArchitecture(String name, int stackSlotSize, String stackPointer, String framePointer,
+                       String exitSyscall, String exitStatus, Mnemonic kernelCall, String kernelCallOperand) {
+        this.name = name;
+        this.stackSlotSize = stackSlotSize;
+        this.stackPointer = stackPointer;
+        this.framePointer = framePointer;
+        this.exitSyscall = exitSyscall;
+        this.exitStatus = exitStatus;
+        this.kernelCall = kernelCall;
+        this.kernelCallOperand = kernelCallOperand;
+    }
+
+    /**
+     * Resolves an architecture name as given in CompilationOptions; null or
+     * blank means x86. Accepts the usual aliases such as "i386", "amd64" and
+     * "x86_64".
+     */
+    public static TargetArchitecture fromName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return X86;
+        }
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "x86":
+            case "i386":
+            case "ia32":
+                return X86;
+            case "x86-64":
+            case "x86_64":
+            case "x64":
+            case "amd64":
+                return X86_64;
+            default:
+                throw new IllegalArgumentException("Unknown target architecture: " + name);
+        }
+    }
+
+    public String getName() { return name; }
+
+    // Bytes moved by one push or pop
+    public int getStackSlotSize() { return stackSlotSize; }
+
+    public String getStackPointer() { return stackPointer; }
+
+    // Base of the stack frame that holds spilled variables; never allocated
+    public String getFramePointer() { return framePointer; }
+
+    /**
+     * Registers handed out to variables, in allocation order. On x86-64 the
+     * 32-bit views are used unless 64-bit operations were requested; 32-bit
+     * writes zero the upper half, so both views stay consistent.
+     */
+    public List<String> getRegisters(boolean wide) {
+        if (this == X86) {
+            return REGISTERS_32;
+        }
+        return wide ? REGISTERS_64 : REGISTERS_64_LOW;
+    }
+
+    /**
+     * Registers a called function may overwrite, among those from
+     * getRegisters: eax, ecx and edx on x86 (cdecl), and all but rbx and
+     * r12-r15 on x86-64 (System V).
+     */
+    public List<String> getCallerSavedRegisters(boolean wide) {
+        List<String> registers = getRegisters(wide);
+        if (this == X86) {
+            return Collections.unmodifiableList(Arrays.asList(registers.get(0), registers.get(2), registers.get(3)));
+        }
+        List<String> callerSaved = new ArrayList<>(registers);
+        callerSaved.remove(registers.get(1));
+        callerSaved.removeAll(registers.subList(10, 14));
+        return Collections.unmodifiableList(callerSaved);
+    }
+
+    /**
+     * Registers holding the first call arguments: none on x86, where cdecl
+     * passes everything on the stack, and rdi, rsi, rdx, rcx, r8 and r9 on
+     * x86-64. Further arguments are pushed right to left.
+     */
+    public List<String> getArgumentRegisters(boolean wide) {
+        if (this == X86) {
+            return Collections.emptyList();
+        }
+        return wide ? ARGUMENTS_64 : ARGUMENTS_64_LOW;
+    }
+
+    // Dividend and quotient register of idiv
+    public String getAccumulator(boolean wide) {
+        return wide ? "rax" : "eax";
+    }
+
+    // Upper dividend half and remainder register of idiv
+    public String getRemainderRegister(boolean wide) {
+        return wide ? "rdx" : "edx";
+    }
+
+    public Mnemonic getSignExtension(boolean wide) {
+        return wide ? Mnemonic.CQO : Mnemonic.CDQ;
+    }
+
+    public String getOperandSize(boolean wide) {
+        return wide ? "qword" : "dword";
+    }
+
+    /**
+     * Full-width name of a register, as push, pop and addresses need it.
+     * x86-64 has no 32-bit pushes, so 32-bit views are widened to the
+     * register holding them.
+     */
+    public String getFullRegister(String register) {
+        if (this == X86 || register.charAt(0) == 'r' && !register.endsWith("d")) {
+            return register;
+        }
+        if (register.charAt(0) == 'r') {
+            return register.substring(0, register.length() - 1);
+        }
+        return "r" + register.substring(1);
+    }
+
+    // sys_exit number loaded into eax before the kernel call
+    public String getExitSyscall() { return exitSyscall; }
+
+    // Register sys_exit takes the status in: ebx on x86, edi or rdi on x86-64
+    public String getExitStatusRegister(boolean wide) {
+        return this == X86_64 && !wide ? "edi" : exitStatus;
+    }
+
+    public AssemblyInstruction kernelCall() {
+        return kernelCallOperand != null
+                ? new AssemblyInstruction(kernelCall, AssemblyOperand.parse(kernelCallOperand))
+                : new AssemblyInstruction(kernelCall);
+    }
+}
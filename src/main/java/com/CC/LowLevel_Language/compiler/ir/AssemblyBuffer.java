@@ -0,0 +1,85 @@
+package com.CC.LowLevel_Language.compiler.ir;
+
+import com.CC.LowLevel_Language.compiler.generator.AssemblyInstruction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structured assembly in slot order, so optimizer passes can test kinds,
+ * mnemonics and operands directly and edit the program in place. Slots hold
+ * the instructions they were given; replacing a slot swaps in a new
+ * instruction rather than mutating the old one. Only the links are
+ * primitive; unlike TACBuffer the instructions stay objects, since their
+ * operands are free-form text.
+ */
+public class AssemblyBuffer extends SlotList {
+    private AssemblyInstruction[] instructions;
+
+    public AssemblyBuffer(int initialCapacity) {
+        super(initialCapacity);
+        this.instructions = new AssemblyInstruction[capacity()];
+    }
+
+    public AssemblyBuffer(List<AssemblyInstruction> code) {
+        this(code.size());
+        for (AssemblyInstruction instruction : code) {
+            append(instruction);
+        }
+    }
+
+    @Override
+    protected void growColumns(int capacity) {
+        instructions = Arrays.copyOf(instructions, capacity);
+    }
+
+    public int append(AssemblyInstruction instruction) {
+        int slot = newSlot();
+        instructions[slot] = instruction;
+        linkAfter(slot, last());
+        return slot;
+    }
+
+    public int insertAfter(int after, AssemblyInstruction instruction) {
+        int slot = newSlot();
+        instructions[slot] = instruction;
+        linkAfter(slot, after);
+        return slot;
+    }
+
+    public int insertBefore(int before, AssemblyInstruction instruction) {
+        int slot = newSlot();
+        instructions[slot] = instruction;
+        linkBefore(slot, before);
+        return slot;
+    }
+
+    public void replace(int slot, AssemblyInstruction instruction) {
+        instructions[slot] = instruction;
+    }
+
+    public AssemblyInstruction get(int slot) {
+        return instructions[slot];
+    }
+
+    public AssemblyInstruction.Kind getKind(int slot) {
+        return instructions[slot].getKind();
+    }
+
+    public List<AssemblyInstruction> toInstructions() {
+        List<AssemblyInstruction> code = new ArrayList<>(size());
+        for (int slot = first(); slot != NONE; slot = next(slot)) {
+            code.add(instructions[slot]);
+        }
+        return code;
+    }
+
+    public List<String> toLines() {
+        List<String> code = new ArrayList<>(size());
+        for (int slot = first(); slot != NONE; slot = next(slot)) {
+            code.add(instructions[slot].toString());
+        }
+        return code;
+    }
+}
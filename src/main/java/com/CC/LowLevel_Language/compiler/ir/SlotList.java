@@ -0,0 +1,109 @@
+package com.CC.LowLevel_Language.compiler.ir;
+
+import java.util.Arrays;
+
+/**
+ * Doubly linked list of instruction slots held in primitive arrays.
+ * Subclasses keep their per-instruction fields in parallel arrays indexed by
+ * slot. Removing a slot unlinks it and leaves a tombstone, so slot numbers
+ * held by a pass stay valid and both insertion and removal are O(1).
+ */
+public abstract class SlotList {
+    public static final int NONE = -1;
+
+    private int[] next;
+    private int[] prev;
+    private boolean[] removed;
+    private int head = NONE;
+    private int tail = NONE;
+    private int slotCount;
+    private int size;
+
+    protected SlotList(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.removed = new boolean[capacity];
+    }
+
+    /**
+     * Grows the subclass columns to the given capacity.
+     */
+    protected abstract void growColumns(int capacity);
+
+    // Reserves an unlinked slot; the caller fills its columns and links it
+    protected int newSlot() {
+        if (slotCount == next.length) {
+            int capacity = next.length * 2;
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            removed = Arrays.copyOf(removed, capacity);
+            growColumns(capacity);
+        }
+        return slotCount++;
+    }
+
+    protected int capacity() {
+        return next.length;
+    }
+
+    /**
+     * Links slot directly after the given one, or at the head when after is NONE.
+     */
+    protected void linkAfter(int slot, int after) {
+        int following = after == NONE ? head : next[after];
+        prev[slot] = after;
+        next[slot] = following;
+        if (after == NONE) head = slot; else next[after] = slot;
+        if (following == NONE) tail = slot; else prev[following] = slot;
+        size++;
+    }
+
+    protected void linkBefore(int slot, int before) {
+        linkAfter(slot, before == NONE ? tail : prev[before]);
+    }
+
+    public void remove(int slot) {
+        if (removed[slot]) return;
+        int before = prev[slot];
+        int after = next[slot];
+        if (before == NONE) head = after; else next[before] = after;
+        if (after == NONE) tail = before; else prev[after] = before;
+        removed[slot] = true;
+        size--;
+    }
+
+    public boolean isRemoved(int slot) {
+        return removed[slot];
+    }
+
+    public int first() {
+        return head;
+    }
+
+    public int last() {
+        return tail;
+    }
+
+    public int next(int slot) {
+        return next[slot];
+    }
+
+    public int prev(int slot) {
+        return prev[slot];
+    }
+
+    /**
+     * Number of live (linked) slots.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of slots ever allocated, including tombstones.
+     */
+    public int slotCount() {
+        return slotCount;
+    }
+}
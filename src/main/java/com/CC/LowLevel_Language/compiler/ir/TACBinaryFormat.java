@@ -0,0 +1,265 @@
+package com.CC.LowLevel_Language.compiler.ir;
+
+import com.CC.LowLevel_Language.compiler.parser.Expression;
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+import com.CC.LowLevel_Language.compiler.parser.OperandTable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary serialization of a parsed TAC program.
+ *
+ * Layout: the magic "TACB" and a version byte, then the string table
+ * (varint count, and per operand a flag byte - 1 for labels - followed by
+ * its varint-length UTF-8 text, in id order), then the instruction stream
+ * (varint count, and per instruction its opcode byte followed by the operand
+ * references that opcode kind uses, each as varint id + 1 with 0 for none).
+ * EXPR instructions follow their result with the expression tree in prefix
+ * order: an operator's opcode byte before its two operands, or LEAF and a
+ * reference for an operand.
+ *
+ * Re-interning the string table in order reproduces the original ids, so
+ * loading is a straight decode into a TACBuffer with no lexing.
+ */
+public final class TACBinaryFormat {
+    private static final byte[] MAGIC = {'T', 'A', 'C', 'B'};
+    private static final byte VERSION = 1;
+    private static final int LEAF = 0xFF;
+
+    private TACBinaryFormat() {}
+
+    public static void write(TACBuffer program, OutputStream output) throws IOException {
+        Encoder out = new Encoder(output);
+        out.bytes(MAGIC);
+        out.write(VERSION);
+
+        OperandTable operands = program.getOperandTable();
+        out.varint(operands.size());
+        for (int id = 0; id < operands.size(); id++) {
+            Operand operand = operands.get(id);
+            byte[] text = operand.getText().getBytes(StandardCharsets.UTF_8);
+            out.write(operand.getKind() == Operand.Kind.LABEL ? 1 : 0);
+            out.varint(text.length);
+            out.bytes(text);
+        }
+
+        out.varint(program.size());
+        for (int slot = program.first(); slot != SlotList.NONE; slot = program.next(slot)) {
+            Opcode opcode = program.getOpcode(slot);
+            out.write(opcode.getCode());
+            switch (opcode.getKind()) {
+                case BINARY:
+                    out.reference(program.getResult(slot));
+                    out.reference(program.getOperand1(slot));
+                    out.reference(program.getOperand2(slot));
+                    break;
+                case COPY:
+                    out.reference(program.getResult(slot));
+                    out.reference(program.getOperand1(slot));
+                    break;
+                case BRANCH:
+                    out.reference(program.getOperand1(slot));
+                    out.reference(program.getOperand2(slot));
+                    out.reference(program.getResult(slot));
+                    break;
+                case CALL:
+                    out.reference(program.getOperand1(slot));
+                    out.varint(program.getArgumentCount(slot));
+                    for (int i = 0; i < program.getArgumentCount(slot); i++) {
+                        out.reference(program.getArgument(slot, i));
+                    }
+                    break;
+                case RETURN:
+                    out.reference(program.getOperand1(slot));
+                    break;
+                case EXPRESSION:
+                    out.reference(program.getResult(slot));
+                    out.expression(program.getExpression(slot));
+                    break;
+                default:
+                    // Labels and jumps only name a label
+                    out.reference(program.getResult(slot));
+                    break;
+            }
+        }
+        out.flush();
+    }
+
+    public static TACBuffer read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static TACBuffer read(ByteBuffer input) throws IOException {
+        try {
+            for (byte expected : MAGIC) {
+                if (input.get() != expected) {
+                    throw new IOException("Not a binary TAC program");
+                }
+            }
+            byte version = input.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary TAC version: " + version);
+            }
+
+            OperandTable operands = new OperandTable();
+            int operandCount = varint(input);
+            byte[] text = new byte[64];
+            for (int id = 0; id < operandCount; id++) {
+                boolean label = input.get() == 1;
+                int length = varint(input);
+                if (length > text.length) {
+                    text = new byte[Math.max(length, text.length * 2)];
+                }
+                input.get(text, 0, length);
+                String name = new String(text, 0, length, StandardCharsets.UTF_8);
+                Operand operand = label ? operands.internLabel(name) : operands.intern(name);
+                if (operand.getId() != id) {
+                    throw new IOException("Duplicate entry in binary TAC string table: " + name);
+                }
+            }
+
+            int instructionCount = varint(input);
+            TACBuffer program = new TACBuffer(operands, instructionCount);
+            for (int i = 0; i < instructionCount; i++) {
+                Opcode opcode = Opcode.fromCode(input.get());
+                switch (opcode.getKind()) {
+                    case BINARY: {
+                        int result = reference(input);
+                        int operand1 = reference(input);
+                        program.append(opcode, result, operand1, reference(input));
+                        break;
+                    }
+                    case COPY: {
+                        int result = reference(input);
+                        program.append(opcode, result, reference(input), SlotList.NONE);
+                        break;
+                    }
+                    case BRANCH: {
+                        int operand1 = reference(input);
+                        int operand2 = reference(input);
+                        program.append(opcode, reference(input), operand1, operand2);
+                        break;
+                    }
+                    case CALL: {
+                        int slot = program.append(opcode, SlotList.NONE, reference(input), SlotList.NONE);
+                        int argumentCount = varint(input);
+                        for (int a = 0; a < argumentCount; a++) {
+                            program.addArgument(slot, reference(input));
+                        }
+                        break;
+                    }
+                    case RETURN:
+                        program.append(opcode, SlotList.NONE, reference(input), SlotList.NONE);
+                        break;
+                    case EXPRESSION: {
+                        int slot = program.append(opcode, reference(input), SlotList.NONE, SlotList.NONE);
+                        program.setExpression(slot, expression(input, operands));
+                        break;
+                    }
+                    default:
+                        program.append(opcode, reference(input), SlotList.NONE, SlotList.NONE);
+                        break;
+                }
+            }
+            return program;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt binary TAC program", e);
+        }
+    }
+
+    private static Expression expression(ByteBuffer input, OperandTable operands) {
+        int code = input.get() & 0xFF;
+        if (code == LEAF) {
+            return Expression.leaf(operands.get(reference(input)));
+        }
+        Opcode operator = Opcode.fromCode((byte) code);
+        if (operator.getKind() != Opcode.Kind.BINARY) {
+            throw new IllegalArgumentException("Not an arithmetic operator: " + operator);
+        }
+        Expression left = expression(input, operands);
+        return Expression.binary(operator, left, expression(input, operands));
+    }
+
+    private static int reference(ByteBuffer input) {
+        return varint(input) - 1;
+    }
+
+    private static int varint(ByteBuffer input) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = input.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    // Small buffered writer for bytes and LEB128 varints
+    private static final class Encoder {
+        private final OutputStream output;
+        private final byte[] buffer = new byte[8192];
+        private int count;
+
+        Encoder(OutputStream output) {
+            this.output = output;
+        }
+
+        void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        void bytes(byte[] data) throws IOException {
+            for (byte b : data) {
+                write(b);
+            }
+        }
+
+        void varint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void reference(int id) throws IOException {
+            varint(id + 1);
+        }
+
+        void expression(Expression node) throws IOException {
+            if (node.isLeaf()) {
+                write(LEAF);
+                reference(node.getOperand().getId());
+            } else {
+                write(node.getOperator().getCode());
+                expression(node.getLeft());
+                expression(node.getRight());
+            }
+        }
+
+        void flush() throws IOException {
+            flushBuffer();
+            output.flush();
+        }
+
+        private void flushBuffer() throws IOException {
+            output.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
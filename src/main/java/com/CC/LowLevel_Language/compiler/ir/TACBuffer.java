@@ -0,0 +1,219 @@
+package com.CC.LowLevel_Language.compiler.ir;
+
+import com.CC.LowLevel_Language.compiler.parser.Expression;
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.Operand;
+import com.CC.LowLevel_Language.compiler.parser.OperandTable;
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Struct-of-arrays form of a TAC program: one opcode byte and three operand
+ * ids per slot, with operand ids resolved through the compilation's
+ * OperandTable. Passes can rewrite, insert and delete instructions in place
+ * without allocating per instruction.
+ *
+ * The result column holds the defined variable, the target label for
+ * branches and jumps, or the label name for labels. EXPR slots keep their
+ * expression tree in a side column that stays null for every other slot.
+ */
+public class TACBuffer extends SlotList {
+    private final OperandTable operands;
+    private byte[] opcodes;
+    private int[] results;
+    private int[] operands1;
+    private int[] operands2;
+    // Call arguments live in a shared pool; each slot records its range
+    private int[] argumentStart;
+    private int[] argumentCount;
+    private int[] argumentPool;
+    private int argumentPoolSize;
+    private Expression[] expressions;
+
+    public TACBuffer(OperandTable operands, int initialCapacity) {
+        super(initialCapacity);
+        this.operands = operands;
+        int capacity = capacity();
+        this.opcodes = new byte[capacity];
+        this.results = new int[capacity];
+        this.operands1 = new int[capacity];
+        this.operands2 = new int[capacity];
+        this.argumentStart = new int[capacity];
+        this.argumentCount = new int[capacity];
+        this.argumentPool = new int[16];
+        this.expressions = new Expression[capacity];
+    }
+
+    public static TACBuffer from(List<TACInstruction> instructions, OperandTable operands) {
+        TACBuffer buffer = new TACBuffer(operands, instructions.size());
+        for (TACInstruction instruction : instructions) {
+            buffer.append(instruction);
+        }
+        return buffer;
+    }
+
+    @Override
+    protected void growColumns(int capacity) {
+        opcodes = Arrays.copyOf(opcodes, capacity);
+        results = Arrays.copyOf(results, capacity);
+        operands1 = Arrays.copyOf(operands1, capacity);
+        operands2 = Arrays.copyOf(operands2, capacity);
+        argumentStart = Arrays.copyOf(argumentStart, capacity);
+        argumentCount = Arrays.copyOf(argumentCount, capacity);
+        expressions = Arrays.copyOf(expressions, capacity);
+    }
+
+    public int append(TACInstruction instruction) {
+        int slot = newSlot();
+        store(slot, instruction);
+        linkAfter(slot, last());
+        return slot;
+    }
+
+    public int insertAfter(int after, TACInstruction instruction) {
+        int slot = newSlot();
+        store(slot, instruction);
+        linkAfter(slot, after);
+        return slot;
+    }
+
+    public int insertBefore(int before, TACInstruction instruction) {
+        int slot = newSlot();
+        store(slot, instruction);
+        linkBefore(slot, before);
+        return slot;
+    }
+
+    /**
+     * Appends an instruction given as raw ids; NONE marks an absent operand.
+     */
+    public int append(Opcode opcode, int result, int operand1, int operand2) {
+        int slot = newSlot();
+        set(slot, opcode, result, operand1, operand2);
+        linkAfter(slot, last());
+        return slot;
+    }
+
+    /**
+     * Adds a call argument to the most recently appended slot.
+     */
+    public void addArgument(int slot, int argument) {
+        if (argumentCount[slot] == 0) {
+            argumentStart[slot] = argumentPoolSize;
+        } else if (argumentStart[slot] + argumentCount[slot] != argumentPoolSize) {
+            throw new IllegalStateException("Arguments can only be added to the newest call");
+        }
+        ensureArgumentCapacity(1);
+        argumentPool[argumentPoolSize++] = argument;
+        argumentCount[slot]++;
+    }
+
+    /**
+     * Attaches the right-hand side of an EXPR slot.
+     */
+    public void setExpression(int slot, Expression expression) {
+        expressions[slot] = expression;
+    }
+
+    /**
+     * Rewrites a slot in place from raw ids; NONE marks an absent operand.
+     */
+    public void set(int slot, Opcode opcode, int result, int operand1, int operand2) {
+        opcodes[slot] = opcode.getCode();
+        results[slot] = result;
+        operands1[slot] = operand1;
+        operands2[slot] = operand2;
+        argumentCount[slot] = 0;
+        expressions[slot] = null;
+    }
+
+    public Opcode getOpcode(int slot) { return Opcode.fromCode(opcodes[slot]); }
+    public int getResult(int slot) { return results[slot]; }
+    public int getOperand1(int slot) { return operands1[slot]; }
+    public int getOperand2(int slot) { return operands2[slot]; }
+    public int getArgumentCount(int slot) { return argumentCount[slot]; }
+    public int getArgument(int slot, int index) { return argumentPool[argumentStart[slot] + index]; }
+    public Expression getExpression(int slot) { return expressions[slot]; }
+
+    public OperandTable getOperandTable() {
+        return operands;
+    }
+
+    public TACInstruction toInstruction(int slot) {
+        Opcode opcode = getOpcode(slot);
+        switch (opcode.getKind()) {
+            case LABEL:
+                return new TACInstruction(operand(results[slot]));
+            case BRANCH:
+                return TACInstruction.branch(opcode, operand(operands1[slot]), operand(operands2[slot]),
+                        operand(results[slot]));
+            case JUMP:
+                return TACInstruction.jump(operand(results[slot]));
+            case EXPRESSION:
+                return TACInstruction.expression(operand(results[slot]), expressions[slot]);
+            default:
+                break;
+        }
+
+        TACInstruction instruction = new TACInstruction(opcode,
+                operand(results[slot]), operand(operands1[slot]), operand(operands2[slot]));
+        if (argumentCount[slot] > 0) {
+            List<Operand> arguments = new ArrayList<>(argumentCount[slot]);
+            for (int i = 0; i < argumentCount[slot]; i++) {
+                arguments.add(operand(getArgument(slot, i)));
+            }
+            instruction.setArguments(Collections.unmodifiableList(arguments));
+        }
+        return instruction;
+    }
+
+    public List<TACInstruction> toInstructions() {
+        List<TACInstruction> instructions = new ArrayList<>(size());
+        for (int slot = first(); slot != NONE; slot = next(slot)) {
+            instructions.add(toInstruction(slot));
+        }
+        return instructions;
+    }
+
+    private void store(int slot, TACInstruction instruction) {
+        Opcode opcode = instruction.getOpcode();
+        Operand destination;
+        switch (opcode.getKind()) {
+            case LABEL: destination = instruction.getLabel(); break;
+            case BRANCH:
+            case JUMP: destination = instruction.getTarget(); break;
+            default: destination = instruction.getResult(); break;
+        }
+
+        set(slot, opcode, id(destination), id(instruction.getOperand1()), id(instruction.getOperand2()));
+        expressions[slot] = instruction.getExpression();
+
+        List<Operand> arguments = instruction.getArguments();
+        if (!arguments.isEmpty()) {
+            ensureArgumentCapacity(arguments.size());
+            argumentStart[slot] = argumentPoolSize;
+            argumentCount[slot] = arguments.size();
+            for (Operand argument : arguments) {
+                argumentPool[argumentPoolSize++] = argument.getId();
+            }
+        }
+    }
+
+    private void ensureArgumentCapacity(int extra) {
+        if (argumentPoolSize + extra > argumentPool.length) {
+            argumentPool = Arrays.copyOf(argumentPool, Math.max(argumentPool.length * 2, argumentPoolSize + extra));
+        }
+    }
+
+    private Operand operand(int id) {
+        return id == NONE ? null : operands.get(id);
+    }
+
+    private static int id(Operand operand) {
+        return operand == null ? NONE : operand.getId();
+    }
+}
@@ -1,282 +1,270 @@
 package com.CC.LowLevel_Language.compiler.optimizer;
 
+import com.CC.LowLevel_Language.compiler.generator.AssemblyInstruction;
+import com.CC.LowLevel_Language.compiler.generator.AssemblyOperand;
+import com.CC.LowLevel_Language.compiler.generator.Mnemonic;
+import com.CC.LowLevel_Language.compiler.ir.AssemblyBuffer;
+
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Optimization passes over structured assembly. Passes match on mnemonics
+ * and classified operands; text is only rendered for the result.
+ */
 public class AssemblyOptimizer {
-    private List<String> optimizationLogs;
-    private int optimizationsApplied;
-
-    public AssemblyOptimizer() {
-        this.optimizationLogs = new ArrayList<>();
-        this.optimizationsApplied = 0;
-    }
+    // Holds no state between calls: each optimize() collects its own log, so
+    // one optimizer can be shared by concurrent compilations.
 
-    public OptimizationResult optimize(List<String> assemblyCode) {
-        optimizationLogs.clear();
-        optimizationsApplied = 0;
+    public OptimizationResult optimize(List<AssemblyInstruction> assemblyCode) {
+        List<String> optimizationLogs = new ArrayList<>();
 
-        List<String> originalCode = new ArrayList<>(assemblyCode);
-        List<String> optimizedCode = new ArrayList<>(assemblyCode);
+        AssemblyBuffer code = new AssemblyBuffer(assemblyCode);
 
-        // Apply various optimization techniques
-        optimizedCode = applyPeepholeOptimizations(optimizedCode);
-        optimizedCode = removeRedundantMoves(optimizedCode);
-        optimizedCode = constantFolding(optimizedCode);
-        optimizedCode = removeDeadCode(optimizedCode);
-        optimizedCode = strengthReduction(optimizedCode);
+        // Apply various optimization techniques; each pass edits the buffer in place
+        applyPeepholeOptimizations(code, optimizationLogs);
+        removeRedundantMoves(code, optimizationLogs);
+        constantFolding(code, optimizationLogs);
+        removeDeadCode(code, optimizationLogs);
+        strengthReduction(code, optimizationLogs);
 
+        List<String> originalCode = new ArrayList<>(assemblyCode.size());
+        for (AssemblyInstruction instruction : assemblyCode) {
+            originalCode.add(instruction.toString());
+        }
+        List<String> optimizedCode = code.toLines();
         return new OptimizationResult(
             originalCode,
             optimizedCode,
             optimizationLogs,
-            optimizationsApplied,
+            optimizationLogs.size(),
             calculateImprovement(originalCode.size(), optimizedCode.size())
         );
     }
 
+    /**
+     * Optimizes assembly given as text lines, parsing each line once.
+     */
+    public OptimizationResult optimizeLines(List<String> assemblyCode) {
+        List<AssemblyInstruction> instructions = new ArrayList<>(assemblyCode.size());
+        for (String line : assemblyCode) {
+            instructions.add(AssemblyInstruction.parse(line));
+        }
+        return optimize(instructions);
+    }
+
     /**
      * Peephole Optimization: Look for patterns in a small window of instructions
      */
-    private List<String> applyPeepholeOptimizations(List<String> code) {
-        List<String> optimized = new ArrayList<>();
-        
-        for (int i = 0; i < code.size(); i++) {
-            String current = code.get(i).trim();
-            
-            // Skip empty lines and comments
-            if (current.isEmpty() || current.startsWith(";") || 
-                current.startsWith(".") || current.endsWith(":")) {
-                optimized.add(code.get(i));
+    private void applyPeepholeOptimizations(AssemblyBuffer code, List<String> logs) {
+        int slot = code.first();
+        while (slot != AssemblyBuffer.NONE) {
+            int next = code.next(slot);
+
+            // Skip empty lines, comments, directives and labels
+            AssemblyInstruction current = code.get(slot);
+            if (!current.isInstruction()) {
+                slot = next;
                 continue;
             }
 
             // Pattern 1: mov reg, reg (same register) - Remove self-assignment
             if (isSelfMove(current)) {
-                logOptimization("Removed redundant self-move: " + current);
-                continue; // Skip this instruction
+                logOptimization(logs, "Removed redundant self-move: " + text(current));
+                code.remove(slot);
             }
-
             // Pattern 2: add/sub reg, 0 - Remove addition/subtraction of zero
-            if (isAddSubZero(current)) {
-                logOptimization("Removed add/sub zero: " + current);
-                continue;
+            else if (isAddSubZero(current)) {
+                logOptimization(logs, "Removed add/sub zero: " + text(current));
+                code.remove(slot);
             }
-
             // Pattern 3: imul reg, 1 - Remove multiplication by 1
-            if (isMultiplyByOne(current)) {
-                logOptimization("Removed multiply by one: " + current);
-                continue;
+            else if (isMultiplyByOne(current)) {
+                logOptimization(logs, "Removed multiply by one: " + text(current));
+                code.remove(slot);
             }
-
             // Pattern 4: mov followed by mov to same destination
-            if (i < code.size() - 1) {
-                String next = code.get(i + 1).trim();
-                if (isRedundantMove(current, next)) {
-                    logOptimization("Removed redundant move sequence: " + current + " -> " + next);
-                    optimized.add(code.get(i + 1)); // Keep only the second move
-                    i++; // Skip next instruction
-                    continue;
-                }
+            else if (next != AssemblyBuffer.NONE && isRedundantMove(current, code.get(next))) {
+                logOptimization(logs, "Removed redundant move sequence: " + text(current) + " -> " + text(code.get(next)));
+                code.remove(slot); // Keep only the second move
+                next = code.next(next); // Skip next instruction
             }
 
-            optimized.add(code.get(i));
+            slot = next;
         }
-
-        return optimized;
     }
 
     /**
      * Remove redundant MOV instructions
      */
-    private List<String> removeRedundantMoves(List<String> code) {
-        List<String> optimized = new ArrayList<>();
-        String lastMove = null;
-
-        for (String line : code) {
-            String trimmed = line.trim();
-            
-            if (trimmed.startsWith("mov ")) {
+    private void removeRedundantMoves(AssemblyBuffer code, List<String> logs) {
+        AssemblyInstruction lastMove = null;
+
+        for (int slot = code.first(); slot != AssemblyBuffer.NONE; slot = code.next(slot)) {
+            AssemblyInstruction instruction = code.get(slot);
+            AssemblyInstruction.Kind kind = instruction.getKind();
+
+            if (instruction.is(Mnemonic.MOV)) {
                 // Check if this is the same as the last move
-                if (!trimmed.equals(lastMove)) {
-                    optimized.add(line);
-                    lastMove = trimmed;
+                if (!instruction.equals(lastMove)) {
+                    lastMove = instruction;
                 } else {
-                    logOptimization("Removed duplicate move: " + trimmed);
-                }
-            } else {
-                optimized.add(line);
-                if (!trimmed.isEmpty() && !trimmed.startsWith(";")) {
-                    lastMove = null; // Reset on non-move instruction
+                    logOptimization(logs, "Removed duplicate move: " + text(instruction));
+                    code.remove(slot);
                 }
+            } else if (kind != AssemblyInstruction.Kind.BLANK && kind != AssemblyInstruction.Kind.COMMENT) {
+                lastMove = null; // Reset on non-move instruction
             }
         }
-
-        return optimized;
     }
 
     /**
      * Constant Folding: Replace operations with constants with their result
      */
-    private List<String> constantFolding(List<String> code) {
-        List<String> optimized = new ArrayList<>();
-
-        for (int i = 0; i < code.size(); i++) {
-            String line = code.get(i);
-            String trimmed = line.trim();
-
-            // Look for add/sub with two constants
-            if (trimmed.startsWith("add ") || trimmed.startsWith("sub ")) {
-                String[] parts = trimmed.split("\\s+|,\\s*");
-                if (parts.length >= 3) {
-                    try {
-                        String dest = parts[1].replace(",", "");
-                        String src = parts[2];
-                        
-                        // Check if we can fold constants in previous instruction
-                        if (i > 0 && code.get(i - 1).trim().startsWith("mov " + dest)) {
-                            String prevLine = code.get(i - 1).trim();
-                            String[] prevParts = prevLine.split("\\s+|,\\s*");
-                            if (prevParts.length >= 3) {
-                                int value1 = Integer.parseInt(prevParts[2]);
-                                int value2 = Integer.parseInt(src);
-                                int result = trimmed.startsWith("add") ? value1 + value2 : value1 - value2;
-                                
-                                optimized.remove(optimized.size() - 1); // Remove previous mov
-                                optimized.add(line.replace(trimmed, "mov " + dest + ", " + result));
-                                logOptimization("Constant folding: " + prevLine + " + " + trimmed + " -> mov " + dest + ", " + result);
-                                continue;
-                            }
-                        }
-                    } catch (NumberFormatException e) {
-                        // Not constants, skip
-                    }
-                }
+    private void constantFolding(AssemblyBuffer code, List<String> logs) {
+        for (int slot = code.first(); slot != AssemblyBuffer.NONE; slot = code.next(slot)) {
+            AssemblyInstruction current = code.get(slot);
+
+            // Look for add/sub of a constant right after a constant mov to the same destination
+            boolean add = current.is(Mnemonic.ADD);
+            if (!add && !current.is(Mnemonic.SUB) || current.getOperandCount() < 2) {
+                continue;
+            }
+            int previous = code.prev(slot);
+            if (previous == AssemblyBuffer.NONE) {
+                continue;
             }
 
-            optimized.add(line);
+            AssemblyOperand dest = current.getOperand(0);
+            AssemblyOperand src = current.getOperand(1);
+            AssemblyInstruction move = code.get(previous);
+            if (move.is(Mnemonic.MOV) && move.getOperandCount() >= 2 && move.getOperand(0).equals(dest)
+                    && isIntConstant(move.getOperand(1)) && isIntConstant(src)) {
+                int value1 = (int) move.getOperand(1).getValue();
+                int value2 = (int) src.getValue();
+                int result = add ? value1 + value2 : value1 - value2;
+
+                AssemblyInstruction folded = new AssemblyInstruction(Mnemonic.MOV, dest, AssemblyOperand.immediate(result));
+                code.remove(previous); // Remove previous mov
+                code.replace(slot, folded);
+                logOptimization(logs, "Constant folding: " + text(move) + " + " + text(current) + " -> " + folded);
+            }
         }
-
-        return optimized;
     }
 
     /**
      * Remove unreachable code after unconditional jumps or returns
      */
-    private List<String> removeDeadCode(List<String> code) {
-        List<String> optimized = new ArrayList<>();
+    private void removeDeadCode(AssemblyBuffer code, List<String> logs) {
         boolean deadCode = false;
 
-        for (String line : code) {
-            String trimmed = line.trim();
+        for (int slot = code.first(); slot != AssemblyBuffer.NONE; slot = code.next(slot)) {
+            AssemblyInstruction instruction = code.get(slot);
+            AssemblyInstruction.Kind kind = instruction.getKind();
 
             // Reset dead code flag at labels
-            if (trimmed.endsWith(":")) {
+            if (kind == AssemblyInstruction.Kind.LABEL) {
                 deadCode = false;
             }
 
             // Mark code as dead after unconditional jump or return
-            if (trimmed.equals("ret") || trimmed.startsWith("jmp ")) {
-                optimized.add(line);
+            if (endsBlock(instruction)) {
                 deadCode = true;
                 continue;
             }
 
             // Skip dead code (except labels and directives)
-            if (deadCode && !trimmed.endsWith(":") && !trimmed.startsWith(".") && !trimmed.isEmpty()) {
-                if (!trimmed.startsWith(";")) {
-                    logOptimization("Removed dead code: " + trimmed);
+            if (deadCode && kind != AssemblyInstruction.Kind.LABEL && kind != AssemblyInstruction.Kind.DIRECTIVE
+                    && kind != AssemblyInstruction.Kind.BLANK) {
+                if (kind != AssemblyInstruction.Kind.COMMENT) {
+                    logOptimization(logs, "Removed dead code: " + text(instruction));
                 }
-                continue;
+                code.remove(slot);
             }
-
-            optimized.add(line);
         }
-
-        return optimized;
     }
 
     /**
      * Strength Reduction: Replace expensive operations with cheaper ones
      */
-    private List<String> strengthReduction(List<String> code) {
-        List<String> optimized = new ArrayList<>();
-
-        for (String line : code) {
-            String trimmed = line.trim();
-            String optimizedLine = line;
-
-            // Pattern: imul reg, 2 -> shl reg, 1 (shift is faster than multiply)
-            if (trimmed.matches("imul\\s+\\w+,\\s*2\\s*")) {
-                String[] parts = trimmed.split("\\s+|,\\s*");
-                String reg = parts[1].replace(",", "");
-                optimizedLine = line.replace(trimmed, "shl " + reg + ", 1");
-                logOptimization("Strength reduction: multiply by 2 -> shift left: " + trimmed);
-            }
-            // Pattern: imul reg, 4 -> shl reg, 2
-            else if (trimmed.matches("imul\\s+\\w+,\\s*4\\s*")) {
-                String[] parts = trimmed.split("\\s+|,\\s*");
-                String reg = parts[1].replace(",", "");
-                optimizedLine = line.replace(trimmed, "shl " + reg + ", 2");
-                logOptimization("Strength reduction: multiply by 4 -> shift left: " + trimmed);
+    private void strengthReduction(AssemblyBuffer code, List<String> logs) {
+        for (int slot = code.first(); slot != AssemblyBuffer.NONE; slot = code.next(slot)) {
+            AssemblyInstruction instruction = code.get(slot);
+            if (instruction.getComment() != null) {
+                continue;
             }
-            // Pattern: imul reg, 8 -> shl reg, 3
-            else if (trimmed.matches("imul\\s+\\w+,\\s*8\\s*")) {
-                String[] parts = trimmed.split("\\s+|,\\s*");
-                String reg = parts[1].replace(",", "");
-                optimizedLine = line.replace(trimmed, "shl " + reg + ", 3");
-                logOptimization("Strength reduction: multiply by 8 -> shift left: " + trimmed);
+
+            // Pattern: imul reg, 2/4/8 -> shl reg, 1/2/3 (shift is faster than multiply)
+            if (instruction.is(Mnemonic.IMUL) && instruction.getOperandCount() == 2
+                    && !instruction.getOperand(0).isMemory()) {
+                String factor = instruction.getOperand(1).getText();
+                int shift = factor.equals("2") ? 1 : factor.equals("4") ? 2 : factor.equals("8") ? 3 : 0;
+                if (shift > 0) {
+                    code.replace(slot, new AssemblyInstruction(Mnemonic.SHL,
+                            instruction.getOperand(0), AssemblyOperand.immediate(shift)));
+                    logOptimization(logs, "Strength reduction: multiply by " + factor + " -> shift left: " + text(instruction));
+                }
             }
             // Pattern: idiv with power of 2 -> sar (arithmetic shift right)
-            else if (trimmed.matches("idiv\\s+2\\s*")) {
-                optimizedLine = line.replace("idiv 2", "sar eax, 1");
-                logOptimization("Strength reduction: divide by 2 -> shift right: " + trimmed);
+            else if (instruction.is(Mnemonic.IDIV) && instruction.getOperandCount() == 1
+                    && instruction.getOperand(0).getText().equals("2")) {
+                code.replace(slot, new AssemblyInstruction(Mnemonic.SAR,
+                        AssemblyOperand.register("eax"), AssemblyOperand.immediate(1)));
+                logOptimization(logs, "Strength reduction: divide by 2 -> shift right: " + text(instruction));
             }
-
-            optimized.add(optimizedLine);
         }
-
-        return optimized;
     }
 
     // Helper methods for pattern matching
-    private boolean isSelfMove(String instruction) {
-        if (!instruction.startsWith("mov ")) return false;
-        String[] parts = instruction.split("\\s+|,\\s*");
-        if (parts.length >= 3) {
-            String dest = parts[1].replace(",", "");
-            String src = parts[2];
-            return dest.equals(src);
-        }
-        return false;
+    private boolean isSelfMove(AssemblyInstruction instruction) {
+        return instruction.is(Mnemonic.MOV) && instruction.getOperandCount() >= 2
+                && instruction.getOperand(0).equals(instruction.getOperand(1));
+    }
+
+    private boolean isAddSubZero(AssemblyInstruction instruction) {
+        if (!instruction.is(Mnemonic.ADD) && !instruction.is(Mnemonic.SUB)) return false;
+        return hasLastOperand(instruction, "0");
     }
 
-    private boolean isAddSubZero(String instruction) {
-        if (!instruction.startsWith("add ") && !instruction.startsWith("sub ")) return false;
-        return instruction.endsWith(", 0") || instruction.endsWith(" 0");
+    private boolean isMultiplyByOne(AssemblyInstruction instruction) {
+        // The three-operand form imul r, src, 1 is a move and must stay
+        if (!instruction.is(Mnemonic.IMUL) || instruction.getOperandCount() != 2) return false;
+        return hasLastOperand(instruction, "1");
     }
 
-    private boolean isMultiplyByOne(String instruction) {
-        if (!instruction.startsWith("imul ")) return false;
-        return instruction.endsWith(", 1") || instruction.endsWith(" 1");
+    private boolean isRedundantMove(AssemblyInstruction current, AssemblyInstruction next) {
+        if (!current.is(Mnemonic.MOV) || !next.is(Mnemonic.MOV)) return false;
+        if (current.getOperandCount() < 2 || next.getOperandCount() < 2) return false;
+        return current.getOperand(0).equals(next.getOperand(0));
     }
 
-    private boolean isRedundantMove(String current, String next) {
-        if (!current.startsWith("mov ") || !next.startsWith("mov ")) return false;
-        String[] currentParts = current.split("\\s+|,\\s*");
-        String[] nextParts = next.split("\\s+|,\\s*");
-        
-        if (currentParts.length >= 3 && nextParts.length >= 3) {
-            String currentDest = currentParts[1].replace(",", "");
-            String nextDest = nextParts[1].replace(",", "");
-            return currentDest.equals(nextDest);
+    // A trailing comment hides the operand, as the instruction no longer ends with it
+    private boolean hasLastOperand(AssemblyInstruction instruction, String operand) {
+        int count = instruction.getOperandCount();
+        return count > 0 && instruction.getComment() == null
+                && instruction.getOperand(count - 1).getText().equals(operand);
+    }
+
+    // A bare ret ends a block; the generator's commented function return is
+    // followed by the program exit sequence, which must stay reachable
+    private boolean endsBlock(AssemblyInstruction instruction) {
+        if (instruction.is(Mnemonic.JMP)) {
+            return instruction.getOperandCount() > 0;
         }
-        return false;
+        return instruction.is(Mnemonic.RET) && instruction.getOperandCount() == 0
+                && instruction.getComment() == null;
     }
 
-    private void logOptimization(String message) {
-        optimizationLogs.add(message);
-        optimizationsApplied++;
+    private boolean isIntConstant(AssemblyOperand operand) {
+        return operand.isImmediate() && operand.getValue() == (int) operand.getValue();
+    }
+
+    private String text(AssemblyInstruction instruction) {
+        return instruction.toString().trim();
+    }
+
+    private void logOptimization(List<String> logs, String message) {
+        logs.add(message);
     }
 
     private double calculateImprovement(int originalSize, int optimizedSize) {
@@ -291,9 +279,4 @@ public class AssemblyOptimizer {
         // Rough estimate: about 60% of lines are actual instructions
         return (int) (totalLines * 0.6);
     }
-
-    public void reset() {
-        optimizationLogs.clear();
-        optimizationsApplied = 0;
-    }
 }
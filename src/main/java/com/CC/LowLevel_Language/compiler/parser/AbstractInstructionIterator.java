@@ -0,0 +1,70 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Base for iterators that parse TAC on demand. Subclasses hand out one lexer
+ * per chunk of complete lines; this class drains them in order.
+ */
+public abstract class AbstractInstructionIterator implements Iterator<TACInstruction>, Closeable {
+    protected final OperandTable operands;
+    private TACLexer lexer;
+    private TACInstruction pending;
+    private int instructionCount;
+
+    protected AbstractInstructionIterator(OperandTable operands) {
+        this.operands = operands;
+    }
+
+    /**
+     * Returns a lexer over the next chunk of complete lines, or null at end of input.
+     */
+    protected abstract TACLexer nextLexer();
+
+    @Override
+    public boolean hasNext() {
+        if (pending == null) {
+            pending = advance();
+        }
+        return pending != null;
+    }
+
+    @Override
+    public TACInstruction next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TACInstruction instruction = pending;
+        pending = null;
+        instructionCount++;
+        return instruction;
+    }
+
+    /**
+     * Number of instructions returned by next() so far.
+     */
+    public int getInstructionCount() {
+        return instructionCount;
+    }
+
+    public OperandTable getOperandTable() {
+        return operands;
+    }
+
+    private TACInstruction advance() {
+        while (true) {
+            if (lexer != null) {
+                TACInstruction instruction = lexer.next();
+                if (instruction != null) {
+                    return instruction;
+                }
+            }
+            lexer = nextLexer();
+            if (lexer == null) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only CharSequence view over single-byte (ASCII/Latin-1) text in a
+ * ByteBuffer. Lets the lexer run directly over mapped file contents without
+ * decoding them into a String first.
+ */
+public class AsciiByteSequence implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    public AsciiByteSequence(ByteBuffer bytes) {
+        this(bytes, 0, bytes.limit());
+    }
+
+    public AsciiByteSequence(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Maps a whole file read-only. Limited to files below 2 GB, the largest
+     * region a single mapping can address.
+     */
+    public static AsciiByteSequence map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map as one region: " + path);
+            }
+            return new AsciiByteSequence(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new AsciiByteSequence(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] text = new byte[length];
+        bytes.get(offset, text);
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+}
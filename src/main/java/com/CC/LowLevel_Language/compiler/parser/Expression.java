@@ -0,0 +1,50 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+/**
+ * Arithmetic expression tree for right-hand sides with more than one
+ * operator. Each node records its Sethi-Ullman register need when built:
+ * the number of registers required to evaluate it without spilling, given
+ * that a leaf used as a right operand can be addressed directly.
+ */
+public final class Expression {
+    private final Opcode operator;
+    private final Operand operand;
+    private final Expression left;
+    private final Expression right;
+    private final int registerNeed;
+
+    private Expression(Opcode operator, Operand operand, Expression left, Expression right, int registerNeed) {
+        this.operator = operator;
+        this.operand = operand;
+        this.left = left;
+        this.right = right;
+        this.registerNeed = registerNeed;
+    }
+
+    public static Expression leaf(Operand operand) {
+        return new Expression(null, operand, null, null, 1);
+    }
+
+    public static Expression binary(Opcode operator, Expression left, Expression right) {
+        int leftNeed = left.registerNeed;
+        int rightNeed = right.isLeaf() ? 0 : right.registerNeed;
+        int need = leftNeed == rightNeed ? leftNeed + 1 : Math.max(leftNeed, rightNeed);
+        return new Expression(operator, null, left, right, need);
+    }
+
+    public boolean isLeaf() { return operator == null; }
+
+    public Opcode getOperator() { return operator; }
+    public Operand getOperand() { return operand; }
+    public Expression getLeft() { return left; }
+    public Expression getRight() { return right; }
+    public int getRegisterNeed() { return registerNeed; }
+
+    @Override
+    public String toString() {
+        if (isLeaf()) {
+            return operand.toString();
+        }
+        return "(" + left + " " + operator.getSymbol() + " " + right + ")";
+    }
+}
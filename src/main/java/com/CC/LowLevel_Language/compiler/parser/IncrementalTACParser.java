@@ -0,0 +1,40 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds TACDocuments and keeps them up to date under line edits. Only the
+ * edited text is lexed; splicing it in still moves references in proportion
+ * to the document size, which is cheap next to lexing.
+ */
+public class IncrementalTACParser {
+
+    public TACDocument parse(CharSequence tacCode) {
+        OperandTable operands = new OperandTable();
+        return new TACDocument(operands, lexLines(tacCode, operands));
+    }
+
+    /**
+     * Applies the edits to the document in order and returns it. Only the
+     * replacement text of each edit is lexed.
+     */
+    public TACDocument reparse(TACDocument document, List<TACDocument.LineEdit> edits) {
+        for (TACDocument.LineEdit edit : edits) {
+            List<TACInstruction> replacement = lexLines(edit.getNewText(), document.getOperandTable());
+            document.replaceLines(edit.getStartLine(), edit.getRemovedLines(), replacement);
+        }
+        document.bumpVersion();
+        return document;
+    }
+
+    // One entry per line of text, keeping nulls so indices match line numbers
+    private static List<TACInstruction> lexLines(CharSequence text, OperandTable operands) {
+        List<TACInstruction> lines = new ArrayList<>();
+        TACLexer lexer = new TACLexer(text, operands);
+        while (lexer.hasMoreLines()) {
+            lines.add(lexer.nextLine());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,76 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parses a TAC file through memory-mapped windows. The lexer reads the mapped
+ * ASCII bytes directly, so the file is never decoded into a heap String and
+ * its size is bounded by address space instead of the Java heap. Files larger
+ * than one window are mapped piecewise, each window ending on a line boundary.
+ */
+public class MappedInstructionIterator extends AbstractInstructionIterator {
+    private static final long DEFAULT_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long windowSize;
+    private long nextWindowStart;
+
+    public MappedInstructionIterator(Path path) throws IOException {
+        this(path, new OperandTable(), DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedInstructionIterator(Path path, OperandTable operands, long windowSize) throws IOException {
+        super(operands);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = Math.min(windowSize, DEFAULT_WINDOW_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    protected TACLexer nextLexer() {
+        if (nextWindowStart >= fileSize) {
+            return null;
+        }
+
+        long size = Math.min(windowSize, fileSize - nextWindowStart);
+        MappedByteBuffer window;
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, nextWindowStart, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int limit = (int) size;
+        if (nextWindowStart + size < fileSize) {
+            // Stop at the last complete line; the remainder starts the next window
+            limit = lastLineEnd(window, limit);
+            if (limit == 0) {
+                throw new IllegalStateException("TAC line at offset " + nextWindowStart
+                        + " is longer than the mapping window");
+            }
+        }
+
+        nextWindowStart += limit;
+        return new TACLexer(new AsciiByteSequence(window, 0, limit), operands);
+    }
+
+    private static int lastLineEnd(MappedByteBuffer window, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (window.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+/**
+ * TAC operations. Each opcode has a fixed byte code, so the numbering stays
+ * stable for serialized programs and array-indexed tables even if constants
+ * are reordered.
+ */
+public enum Opcode {
+    ADD(0, "+", Kind.BINARY),
+    SUB(1, "-", Kind.BINARY),
+    MUL(2, "*", Kind.BINARY),
+    DIV(3, "/", Kind.BINARY),
+    MOD(4, "%", Kind.BINARY),
+    COPY(5, "=", Kind.COPY),
+    IF_GT(6, ">", Kind.BRANCH),
+    IF_LT(7, "<", Kind.BRANCH),
+    IF_GE(8, ">=", Kind.BRANCH),
+    IF_LE(9, "<=", Kind.BRANCH),
+    IF_EQ(10, "==", Kind.BRANCH),
+    IF_NE(11, "!=", Kind.BRANCH),
+    GOTO(12, "goto", Kind.JUMP),
+    CALL(13, "call", Kind.CALL),
+    RETURN(14, "return", Kind.RETURN),
+    LABEL(15, ":", Kind.LABEL),
+    EXPR(16, "expr", Kind.EXPRESSION);
+
+    public enum Kind {
+        BINARY,
+        COPY,
+        BRANCH,
+        JUMP,
+        CALL,
+        RETURN,
+        LABEL,
+        EXPRESSION
+    }
+
+    private static final Opcode[] BY_CODE = new Opcode[values().length];
+
+    static {
+        for (Opcode opcode : values()) {
+            BY_CODE[opcode.code] = opcode;
+        }
+    }
+
+    private final byte code;
+    private final String symbol;
+    private final Kind kind;
+
+    Opcode(int code, String symbol, Kind kind) {
+        this.code = (byte) code;
+        this.symbol = symbol;
+        this.kind = kind;
+    }
+
+    public byte getCode() { return code; }
+    public String getSymbol() { return symbol; }
+    public Kind getKind() { return kind; }
+
+    // Binding strength of arithmetic operators inside expressions
+    public int getPrecedence() {
+        switch (this) {
+            case MUL:
+            case DIV:
+            case MOD:
+                return 2;
+            case ADD:
+            case SUB:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    public static Opcode fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown TAC opcode: " + code);
+        }
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,54 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+/**
+ * An interned TAC operand. Operands are classified once when first seen by
+ * the lexer, so later stages can switch on the kind and use the dense id as
+ * an array index instead of re-inspecting the text.
+ */
+public final class Operand {
+
+    public enum Kind {
+        CONSTANT,
+        TEMP,
+        VARIABLE,
+        LABEL,
+        REGISTER,
+        MEMORY
+    }
+
+    private final int id;
+    private final Kind kind;
+    private final long value;
+    private final String text;
+
+    Operand(int id, Kind kind, long value, String text) {
+        this.id = id;
+        this.kind = kind;
+        this.value = value;
+        this.text = text;
+    }
+
+    /**
+     * Dense id within the OperandTable that produced this operand.
+     */
+    public int getId() { return id; }
+
+    public Kind getKind() { return kind; }
+
+    /**
+     * Parsed value; only meaningful for constants.
+     */
+    public long getValue() { return value; }
+
+    public String getText() { return text; }
+
+    public boolean isConstant() { return kind == Kind.CONSTANT; }
+
+    // Temps and named variables are the operands that need storage
+    public boolean isVariable() { return kind == Kind.TEMP || kind == Kind.VARIABLE; }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
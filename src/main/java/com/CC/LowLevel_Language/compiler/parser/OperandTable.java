@@ -0,0 +1,142 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.util.Arrays;
+
+/**
+ * Per-compilation intern table mapping operand text to Operand objects with
+ * dense ids. Lookups hash the characters straight out of the source, so an
+ * operand String is only allocated the first time its text is seen.
+ */
+public class OperandTable {
+    private static final String[] REGISTERS = {"eax", "ebx", "ecx", "edx", "esi", "edi"};
+
+    private Operand[] operands;
+    private int[] hashes;
+    private int[] slots;
+    private int size;
+
+    public OperandTable() {
+        this.operands = new Operand[64];
+        this.hashes = new int[64];
+        this.slots = new int[128];
+    }
+
+    public Operand intern(String text) {
+        return intern(text, 0, text.length(), false);
+    }
+
+    public Operand internLabel(String text) {
+        return intern(text, 0, text.length(), true);
+    }
+
+    /**
+     * Returns the operand for source[start, end), creating it on first use.
+     * Label names live in their own namespace so a label may share its
+     * spelling with a variable.
+     */
+    public Operand intern(CharSequence source, int start, int end, boolean label) {
+        int hash = label ? 1 : 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        hash ^= hash >>> 16;
+
+        int mask = slots.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) {
+                Operand operand = create(source.subSequence(start, end).toString(), label);
+                hashes[operand.getId()] = hash;
+                slots[i] = operand.getId() + 1;
+                if (size * 2 > slots.length) {
+                    rehash();
+                }
+                return operand;
+            }
+            Operand candidate = operands[slot - 1];
+            if (hashes[slot - 1] == hash && (candidate.getKind() == Operand.Kind.LABEL) == label
+                    && sameText(candidate.getText(), source, start, end)) {
+                return candidate;
+            }
+        }
+    }
+
+    public Operand get(int id) {
+        return operands[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private Operand create(String text, boolean label) {
+        if (size == operands.length) {
+            operands = Arrays.copyOf(operands, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        Operand operand = label
+                ? new Operand(id, Operand.Kind.LABEL, 0, text)
+                : classify(id, text);
+        operands[id] = operand;
+        return operand;
+    }
+
+    private static Operand classify(int id, String text) {
+        int length = text.length();
+        char first = text.charAt(0);
+
+        // Integer constant, optionally negative; anything too long for a long stays a name
+        int digitsStart = first == '-' ? 1 : 0;
+        if (digitsStart < length && length - digitsStart <= 18 && allDigits(text, digitsStart)) {
+            long value = 0;
+            for (int i = digitsStart; i < length; i++) {
+                value = value * 10 + (text.charAt(i) - '0');
+            }
+            return new Operand(id, Operand.Kind.CONSTANT, digitsStart == 1 ? -value : value, text);
+        }
+
+        if (first == '[' && text.charAt(length - 1) == ']') {
+            return new Operand(id, Operand.Kind.MEMORY, 0, text);
+        }
+        for (String register : REGISTERS) {
+            if (register.equals(text)) {
+                return new Operand(id, Operand.Kind.REGISTER, 0, text);
+            }
+        }
+
+        // Compiler temporaries follow the t<number> convention
+        if (first == 't' && length > 1 && allDigits(text, 1)) {
+            return new Operand(id, Operand.Kind.TEMP, 0, text);
+        }
+        return new Operand(id, Operand.Kind.VARIABLE, 0, text);
+    }
+
+    private static boolean allDigits(String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean sameText(String text, CharSequence source, int start, int end) {
+        if (text.length() != end - start) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != source.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses large TAC inputs on a ForkJoin pool. The input is cut into chunks at
+ * line boundaries and each chunk is lexed into its own OperandTable. A short
+ * sequential fix-up then concatenates the chunks in order and rebinds every
+ * operand and label reference to the shared table, visiting chunks in source
+ * order so ids come out exactly as a sequential parse would assign them.
+ */
+public class ParallelTACParser {
+    private static final int DEFAULT_MIN_CHUNK_SIZE = 256 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int minChunkSize;
+
+    public ParallelTACParser() {
+        this(ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    public ParallelTACParser(ForkJoinPool pool, int minChunkSize) {
+        this.pool = pool;
+        this.minChunkSize = Math.max(minChunkSize, 1);
+    }
+
+    public List<TACInstruction> parseCode(CharSequence tacCode, OperandTable operands) {
+        int[] bounds = chunkBounds(tacCode);
+        int chunkCount = bounds.length - 1;
+        if (chunkCount < 2) {
+            return new TACParser().parseCode(tacCode, operands);
+        }
+
+        List<ChunkTask> tasks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            tasks.add(new ChunkTask(tacCode, bounds[i], bounds[i + 1]));
+        }
+        List<List<TACInstruction>> chunks = new ArrayList<>(chunkCount);
+        int total = 0;
+        for (Future<List<TACInstruction>> future : pool.invokeAll(tasks)) {
+            List<TACInstruction> chunk = result(future);
+            chunks.add(chunk);
+            total += chunk.size();
+        }
+
+        List<TACInstruction> instructions = new ArrayList<>(total);
+        for (int i = 0; i < chunkCount; i++) {
+            Operand[] rebound = rebind(tasks.get(i).localOperands, operands);
+            for (TACInstruction instruction : chunks.get(i)) {
+                fixUp(instruction, rebound);
+                instructions.add(instruction);
+            }
+        }
+        return instructions;
+    }
+
+    // The chunk's instructions, rethrowing a parse error as the caller's own
+    private static List<TACInstruction> result(Future<List<TACInstruction>> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing", e);
+        }
+    }
+
+    // Splits the input into roughly equal chunks, each ending just after a newline
+    private int[] chunkBounds(CharSequence tacCode) {
+        int length = tacCode.length();
+        int target = Math.max(minChunkSize, length / (pool.getParallelism() * 4));
+
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int position = 0;
+        while (length - position > target) {
+            int end = position + target;
+            while (end < length && tacCode.charAt(end - 1) != '\n') {
+                end++;
+            }
+            bounds.add(end);
+            position = end;
+        }
+        if (position < length) {
+            bounds.add(length);
+        }
+
+        int[] result = new int[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    // Maps every chunk-local operand id to the operand in the shared table
+    private static Operand[] rebind(OperandTable local, OperandTable shared) {
+        Operand[] rebound = new Operand[local.size()];
+        for (int id = 0; id < rebound.length; id++) {
+            Operand operand = local.get(id);
+            rebound[id] = operand.getKind() == Operand.Kind.LABEL
+                    ? shared.internLabel(operand.getText())
+                    : shared.intern(operand.getText());
+        }
+        return rebound;
+    }
+
+    private static void fixUp(TACInstruction instruction, Operand[] rebound) {
+        instruction.setResult(lookup(instruction.getResult(), rebound));
+        instruction.setOperand1(lookup(instruction.getOperand1(), rebound));
+        instruction.setOperand2(lookup(instruction.getOperand2(), rebound));
+        instruction.setLabel(lookup(instruction.getLabel(), rebound));
+        instruction.setTarget(lookup(instruction.getTarget(), rebound));
+        if (instruction.getExpression() != null) {
+            instruction.setExpression(rebind(instruction.getExpression(), rebound));
+        }
+
+        List<Operand> arguments = instruction.getArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+            arguments.set(i, lookup(arguments.get(i), rebound));
+        }
+    }
+
+    // Expression trees are immutable, so rebinding rebuilds them
+    private static Expression rebind(Expression expression, Operand[] rebound) {
+        if (expression.isLeaf()) {
+            return Expression.leaf(lookup(expression.getOperand(), rebound));
+        }
+        return Expression.binary(expression.getOperator(),
+                rebind(expression.getLeft(), rebound), rebind(expression.getRight(), rebound));
+    }
+
+    private static Operand lookup(Operand operand, Operand[] rebound) {
+        return operand == null ? null : rebound[operand.getId()];
+    }
+
+    private static class ChunkTask implements Callable<List<TACInstruction>> {
+        private final CharSequence source;
+        private final int start;
+        private final int end;
+        private final OperandTable localOperands = new OperandTable();
+
+        ChunkTask(CharSequence source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public List<TACInstruction> call() {
+            List<TACInstruction> instructions = new ArrayList<>();
+            TACLexer lexer = new TACLexer(source, start, end, localOperands);
+            TACInstruction instruction;
+            while ((instruction = lexer.next()) != null) {
+                instructions.add(instruction);
+            }
+            return instructions;
+        }
+    }
+}
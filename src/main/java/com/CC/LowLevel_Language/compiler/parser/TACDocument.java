@@ -0,0 +1,98 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed TAC program that remembers which instruction came from which
+ * source line, so edits can be applied by re-lexing only the changed lines.
+ * Instructions on untouched lines keep their identity across edits, and new
+ * operands are interned into the same table so existing ids stay valid.
+ */
+public class TACDocument {
+    private final OperandTable operands;
+    // One entry per source line; null for blank, comment or malformed lines
+    private final List<TACInstruction> lineInstructions;
+    private List<TACInstruction> instructions;
+    private int version;
+
+    TACDocument(OperandTable operands, List<TACInstruction> lineInstructions) {
+        this.operands = operands;
+        this.lineInstructions = lineInstructions;
+    }
+
+    public OperandTable getOperandTable() {
+        return operands;
+    }
+
+    public int getLineCount() {
+        return lineInstructions.size();
+    }
+
+    public TACInstruction getInstructionAt(int line) {
+        return lineInstructions.get(line);
+    }
+
+    /**
+     * Incremented every time edits are applied.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Instructions in source order. Rebuilt lazily after an edit, which is a
+     * pass over the whole document; it only copies references, no text is
+     * re-lexed.
+     */
+    public List<TACInstruction> getInstructions() {
+        if (instructions == null) {
+            List<TACInstruction> present = new ArrayList<>(lineInstructions.size());
+            for (TACInstruction instruction : lineInstructions) {
+                if (instruction != null) {
+                    present.add(instruction);
+                }
+            }
+            instructions = Collections.unmodifiableList(present);
+        }
+        return instructions;
+    }
+
+    void replaceLines(int startLine, int removedLines, List<TACInstruction> replacement) {
+        if (startLine < 0 || removedLines < 0 || startLine + removedLines > lineInstructions.size()) {
+            throw new IndexOutOfBoundsException("Edit range " + startLine + "+" + removedLines
+                    + " outside document of " + lineInstructions.size() + " lines");
+        }
+        List<TACInstruction> removed = lineInstructions.subList(startLine, startLine + removedLines);
+        removed.clear();
+        removed.addAll(replacement);
+        instructions = null;
+    }
+
+    void bumpVersion() {
+        version++;
+    }
+
+    /**
+     * Replaces removedLines lines starting at startLine with the lines in
+     * newText. Line numbers refer to the document as left by any earlier
+     * edit in the same batch. newText holds whole lines; a trailing newline
+     * is optional and an empty string deletes without inserting.
+     */
+    public static class LineEdit {
+        private final int startLine;
+        private final int removedLines;
+        private final String newText;
+
+        public LineEdit(int startLine, int removedLines, String newText) {
+            this.startLine = startLine;
+            this.removedLines = removedLines;
+            this.newText = newText;
+        }
+
+        public int getStartLine() { return startLine; }
+        public int getRemovedLines() { return removedLines; }
+        public String getNewText() { return newText; }
+    }
+}
@@ -1,52 +1,107 @@
 package com.CC.LowLevel_Language.compiler.parser;
 
+import java.util.Collections;
+import java.util.List;
+
 public class TACInstruction {
-    private String operation;
-    private String result;
-    private String operand1;
-    private String operand2;
-    private String label;
-    private boolean isLabel;
+    private Opcode opcode;
+    private Operand result;
+    private Operand operand1;
+    private Operand operand2;
+    private Operand label;
+    private Operand target;
+    private Expression expression;
+    private List<Operand> arguments = Collections.emptyList();
 
     public TACInstruction() {}
 
-    public TACInstruction(String operation, String result, String operand1, String operand2) {
-        this.operation = operation;
+    public TACInstruction(Opcode opcode, Operand result, Operand operand1, Operand operand2) {
+        this.opcode = opcode;
         this.result = result;
         this.operand1 = operand1;
         this.operand2 = operand2;
-        this.isLabel = false;
     }
 
-    public TACInstruction(String label) {
+    public TACInstruction(Operand label) {
+        this.opcode = Opcode.LABEL;
         this.label = label;
-        this.isLabel = true;
+    }
+
+    // if operand1 <op> operand2 goto target
+    public static TACInstruction branch(Opcode opcode, Operand operand1, Operand operand2, Operand target) {
+        TACInstruction instruction = new TACInstruction(opcode, null, operand1, operand2);
+        instruction.setTarget(target);
+        return instruction;
+    }
+
+    // result = nested arithmetic expression
+    public static TACInstruction expression(Operand result, Expression expression) {
+        TACInstruction instruction = new TACInstruction(Opcode.EXPR, result, null, null);
+        instruction.setExpression(expression);
+        return instruction;
+    }
+
+    public static TACInstruction jump(Operand target) {
+        TACInstruction instruction = new TACInstruction(Opcode.GOTO, null, null, null);
+        instruction.setTarget(target);
+        return instruction;
     }
 
     // Getters and Setters
-    public String getOperation() { return operation; }
-    public void setOperation(String operation) { this.operation = operation; }
+    public Opcode getOpcode() { return opcode; }
+    public void setOpcode(Opcode opcode) { this.opcode = opcode; }
+
+    public String getOperation() { return opcode.getSymbol(); }
+
+    public Operand getResult() { return result; }
+    public void setResult(Operand result) { this.result = result; }
+
+    public Operand getOperand1() { return operand1; }
+    public void setOperand1(Operand operand1) { this.operand1 = operand1; }
+
+    public Operand getOperand2() { return operand2; }
+    public void setOperand2(Operand operand2) { this.operand2 = operand2; }
 
-    public String getResult() { return result; }
-    public void setResult(String result) { this.result = result; }
+    public Operand getLabel() { return label; }
+    public void setLabel(Operand label) { this.label = label; }
 
-    public String getOperand1() { return operand1; }
-    public void setOperand1(String operand1) { this.operand1 = operand1; }
+    public boolean isLabel() { return opcode == Opcode.LABEL; }
 
-    public String getOperand2() { return operand2; }
-    public void setOperand2(String operand2) { this.operand2 = operand2; }
+    // Jump target of branches and gotos
+    public Operand getTarget() { return target; }
+    public void setTarget(Operand target) { this.target = target; }
 
-    public String getLabel() { return label; }
-    public void setLabel(String label) { this.label = label; }
+    // Right-hand side of EXPR instructions
+    public Expression getExpression() { return expression; }
+    public void setExpression(Expression expression) { this.expression = expression; }
 
-    public boolean isLabel() { return isLabel; }
-    public void setLabel(boolean isLabel) { this.isLabel = isLabel; }
+    // Call arguments, in order
+    public List<Operand> getArguments() { return arguments; }
+    public void setArguments(List<Operand> arguments) { this.arguments = arguments; }
 
     @Override
     public String toString() {
-        if (isLabel) {
-            return label + ":";
+        switch (opcode.getKind()) {
+            case LABEL:
+                return label + ":";
+            case COPY:
+                return result + " = " + operand1;
+            case BRANCH:
+                return "if " + operand1 + " " + opcode.getSymbol() + " " + operand2 + " goto " + target;
+            case JUMP:
+                return "goto " + target;
+            case CALL:
+                StringBuilder call = new StringBuilder("call ").append(operand1);
+                for (Operand argument : arguments) {
+                    call.append(", ").append(argument);
+                }
+                return call.toString();
+            case RETURN:
+                return operand1 != null ? "return " + operand1 : "return";
+            case EXPRESSION:
+                return result + " = " + expression;
+            default:
+                return result + " = " + operand1 + " " + opcode.getSymbol() + " " + operand2;
         }
-        return result + " = " + operand1 + " " + operation + " " + operand2;
     }
 }
@@ -0,0 +1,92 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+
+/**
+ * Lazily parses TAC from a Reader. Input is read in fixed-size chunks and
+ * only complete lines are handed to the lexer, so memory stays bounded by
+ * the chunk size (or the longest line) rather than the program size.
+ */
+public class TACInstructionIterator extends AbstractInstructionIterator {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private char[] buffer;
+    private CharBuffer view;
+    private int filled;
+    private int consumed;
+    private boolean endOfInput;
+
+    public TACInstructionIterator(Reader reader) {
+        this(reader, new OperandTable());
+    }
+
+    public TACInstructionIterator(Reader reader, OperandTable operands) {
+        this(reader, operands, DEFAULT_BUFFER_SIZE);
+    }
+
+    public TACInstructionIterator(Reader reader, OperandTable operands, int bufferSize) {
+        super(operands);
+        this.reader = reader;
+        this.buffer = new char[Math.max(bufferSize, 16)];
+        this.view = CharBuffer.wrap(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    @Override
+    protected TACLexer nextLexer() {
+        while (!(endOfInput && consumed >= filled)) {
+            int limit = refill();
+            if (limit > 0) {
+                consumed = limit;
+                return new TACLexer(view, 0, limit, operands);
+            }
+        }
+        return null;
+    }
+
+    // Reads the next chunk and returns the end of the last complete line it holds
+    private int refill() {
+        int remaining = filled - consumed;
+        System.arraycopy(buffer, consumed, buffer, 0, remaining);
+        filled = remaining;
+        consumed = 0;
+
+        if (filled == buffer.length) {
+            // A single line is longer than the buffer
+            char[] larger = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, larger, 0, filled);
+            buffer = larger;
+            view = CharBuffer.wrap(buffer);
+        }
+
+        try {
+            int read = reader.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                filled += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return endOfInput ? filled : lastLineEnd();
+    }
+
+    private int lastLineEnd() {
+        for (int i = filled - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+}
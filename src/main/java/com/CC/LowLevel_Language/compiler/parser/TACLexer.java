@@ -0,0 +1,334 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass cursor lexer over a CharSequence of TAC source.
+ *
+ * Each line is classified from its first token and tokenized left to right
+ * exactly once. Operands are interned into an OperandTable straight from the
+ * input characters, so text is only copied the first time it is seen.
+ */
+public class TACLexer {
+    private final CharSequence input;
+    private final OperandTable operands;
+    private final int end;
+    private int pos;
+
+    public TACLexer(CharSequence input) {
+        this(input, new OperandTable());
+    }
+
+    public TACLexer(CharSequence input, OperandTable operands) {
+        this(input, 0, input.length(), operands);
+    }
+
+    public TACLexer(CharSequence input, int start, int end, OperandTable operands) {
+        this.input = input;
+        this.operands = operands;
+        this.pos = start;
+        this.end = end;
+    }
+
+    /**
+     * Returns the next instruction, or null once the input is exhausted.
+     * Blank lines, comments and lines that cannot be parsed are skipped.
+     */
+    public TACInstruction next() {
+        while (pos < end) {
+            TACInstruction instruction = lexLine();
+            if (instruction != null) {
+                return instruction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lexes exactly one source line and returns its instruction, or null when
+     * the line is blank, a comment or malformed. Used by callers that keep a
+     * line-to-instruction mapping.
+     */
+    public TACInstruction nextLine() {
+        return lexLine();
+    }
+
+    public boolean hasMoreLines() {
+        return pos < end;
+    }
+
+    public int getPosition() {
+        return pos;
+    }
+
+    // Lexes one line starting at pos and leaves pos at the start of the next line
+    private TACInstruction lexLine() {
+        skipSpaces();
+        if (atLineEnd()) {
+            skipLine();
+            return null;
+        }
+
+        // Comment line
+        if (input.charAt(pos) == '/' && pos + 1 < end && input.charAt(pos + 1) == '/') {
+            skipLine();
+            return null;
+        }
+
+        int wordStart = pos;
+        int wordEnd = scanOperand();
+        skipSpaces();
+
+        TACInstruction instruction = null;
+        if (wordEnd > wordStart) {
+            char c = atLineEnd() ? '\n' : input.charAt(pos);
+            if (c == ':') {
+                pos++;
+                instruction = finishLabel(wordStart, wordEnd);
+            } else if (c == '=' && !(pos + 1 < end && input.charAt(pos + 1) == '=')) {
+                pos++;
+                instruction = lexAssignment(operands.intern(input, wordStart, wordEnd, false));
+            } else if (matches(wordStart, wordEnd, "return")) {
+                instruction = lexReturn();
+            } else if (matches(wordStart, wordEnd, "if")) {
+                instruction = lexConditionalJump();
+            } else if (matches(wordStart, wordEnd, "goto")) {
+                instruction = lexJump();
+            } else if (matches(wordStart, wordEnd, "call")) {
+                instruction = lexFunctionCall();
+            }
+        }
+
+        skipLine();
+        return instruction;
+    }
+
+    private TACInstruction finishLabel(int wordStart, int wordEnd) {
+        skipSpaces();
+        return atLineEnd() ? new TACInstruction(operands.intern(input, wordStart, wordEnd, true)) : null;
+    }
+
+    private TACInstruction lexReturn() {
+        if (atLineEnd()) {
+            return new TACInstruction(Opcode.RETURN, null, null, null);
+        }
+        Operand returnValue = lexOperand();
+        skipSpaces();
+        if (returnValue == null || !atLineEnd()) return null;
+        return new TACInstruction(Opcode.RETURN, null, returnValue, null);
+    }
+
+    private TACInstruction lexAssignment(Operand result) {
+        Expression expression = lexExpression(1);
+        skipSpaces();
+        if (expression == null || !atLineEnd()) return null;
+
+        if (expression.isLeaf()) {
+            // Simple assignment
+            return new TACInstruction(Opcode.COPY, result, expression.getOperand(), null);
+        }
+        Expression left = expression.getLeft();
+        Expression right = expression.getRight();
+        if (left.isLeaf() && right.isLeaf()) {
+            // Plain three-address form
+            return new TACInstruction(expression.getOperator(), result, left.getOperand(), right.getOperand());
+        }
+        return TACInstruction.expression(result, expression);
+    }
+
+    // Precedence climbing over + - * / % with parentheses
+    private Expression lexExpression(int minPrecedence) {
+        Expression left = lexPrimary();
+        while (left != null) {
+            skipSpaces();
+            if (atLineEnd()) break;
+            int operatorStart = pos;
+            Opcode operator = lexArithmeticOperator();
+            if (operator == null) break;
+            if (operator.getPrecedence() < minPrecedence) {
+                pos = operatorStart;
+                break;
+            }
+            Expression right = lexExpression(operator.getPrecedence() + 1);
+            if (right == null) return null;
+            left = Expression.binary(operator, left, right);
+        }
+        return left;
+    }
+
+    private Expression lexPrimary() {
+        skipSpaces();
+        if (atLineEnd()) return null;
+        if (input.charAt(pos) == '(') {
+            pos++;
+            Expression inner = lexExpression(1);
+            skipSpaces();
+            if (inner == null || atLineEnd() || input.charAt(pos) != ')') return null;
+            pos++;
+            return inner;
+        }
+        Operand operand = lexOperand();
+        return operand != null ? Expression.leaf(operand) : null;
+    }
+
+    private TACInstruction lexConditionalJump() {
+        // Format: if t1 > 10 goto L1
+        Operand operand1 = lexOperand();
+        skipSpaces();
+        Opcode operator = lexRelationalOperator();
+        skipSpaces();
+        Operand operand2 = lexOperand();
+        skipSpaces();
+        if (operand1 == null || operator == null || operand2 == null) return null;
+
+        int gotoStart = pos;
+        int gotoEnd = scanOperand();
+        if (!matches(gotoStart, gotoEnd, "goto")) return null;
+
+        skipSpaces();
+        Operand target = lexTarget();
+        return target != null ? TACInstruction.branch(operator, operand1, operand2, target) : null;
+    }
+
+    private TACInstruction lexJump() {
+        // Format: goto L1
+        Operand target = lexTarget();
+        return target != null ? TACInstruction.jump(target) : null;
+    }
+
+    // Reads the label name that ends a branch or jump
+    private Operand lexTarget() {
+        int labelStart = pos;
+        int labelEnd = scanOperand();
+        skipSpaces();
+        if (labelEnd == labelStart || !atLineEnd()) return null;
+        return operands.intern(input, labelStart, labelEnd, true);
+    }
+
+    private TACInstruction lexFunctionCall() {
+        // call func  |  call func, arg1, arg2
+        int nameStart = pos;
+        int nameEnd = scanOperand();
+        if (nameEnd == nameStart) return null;
+        Operand function = operands.intern(input, nameStart, nameEnd, true);
+
+        skipSpaces();
+        List<Operand> arguments = new ArrayList<>();
+        while (!atLineEnd()) {
+            if (input.charAt(pos) != ',') return null;
+            pos++;
+            skipSpaces();
+            Operand argument = lexOperand();
+            if (argument == null) return null;
+            arguments.add(argument);
+            skipSpaces();
+        }
+
+        TACInstruction instruction = new TACInstruction(Opcode.CALL, null, function, null);
+        if (!arguments.isEmpty()) {
+            instruction.setArguments(arguments);
+        }
+        return instruction;
+    }
+
+    // Reads an operand, allowing a leading minus sign on numeric literals
+    private Operand lexOperand() {
+        int start = pos;
+        if (pos + 1 < end && input.charAt(pos) == '-' && isDigit(input.charAt(pos + 1))) {
+            pos++;
+        }
+        int operandEnd = scanOperand();
+        return operandEnd > start ? operands.intern(input, start, operandEnd, false) : null;
+    }
+
+    private Opcode lexArithmeticOperator() {
+        switch (input.charAt(pos)) {
+            case '+': pos++; return Opcode.ADD;
+            case '-': pos++; return Opcode.SUB;
+            case '*': pos++; return Opcode.MUL;
+            case '/': pos++; return Opcode.DIV;
+            case '%': pos++; return Opcode.MOD;
+            default: return null;
+        }
+    }
+
+    private Opcode lexRelationalOperator() {
+        if (atLineEnd()) return null;
+        char c = input.charAt(pos);
+        boolean followedByEquals = pos + 1 < end && input.charAt(pos + 1) == '=';
+        switch (c) {
+            case '>':
+                pos += followedByEquals ? 2 : 1;
+                return followedByEquals ? Opcode.IF_GE : Opcode.IF_GT;
+            case '<':
+                pos += followedByEquals ? 2 : 1;
+                return followedByEquals ? Opcode.IF_LE : Opcode.IF_LT;
+            case '=':
+                if (!followedByEquals) return null;
+                pos += 2;
+                return Opcode.IF_EQ;
+            case '!':
+                if (!followedByEquals) return null;
+                pos += 2;
+                return Opcode.IF_NE;
+            default:
+                return null;
+        }
+    }
+
+    // Advances over operand characters and returns the end index of the run
+    private int scanOperand() {
+        while (pos < end && isOperandChar(input.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private void skipSpaces() {
+        while (pos < end && isSpace(input.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private void skipLine() {
+        while (pos < end && input.charAt(pos) != '\n') {
+            pos++;
+        }
+        if (pos < end) {
+            pos++;
+        }
+    }
+
+    private boolean atLineEnd() {
+        return pos >= end || input.charAt(pos) == '\n';
+    }
+
+    private boolean matches(int start, int stop, String keyword) {
+        if (stop - start != keyword.length()) return false;
+        for (int i = 0; i < keyword.length(); i++) {
+            if (input.charAt(start + i) != keyword.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isOperandChar(char c) {
+        switch (c) {
+            case ' ': case '\t': case '\r': case '\f': case '\n':
+            case '+': case '-': case '*': case '/': case '%':
+            case '=': case '<': case '>': case '!': case ',': case ':':
+            case '(': case ')':
+                return false;
+            default:
+                return true;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.CC.LowLevel_Language.compiler.result;
 
 
 import com.CC.LowLevel_Language.compiler.analysis.ConversionStatistics;
+import com.CC.LowLevel_Language.compiler.generator.AssemblyGenerator;
 import com.CC.LowLevel_Language.compiler.generator.AssemblyInstruction;
 import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
 
@@ -12,7 +13,9 @@ public class ConversionResult {
     private boolean success;
     private String message;
     private List<TACInstruction> tacInstructions;
+    private int instructionCount;
     private List<String> assemblyLines;
+    private int assemblyLineCount;
     private List<AssemblyInstruction> assemblyInstructions;
     private String assemblyCode;
     private Map<Integer, List<String>> registerStates;
@@ -28,19 +31,56 @@ public class ConversionResult {
     public List<TACInstruction> getTacInstructions() { return tacInstructions; }
     public void setTacInstructions(List<TACInstruction> instructions) {
         this.tacInstructions = instructions;
+        this.instructionCount = instructions != null ? instructions.size() : 0;
     }
 
-    public List<String> getAssemblyLines() { return assemblyLines; }
+    public int getInstructionCount() { return instructionCount; }
+    public void setInstructionCount(int count) { this.instructionCount = count; }
+
+    // Rendered or split on first use; most callers only need the text or the instructions
+    public List<String> getAssemblyLines() {
+        if (assemblyLines == null && assemblyInstructions != null) {
+            List<String> lines = new ArrayList<>(assemblyInstructions.size());
+            for (AssemblyInstruction instruction : assemblyInstructions) {
+                lines.add(instruction.toString());
+            }
+            assemblyLines = lines;
+        } else if (assemblyLines == null && assemblyCode != null) {
+            assemblyLines = AssemblyGenerator.splitLines(assemblyCode);
+        }
+        return assemblyLines;
+    }
     public void setAssemblyLines(List<String> lines) {
         this.assemblyLines = lines;
+        this.assemblyLineCount = lines != null ? lines.size() : 0;
     }
 
-    public List<AssemblyInstruction> getAssemblyInstructions() { return assemblyInstructions; }
+    public int getAssemblyLineCount() { return assemblyLineCount; }
+    public void setAssemblyLineCount(int count) { this.assemblyLineCount = count; }
+
+    // Parsed from the assembly text when only the text was produced
+    public List<AssemblyInstruction> getAssemblyInstructions() {
+        if (assemblyInstructions == null && assemblyCode != null) {
+            List<AssemblyInstruction> instructions = new ArrayList<>();
+            for (String line : getAssemblyLines()) {
+                instructions.add(AssemblyInstruction.parse(line));
+            }
+            assemblyInstructions = instructions;
+        }
+        return assemblyInstructions;
+    }
     public void setAssemblyInstructions(List<AssemblyInstruction> instructions) {
         this.assemblyInstructions = instructions;
+        this.assemblyLineCount = instructions != null ? instructions.size() : 0;
     }
 
-    public String getAssemblyCode() { return assemblyCode; }
+    // Rendered from the instructions on first use
+    public String getAssemblyCode() {
+        if (assemblyCode == null && assemblyInstructions != null) {
+            assemblyCode = AssemblyInstruction.render(assemblyInstructions);
+        }
+        return assemblyCode;
+    }
     public void setAssemblyCode(String code) { this.assemblyCode = code; }
 
     public Map<Integer, List<String>> getRegisterStates() { return registerStates; }
@@ -144,9 +144,9 @@ async function runV2Complete() {
 }
 
 async function runV2Assembly() {
-    const tacCode = document.getElementById('tacCodeV2').value.trim();
+    const tacCode = document.getElementById('tacCodeV2').value;
     
-    if (!tacCode) {
+    if (!tacCode.trim()) {
         alert('Please enter TAC code');
         return;
     }
@@ -154,13 +154,7 @@ async function runV2Assembly() {
     showLoading(true);
     
     try {
-        const response = await fetch(`${API_BASE}/v2/assembly`, {
-            method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ tacCode })
-        });
-        
-        const result = await response.json();
+        const result = await postDocument(tacCode);
         
         if (result.success) {
             displayV2Assembly(result);
@@ -177,6 +171,83 @@ async function runV2Assembly() {
     }
 }
 
+// ========== INCREMENTAL DOCUMENT ==========
+
+// The server keeps the parsed document, so after the first post only the changed lines are sent
+const tacDocument = { id: null, version: 0, lines: null };
+let liveAssemblyTimer = null;
+
+async function postDocument(tacCode) {
+    const lines = tacCode.split('\n');
+    let result = null;
+    if (tacDocument.id !== null) {
+        result = await sendDocument({
+            documentId: tacDocument.id,
+            baseVersion: tacDocument.version,
+            edits: [lineEdit(tacDocument.lines, lines)]
+        });
+    }
+    if (result === null || result.resync) {
+        // Each client line is one server line, including a trailing empty one
+        result = await sendDocument({ documentId: tacDocument.id, tacCode: lines.join('\n') + '\n' });
+    }
+    if (result.resync) {
+        tacDocument.id = null;
+    } else {
+        tacDocument.id = result.documentId;
+        tacDocument.version = result.version;
+        tacDocument.lines = lines;
+    }
+    return result;
+}
+
+async function sendDocument(body) {
+    const response = await fetch(`${API_BASE}/v2/document`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify(body)
+    });
+    return response.json();
+}
+
+// Replaces the lines between the common prefix and the common suffix
+function lineEdit(oldLines, newLines) {
+    let start = 0;
+    while (start < oldLines.length && start < newLines.length && oldLines[start] === newLines[start]) {
+        start++;
+    }
+    let oldEnd = oldLines.length;
+    let newEnd = newLines.length;
+    while (oldEnd > start && newEnd > start && oldLines[oldEnd - 1] === newLines[newEnd - 1]) {
+        oldEnd--;
+        newEnd--;
+    }
+    const inserted = newLines.slice(start, newEnd);
+    return {
+        startLine: start,
+        removedLines: oldEnd - start,
+        newText: inserted.length > 0 ? inserted.join('\n') + '\n' : ''
+    };
+}
+
+// Keeps the assembly view current while typing, once it has been shown
+function scheduleLiveAssembly() {
+    clearTimeout(liveAssemblyTimer);
+    liveAssemblyTimer = setTimeout(async () => {
+        const section = document.getElementById('v2Assembly');
+        const tacCode = document.getElementById('tacCodeV2').value;
+        if (section.style.display === 'none' || !tacCode.trim()) return;
+        try {
+            const result = await postDocument(tacCode);
+            if (result.success) displayV2Assembly(result);
+        } catch (error) {
+            console.warn('Live assembly update failed:', error);
+        }
+    }, 300);
+}
+
+document.getElementById('tacCodeV2').addEventListener('input', scheduleLiveAssembly);
+
 async function runV2Resources() {
     const tacCode = document.getElementById('tacCodeV2').value.trim();
     
@@ -247,6 +318,7 @@ async function runV2Optimize() {
 
 function clearV2() {
     document.getElementById('tacCodeV2').value = '';
+    tacDocument.id = null;
     document.getElementById('v2Results').style.display = 'none';
     hideV2Section('v2Assembly');
     hideV2Section('v2Resources');
@@ -0,0 +1,56 @@
+package com.CC.LowLevel_Language.api.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.api.dto.CompilationRequest;
+import com.CC.LowLevel_Language.api.dto.DocumentEditRequest;
+import com.CC.LowLevel_Language.api.dto.DocumentResponse;
+
+class ConversionControllerTests {
+
+	@Test
+	void editedDocumentMatchesFullCompile() {
+		ConversionController controller = new ConversionController();
+
+		DocumentEditRequest open = new DocumentEditRequest();
+		open.setTacCode("a = 5\nb = a + 2\n\nreturn b\n");
+		DocumentResponse opened = controller.documentAssembly(open);
+		assertTrue(opened.isSuccess(), opened.getMessage());
+
+		DocumentResponse edited = controller.documentAssembly(edit(opened, 1, 1, "b = a * 3\nc = b - 1\n"));
+		assertTrue(edited.isSuccess(), edited.getMessage());
+		assertEquals(opened.getVersion() + 1, edited.getVersion());
+		assertNotNull(edited.getAssemblyCode());
+		assertEquals(assemble("a = 5\nb = a * 3\nc = b - 1\n\nreturn b\n"), edited.getAssemblyCode());
+
+		// An edit made against an older version asks for the full text instead of applying it
+		DocumentResponse stale = controller.documentAssembly(edit(opened, 0, 1, "a = 6\n"));
+		assertFalse(stale.isSuccess());
+		assertTrue(stale.isResync());
+	}
+
+	private static DocumentEditRequest edit(DocumentResponse base, int startLine, int removedLines, String newText) {
+		DocumentEditRequest.Edit edit = new DocumentEditRequest.Edit();
+		edit.setStartLine(startLine);
+		edit.setRemovedLines(removedLines);
+		edit.setNewText(newText);
+		DocumentEditRequest request = new DocumentEditRequest();
+		request.setDocumentId(base.getDocumentId());
+		request.setBaseVersion(base.getVersion());
+		request.setEdits(List.of(edit));
+		return request;
+	}
+
+	private static String assemble(String tacCode) {
+		CompilationRequest request = new CompilationRequest();
+		request.setTacCode(tacCode);
+		return new ConversionController().assemblyConversionOnly(request).getAssemblyCode();
+	}
+}
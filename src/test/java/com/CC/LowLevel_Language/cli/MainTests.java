@@ -0,0 +1,47 @@
+package com.CC.LowLevel_Language.cli;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MainTests {
+
+	@Test
+	void rejectsWhitespaceOnlyInput(@TempDir Path directory) throws Exception {
+		Path input = Files.writeString(directory.resolve("blank.tac"), "  \n\n ");
+		Path output = directory.resolve("blank.asm");
+
+		// Streamed from a reader, memory-mapped, and parsed in parallel from a string and a mapping
+		for (String[] mode : new String[][] {{"--allocator=linear-scan"}, {"--mmap"}, {"--parallel"},
+				{"--parallel", "--mmap"}}) {
+			List<String> args = new ArrayList<>(List.of(mode));
+			args.add(input.toString());
+			args.add(output.toString());
+			String errors = runCapturingErrors(args.toArray(new String[0]));
+			assertTrue(errors.contains("Input file is empty"), String.join(" ", mode) + ": " + errors);
+			assertFalse(Files.exists(output), String.join(" ", mode));
+		}
+	}
+
+	private static String runCapturingErrors(String... args) {
+		PrintStream original = System.err;
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+		try {
+			Main.main(args);
+		} finally {
+			System.setErr(original);
+		}
+		return errors.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,95 @@
+package com.CC.LowLevel_Language.compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.analysis.ResourceAnalysisResult;
+import com.CC.LowLevel_Language.compiler.analysis.ResourceAnalyzer;
+import com.CC.LowLevel_Language.compiler.optimizer.AssemblyOptimizer;
+import com.CC.LowLevel_Language.compiler.optimizer.OptimizationResult;
+import com.CC.LowLevel_Language.compiler.result.ConversionResult;
+
+class ConcurrentCompilationTests {
+
+	private static final int THREADS = 8;
+	private static final int PROGRAMS = 64;
+
+	@Test
+	void sharedStagesCompileConcurrently() throws Exception {
+		List<String> programs = new ArrayList<>();
+		for (int i = 0; i < PROGRAMS; i++) {
+			programs.add(program(i));
+		}
+
+		// Expected output from a fresh pipeline per program, on one thread
+		List<String> expected = new ArrayList<>();
+		for (String program : programs) {
+			expected.add(compile(program, new TACtoAssemblyConverter(), new AssemblyOptimizer(), new ResourceAnalyzer()));
+		}
+
+		TACtoAssemblyConverter converter = new TACtoAssemblyConverter();
+		AssemblyOptimizer optimizer = new AssemblyOptimizer();
+		ResourceAnalyzer analyzer = new ResourceAnalyzer();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<String>> results = new ArrayList<>();
+			for (int round = 0; round < 4; round++) {
+				for (String program : programs) {
+					results.add(executor.submit(() -> {
+						start.await();
+						return compile(program, converter, optimizer, analyzer);
+					}));
+				}
+			}
+			start.countDown();
+
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals(expected.get(i % PROGRAMS), results.get(i).get(30, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static String compile(String program, TACtoAssemblyConverter converter,
+			AssemblyOptimizer optimizer, ResourceAnalyzer analyzer) {
+		ConversionResult conversion = converter.convertWithDetails(program);
+		OptimizationResult optimization = optimizer.optimize(conversion.getAssemblyInstructions());
+		ResourceAnalysisResult analysis = analyzer.analyze(conversion.getAssemblyInstructions());
+		return conversion.getAssemblyCode()
+				+ optimization.getOptimizedCode()
+				+ optimization.getOptimizationLogs()
+				+ optimization.getOptimizationsApplied()
+				+ new HashSet<>(analysis.getRegistersUsed())
+				+ analysis.getInstructionTypes();
+	}
+
+	// Programs differ in variable count, so register assignment and spilling differ too
+	private static String program(int seed) {
+		StringBuilder program = new StringBuilder();
+		int variables = 2 + seed % 9;
+		for (int i = 0; i < variables; i++) {
+			program.append("v").append(i).append(" = ").append(seed + i).append('\n');
+		}
+		for (int i = 1; i < variables; i++) {
+			program.append("t").append(i).append(" = v").append(i - 1).append(" * v").append(i).append('\n');
+		}
+		program.append("r = (v0 + ").append(seed).append(") * (v1 - t1) / 3\n");
+		program.append("if r > ").append(seed).append(" goto L").append(seed).append('\n');
+		program.append("r = r + 0\n");
+		program.append("L").append(seed).append(":\n");
+		program.append("return r\n");
+		return program.toString();
+	}
+}
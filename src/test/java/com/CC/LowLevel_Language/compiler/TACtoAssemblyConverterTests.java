@@ -0,0 +1,47 @@
+package com.CC.LowLevel_Language.compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.generator.ByteBufferSink;
+import com.CC.LowLevel_Language.compiler.generator.CompilationOptions;
+import com.CC.LowLevel_Language.compiler.result.ConversionResult;
+
+class TACtoAssemblyConverterTests {
+
+	private static final String PROGRAM = String.join("\n",
+			"a = 5", "b = 3", "i = 0",
+			"L1:",
+			"a = (a + b) * 2",
+			"i = i + 1",
+			"if i < 4 goto L1",
+			"c = a % b",
+			"return c", "");
+
+	@Test
+	void streamedConversionMatchesStringConversion() {
+		// Sequential allocation streams without buffering; linear scan buffers the program first
+		for (String strategy : new String[] {"sequential", "linear-scan"}) {
+			CompilationOptions options = new CompilationOptions();
+			options.setRegisterAllocationStrategy(strategy);
+			TACtoAssemblyConverter converter = new TACtoAssemblyConverter(options);
+			String expected = converter.convertWithDetails(PROGRAM).getAssemblyCode();
+
+			StringBuilder text = new StringBuilder();
+			ConversionResult streamed = converter.convert(new StringReader(PROGRAM), text);
+			assertTrue(streamed.isSuccess(), streamed.getMessage());
+			assertEquals(expected, text.toString(), strategy);
+
+			ByteBufferSink sink = new ByteBufferSink(ByteBuffer.allocate(64 * 1024));
+			assertTrue(converter.convert(new StringReader(PROGRAM), sink).isSuccess());
+			ByteBuffer buffer = sink.getBuffer().flip();
+			assertEquals(expected, StandardCharsets.US_ASCII.decode(buffer).toString(), strategy);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.parser.TACParser;
+
+class GraphColoringAllocatorTests {
+
+	private static final String PROGRAM = String.join("\n",
+			"a = 5",
+			"b = a + 1",
+			"c = b",
+			"d = c * a",
+			"e = d",
+			"x = a + e",
+			"return x", "");
+
+	@Test
+	void coalescesCopiesIntoOneRegister() {
+		SymbolTable symbols = new SymbolTable();
+		Map<String, LiveInterval> intervals = allocate(PROGRAM, symbols, "eax", "ebx");
+
+		assertEquals(intervals.get("b").getRegister(), intervals.get("c").getRegister());
+		assertEquals(intervals.get("d").getRegister(), intervals.get("e").getRegister());
+		assertNotEquals(intervals.get("a").getRegister(), intervals.get("e").getRegister());
+		assertTrue(symbols.getInterferingVariables("a").contains("e"));
+		assertFalse(symbols.getInterferingVariables("b").contains("d"));
+	}
+
+	@Test
+	void spillsWhenTheGraphCannotBeColored() {
+		Map<String, LiveInterval> intervals = allocate(PROGRAM, new SymbolTable(), "eax");
+
+		// a overlaps every other interval, so a single register cannot hold them all
+		long spilled = intervals.values().stream().filter(LiveInterval::isSpilled).count();
+		assertTrue(spilled > 0);
+		for (LiveInterval interval : intervals.values()) {
+			for (LiveInterval other : intervals.values()) {
+				boolean overlap = interval != other && interval.getStart() <= other.getEnd()
+						&& other.getStart() <= interval.getEnd();
+				if (overlap && !interval.isSpilled()) {
+					assertNotEquals(interval.getRegister(), other.getRegister());
+				}
+			}
+		}
+	}
+
+	private static Map<String, LiveInterval> allocate(String program, SymbolTable symbols, String... registers) {
+		Map<String, LiveInterval> byName = new HashMap<>();
+		List<LiveInterval> intervals = new GraphColoringAllocator().allocate(new TACParser().parseCode(program),
+				Arrays.asList(registers), symbols);
+		for (LiveInterval interval : intervals) {
+			byName.put(interval.getVariable(), interval);
+		}
+		return byName;
+	}
+}
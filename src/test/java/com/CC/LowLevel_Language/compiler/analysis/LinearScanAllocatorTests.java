@@ -0,0 +1,139 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.parser.Opcode;
+import com.CC.LowLevel_Language.compiler.parser.TACParser;
+
+class LinearScanAllocatorTests {
+
+	private final LinearScanAllocator allocator = new LinearScanAllocator();
+
+	@Test
+	void reusesExpiredRegistersAndSpillsFurthestNextUse() {
+		SymbolTable symbols = new SymbolTable();
+		Map<String, LiveInterval> intervals = allocate(String.join("\n",
+				"a = 1", "b = 2", "c = 3",
+				"x = a + c",
+				"y = x + b",
+				"return y", ""), symbols, "eax", "ebx");
+
+		// b is next read two instructions after a and c, so it goes to memory
+		assertTrue(intervals.get("b").isSpilled());
+		assertEquals("eax", intervals.get("a").getRegister());
+		assertEquals("ebx", intervals.get("c").getRegister());
+		// a and c are last read where x is written, which takes over their registers
+		assertEquals("eax", intervals.get("x").getRegister());
+		assertEquals("ebx", intervals.get("y").getRegister());
+
+		SymbolTable.SymbolInfo b = symbols.getAllSymbols().stream()
+				.filter(symbol -> symbol.getName().equals("b")).findFirst().get();
+		assertEquals(1, b.getStartLine());
+		assertEquals(4, b.getEndLine());
+	}
+
+	@Test
+	void keepsValuesLiveAroundLoops() {
+		Map<String, LiveInterval> intervals = allocate(String.join("\n",
+				"i = 0", "s = 0",
+				"L1:",
+				"t = i * 2",
+				"s = s + t",
+				"i = i + 1",
+				"if i < 5 goto L1",
+				"u = 9",
+				"return s", ""), new SymbolTable(), "eax", "ebx", "ecx");
+
+		// i is read at the top of the loop and written below, so it stays live around the back edge
+		LiveInterval i = intervals.get("i");
+		assertEquals(LiveInterval.definitionPosition(0), i.getStart());
+		assertEquals(LiveInterval.definitionPosition(6), i.getEnd());
+		// t never lives from one iteration into the next
+		LiveInterval t = intervals.get("t");
+		assertEquals(LiveInterval.definitionPosition(3), t.getStart());
+		assertEquals(LiveInterval.usePosition(4), t.getEnd());
+		assertFalse(intervals.get("s").isSpilled());
+		// t's register was the first to come free, and u takes it after the loop
+		assertEquals(t.getRegister(), intervals.get("u").getRegister());
+	}
+
+	@Test
+	void keepsValuesLiveAcrossADivisionOutOfEaxAndEdx() {
+		RegisterConstraint idiv = new RegisterConstraint(List.of("eax", "edx"), "eax", null);
+		Map<String, LiveInterval> intervals = allocate(String.join("\n",
+				"a = 7", "b = 2", "k = 5",
+				"q = a / b",
+				"r = q + k",
+				"return r", ""), new SymbolTable(),
+				instruction -> instruction.getOpcode() == Opcode.DIV ? idiv : null,
+				"eax", "ebx", "ecx", "edx", "esi");
+
+		for (String name : List.of("a", "b", "k")) {
+			String register = intervals.get(name).getRegister();
+			assertFalse(register.equals("eax") || register.equals("edx"), name + " in " + register);
+		}
+		// The quotient is produced in eax, so it is kept there
+		assertEquals("eax", intervals.get("q").getRegister());
+	}
+
+	@Test
+	void givesCopiesTheRegisterOfTheirSource() {
+		Map<String, LiveInterval> intervals = allocate(String.join("\n",
+				"a = 4", "k = 1",
+				"b = a",
+				"c = b + k",
+				"d = c",
+				"e = d + a",
+				"return e", ""), new SymbolTable(), "eax", "ebx", "ecx", "edx");
+
+		// c is last read by the copy, so d takes its register and the copy is a self-move
+		assertEquals(intervals.get("c").getRegister(), intervals.get("d").getRegister());
+		// a is still live after the copy, so b cannot share its register
+		assertFalse(intervals.get("a").getRegister().equals(intervals.get("b").getRegister()));
+	}
+
+	@Test
+	void rematerializesConstantsInsteadOfSpillingThem() {
+		Map<String, LiveInterval> intervals = allocate(String.join("\n",
+				"a = 1", "b = 2", "k = 5", "n = 3",
+				"L1:",
+				"a = a + k",
+				"b = b + a",
+				"if a < 100 goto L1",
+				"n = n + b",
+				"return n", ""), new SymbolTable(), "eax", "ebx", "ecx");
+
+		// k is only ever 5, so it gives up its register although the loop reads it
+		LiveInterval k = intervals.get("k");
+		assertEquals("5", k.getConstant());
+		assertTrue(k.isRematerialized());
+		// a and b are written again in the loop and must keep a home
+		assertEquals(null, intervals.get("a").getConstant());
+		assertFalse(intervals.get("a").isSpilled());
+		assertFalse(intervals.get("b").isSpilled());
+	}
+
+	private Map<String, LiveInterval> allocate(String program, SymbolTable symbols, String... registers) {
+		return allocate(program, symbols, RegisterConstraints.NONE, registers);
+	}
+
+	private Map<String, LiveInterval> allocate(String program, SymbolTable symbols, RegisterConstraints constraints,
+			String... registers) {
+		Map<String, LiveInterval> byName = new HashMap<>();
+		List<LiveInterval> intervals = allocator.allocate(new TACParser().parseCode(program),
+				Arrays.asList(registers), constraints, symbols);
+		for (LiveInterval interval : intervals) {
+			byName.put(interval.getVariable(), interval);
+		}
+		return byName;
+	}
+}
@@ -0,0 +1,75 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+import com.CC.LowLevel_Language.compiler.parser.TACParser;
+
+class LivenessTests {
+
+	@Test
+	void solvesAcrossBranchesAndBackEdges() {
+		List<TACInstruction> program = new TACParser().parseCode(String.join("\n",
+				"i = 0",
+				"s = 0",
+				"L1:",
+				"t = i * 2",
+				"s = s + t",
+				"i = i + 1",
+				"if i < 5 goto L1",
+				"d = s + 1",
+				"return s", ""));
+		Liveness liveness = Liveness.analyze(program);
+		ControlFlowGraph graph = liveness.getGraph();
+
+		assertEquals(3, graph.getBlockCount());
+		assertArrayEquals(new int[] {2, 1}, graph.getSuccessors(1));
+		assertArrayEquals(new int[] {0, 1}, graph.getPredecessors(1));
+		assertEquals(0, graph.getSuccessors(2).length);
+		assertEquals(0, graph.getLoopDepth(0));
+		assertEquals(1, graph.getLoopDepth(1));
+		assertEquals(0, graph.getLoopDepth(2));
+
+		// i and s are carried around the back edge; t is not
+		assertEquals(List.of("i", "s"), names(liveness, liveness.getBlockLiveIn(1)));
+		assertEquals(List.of("i", "s", "t"), names(liveness, liveness.getLiveOut(3)));
+		assertEquals(List.of("s"), names(liveness, liveness.getLiveIn(7)));
+		assertEquals(3, liveness.getMaxLive());
+
+		assertTrue(liveness.isDeadDefinition(7));
+		assertFalse(liveness.isDeadDefinition(5));
+	}
+
+	@Test
+	void answersQueriesInsideLongBlocks() {
+		StringBuilder code = new StringBuilder("v0 = 1\n");
+		for (int i = 1; i < 300; i++) {
+			code.append("v").append(i).append(" = v").append(i - 1).append(" + 1\n");
+		}
+		code.append("return v0\n");
+		Liveness liveness = Liveness.analyze(new TACParser().parseCode(code.toString()));
+
+		// v0 stays live to the end while each later value dies at the next instruction
+		for (int i = 1; i < 299; i++) {
+			assertEquals(List.of("v0", "v" + i), names(liveness, liveness.getLiveOut(i)));
+		}
+		assertEquals(List.of("v0"), names(liveness, liveness.getLiveOut(299)));
+		assertTrue(liveness.isDeadDefinition(299));
+	}
+
+	private List<String> names(Liveness liveness, long[] set) {
+		List<String> names = new ArrayList<>();
+		for (int v = Liveness.nextMember(set, 0); v >= 0; v = Liveness.nextMember(set, v + 1)) {
+			names.add(liveness.getVariable(v).getText());
+		}
+		return names;
+	}
+}
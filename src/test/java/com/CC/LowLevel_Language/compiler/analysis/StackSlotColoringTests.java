@@ -0,0 +1,37 @@
+package com.CC.LowLevel_Language.compiler.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class StackSlotColoringTests {
+
+	@Test
+	void sharesSlotsBetweenSpillsThatAreNeverLiveTogether() {
+		SymbolTable symbols = new SymbolTable();
+		LiveInterval x = spill("x", 1, 5, symbols);
+		LiveInterval y = spill("y", 3, 9, symbols);
+		LiveInterval kept = spill("kept", 4, 20, symbols);
+		kept.setRegister("eax");
+		LiveInterval z = spill("z", 7, 11, symbols);
+		LiveInterval w = spill("w", 10, 12, symbols);
+
+		assertEquals(2, StackSlotColoring.assign(List.of(x, y, kept, z, w), symbols, 4));
+		assertEquals(8, symbols.getFrameSize());
+		assertEquals(-4, symbols.getSymbolStackOffset("x"));
+		assertEquals(-8, symbols.getSymbolStackOffset("y"));
+		// z starts after x ended; w after y ended
+		assertEquals(-4, symbols.getSymbolStackOffset("z"));
+		assertEquals(-8, symbols.getSymbolStackOffset("w"));
+		assertEquals(-1, symbols.getSymbolStackOffset("kept"));
+	}
+
+	private static LiveInterval spill(String name, int start, int end, SymbolTable symbols) {
+		LiveInterval interval = new LiveInterval(name, name.hashCode(), start);
+		interval.addUse(end, 1);
+		symbols.addSymbol(name, start);
+		return interval;
+	}
+}
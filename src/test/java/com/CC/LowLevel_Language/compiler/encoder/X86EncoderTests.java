@@ -0,0 +1,149 @@
+package com.CC.LowLevel_Language.compiler.encoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.CC.LowLevel_Language.compiler.TACtoAssemblyConverter;
+import com.CC.LowLevel_Language.compiler.generator.AssemblyInstruction;
+import com.CC.LowLevel_Language.compiler.generator.CompilationOptions;
+import com.CC.LowLevel_Language.compiler.generator.TargetArchitecture;
+
+class X86EncoderTests {
+
+	private final X86Encoder encoder = new X86Encoder(TargetArchitecture.X86_64, false);
+
+	@Test
+	void encodesModRmSibAndRexForms() {
+		assertEquals("89 d8", encode("mov eax, ebx"));
+		assertEquals("83 c1 05", encode("add ecx, 5"));
+		assertEquals("81 ee e8 03 00 00", encode("sub esi, 1000"));
+		assertEquals("f7 7c 24 08", encode("idiv dword [rsp + 8]"));
+		assertEquals("8b 85 c8 00 00 00", encode("mov eax, [rbp + 200]"));
+		assertEquals("8b 0c 98", encode("mov ecx, [rax + rbx*4]"));
+		assertEquals("41 53", encode("push r11"));
+		assertEquals("48 99", encode("cqo"));
+		assertEquals("48 0f af d7", encode("imul rdx, rdi"));
+		assertEquals("41 b8 07 00 00 00", encode("mov r8d, 7"));
+		assertEquals("0f 05", encode("syscall"));
+		// Variables kept in memory are addressed RIP-relative, right after the text
+		assertEquals("8b 3d 0a 00 00 00", encode("mov edi, [x]"));
+
+		assertThrows(IllegalArgumentException.class, () -> encode("mov [a], [b]"));
+		assertThrows(IllegalArgumentException.class, () -> encode("push eax"));
+	}
+
+	@Test
+	void relaxesOnlyJumpsThatDoNotFit() {
+		List<AssemblyInstruction> code = new ArrayList<>();
+		code.add(AssemblyInstruction.parse("top:"));
+		code.add(AssemblyInstruction.parse("jmp top"));
+		code.add(AssemblyInstruction.parse("jne far"));
+		for (int i = 0; i < 100; i++) {
+			code.add(AssemblyInstruction.parse("add eax, ebx"));
+		}
+		code.add(AssemblyInstruction.parse("far:"));
+		code.add(AssemblyInstruction.parse("jle top"));
+
+		byte[] text = encoder.encode(code, 0).getText();
+		assertEquals("eb fe", hex(Arrays.copyOfRange(text, 0, 2)));
+		// 100 two-byte adds push the forward target out of rel8 range
+		assertEquals("0f 85 c8 00 00 00", hex(Arrays.copyOfRange(text, 2, 8)));
+		assertEquals(8 + 200 + 6, text.length);
+		assertEquals("0f 8e", hex(Arrays.copyOfRange(text, 208, 210)));
+	}
+
+	@Test
+	void writesElfExecutable() throws Exception {
+		CompilationOptions options = new CompilationOptions();
+		options.setTargetArchitecture("x86-64");
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		int textSize = new TACtoAssemblyConverter(options).writeExecutable("a = 5\nb = a + 2\n", output);
+
+		ByteBuffer elf = ByteBuffer.wrap(output.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(64 + 56 + textSize, elf.limit());
+		assertEquals(0x464C457F, elf.getInt(0));
+		assertEquals(2, elf.get(4));
+		assertEquals(0x3E, elf.getShort(18));
+		assertEquals(ElfWriter.textAddress(TargetArchitecture.X86_64), elf.getLong(24));
+		assertEquals("0f 05", hex(Arrays.copyOfRange(elf.array(), elf.limit() - 2, elf.limit())));
+	}
+
+	@Test
+	void writtenExecutableExitsWithReturnedValue(@TempDir Path directory) throws Exception {
+		assumeTrue(System.getProperty("os.name").startsWith("Linux") && System.getProperty("os.arch").contains("64"));
+		for (String target : List.of("x86", "x86-64")) {
+			CompilationOptions options = new CompilationOptions();
+			options.setTargetArchitecture(target);
+			TACtoAssemblyConverter converter = new TACtoAssemblyConverter(options);
+
+			assertEquals(42, run(converter, "a = 40\nb = a + 2\nif b > 50 goto L1\nreturn b\nL1:\nreturn a\n",
+					directory.resolve(target + "-return")), target);
+			assertEquals(0, run(converter, "a = 5\nb = a * 3\n", directory.resolve(target + "-end")), target);
+			assertEquals(42, run(converter, spilledLoop("return r\n"), directory.resolve(target + "-spilled")), target);
+		}
+	}
+
+	@Test
+	void writtenExecutableCallsWithStackedArguments(@TempDir Path directory) throws Exception {
+		assumeTrue(System.getProperty("os.name").startsWith("Linux") && System.getProperty("os.arch").contains("64"));
+		// More arguments than argument registers, some of them spilled; F's return exits the program
+		String program = spilledLoop("call F, r, n, 7, k, r, n, k, r\nreturn 1\nF:\nreturn 42\n");
+		for (String target : List.of("x86", "x86-64")) {
+			CompilationOptions options = new CompilationOptions();
+			options.setTargetArchitecture(target);
+			assertEquals(42, run(new TACtoAssemblyConverter(options), program, directory.resolve(target)), target);
+		}
+	}
+
+	// The loop keeps more variables live than there are registers, so r ends up in a frame slot
+	private static String spilledLoop(String tail) {
+		StringBuilder program = new StringBuilder("k = 1\nr = k + 41\nn = 0\n");
+		for (int i = 0; i < 14; i++) {
+			program.append("v").append(i).append(" = ").append(i).append('\n');
+		}
+		program.append("L1:\n");
+		for (int i = 0; i < 14; i++) {
+			program.append("v").append(i).append(" = v").append(i).append(" + v").append((i + 1) % 14).append('\n');
+		}
+		return program.append("n = n + 1\nif n < 100 goto L1\n").append(tail).toString();
+	}
+
+	private static int run(TACtoAssemblyConverter converter, String program, Path file) throws Exception {
+		try (OutputStream output = Files.newOutputStream(file)) {
+			converter.writeExecutable(program, output);
+		}
+		assertTrue(file.toFile().setExecutable(true));
+		Process process = new ProcessBuilder(file.toString()).start();
+		assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+		return process.exitValue();
+	}
+
+	private String encode(String line) {
+		return hex(encoder.encode(List.of(AssemblyInstruction.parse(line)), 0).getText());
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder text = new StringBuilder();
+		for (byte b : bytes) {
+			if (text.length() > 0) text.append(' ');
+			text.append(String.format("%02x", b & 0xFF));
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,130 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.parser.TACParser;
+
+class InstructionSelectionTests {
+
+	@Test
+	void coversTreesWithLeaAndInPlaceTiles() {
+		List<String> code = generate(String.join("\n",
+				"a = 5", "b = 3",
+				"c = a + b",
+				"b = a + b",
+				"d = a * 5",
+				"e = a * 7",
+				"f = a - b",
+				"f = b - f",
+				"t1 = a + b * 4 - 8", ""));
+
+		assertEquals(List.of(
+				"mov eax, 5", "mov ebx, 3",
+				"lea ecx, [eax + ebx]",
+				"add ebx, eax",
+				"lea edx, [eax + eax*4]",
+				"imul esi, eax, 7",
+				"mov edi, eax", "sub edi, ebx",
+				"neg edi", "add edi, ebx",
+				"lea ecx, [eax + ebx*4 - 8]"), code);
+	}
+
+	@Test
+	void dividesByConstantsWithoutIdiv() {
+		ConstantDivisor seven = ConstantDivisor.of("7", false);
+		assertEquals(-1840700269L, seven.getMagic());
+		assertEquals(2, seven.getShift());
+		assertTrue(seven.needsAdd());
+		assertEquals(1431655766L, ConstantDivisor.of("-3", false).getMagic());
+		assertEquals(3, ConstantDivisor.of("-8", true).getPowerOfTwo());
+		assertEquals(null, ConstantDivisor.of("0", false));
+
+		List<String> constant = generate("a = 5\nb = a / 7\nc = a % 8\n");
+		assertFalse(constant.stream().anyMatch(line -> line.startsWith("idiv")));
+		assertTrue(constant.contains("mov eax, -1840700269"));
+		assertTrue(constant.contains("and edx, -8"));
+
+		// c is given edx, where idiv leaves the remainder, and nothing live needs saving around it
+		List<String> general = generate("a = 5\nb = 3\nc = a % b\nreturn c\n");
+		assertTrue(general.contains("idiv ecx"));
+		assertTrue(general.contains("mov eax, edx ; prepare return value"));
+		assertFalse(general.stream().anyMatch(line -> line.startsWith("push") || line.startsWith("pop")));
+	}
+
+	@Test
+	void parksARegisterWhenEveryRegisterIsReadByTheExpression() {
+		CompilationOptions options = new CompilationOptions();
+		options.setRegisterAllocationStrategy("sequential");
+		List<String> code = generate(String.join("\n",
+				"a = 1", "b = 2", "c = 3", "d = 4", "e = 5", "f = 6",
+				"g = (a + b) * (c + d) * (e + f)", ""), options);
+
+		// d's register holds the result while d itself is read back from the stack
+		assertEquals(List.of(
+				"push edx ; park",
+				"lea edx, [esi + edi]",
+				"push edx",
+				"mov edx, ecx",
+				"add edx, [esp + 4]",
+				"push edx",
+				"lea edx, [eax + ebx]",
+				"imul edx, dword [esp]",
+				"add esp, 4",
+				"imul edx, dword [esp]",
+				"add esp, 4",
+				"mov [g], edx",
+				"pop edx"), code.subList(6, code.size()));
+	}
+
+	@Test
+	void passesCallArgumentsPerTarget() {
+		String program = String.join("\n",
+				"a = 5", "b = 3",
+				"c = a + b",
+				"call print, c, a, 7",
+				"d = a * b",
+				"return d", "");
+
+		// a and b stay live across the call, so the allocator keeps them out of eax, ecx and edx
+		List<String> cdecl = generate(program);
+		int call = cdecl.indexOf("call print");
+		assertEquals(List.of(
+				"sub esp, 4 ; align stack",
+				"push 7",
+				"push ebx",
+				"push edi",
+				"call print",
+				"add esp, 16 ; drop arguments"), cdecl.subList(call - 4, call + 2));
+		assertFalse(cdecl.stream().anyMatch(line -> line.startsWith("push e") && line.contains("caller-saved")));
+
+		CompilationOptions options = new CompilationOptions();
+		options.setTargetArchitecture("x86-64");
+		List<String> systemV = generate(program, options);
+		call = systemV.indexOf("call print");
+		assertEquals(List.of(
+				"mov edi, r13d",
+				"mov esi, ebx",
+				"mov edx, 7",
+				"call print"), systemV.subList(call - 3, call + 1));
+	}
+
+	private static List<String> generate(String program) {
+		return generate(program, new CompilationOptions());
+	}
+
+	private static List<String> generate(String program, CompilationOptions options) {
+		List<String> lines = new AssemblyGenerator().generateAssembly(
+				new TACParser().parseCode(program).iterator(), new CompilationContext(options));
+		// Keep the program body only: no comments, directives, label or exit sequence
+		return lines.subList(0, lines.size() - 3).stream()
+				.filter(line -> !line.startsWith(";") && !line.startsWith(".") && !line.endsWith(":"))
+				.collect(Collectors.toList());
+	}
+}
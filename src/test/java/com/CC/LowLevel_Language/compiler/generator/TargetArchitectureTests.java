@@ -0,0 +1,70 @@
+package com.CC.LowLevel_Language.compiler.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.parser.TACParser;
+
+class TargetArchitectureTests {
+
+	private static final String PROGRAM = String.join("\n",
+			"a = 1", "b = 2", "c = 3", "d = 4", "e = 5", "f = 6", "g = 7",
+			"t1 = (a + b) % (g - 1)",
+			"return t1", "");
+
+	@Test
+	void x86_64AllocatesNumberedRegistersAndExitsThroughSyscall() {
+		List<String> i386 = generate(new CompilationOptions());
+		assertTrue(i386.contains("mov [g], 7"));
+		assertEquals("int 0x80       ; call kernel", i386.get(i386.size() - 1));
+
+		CompilationOptions options = new CompilationOptions();
+		options.setTargetArchitecture("amd64");
+		List<String> x64 = generate(options);
+		assertTrue(x64.contains("mov r8d, 7"));
+		assertTrue(x64.contains("push rax"));
+		assertTrue(x64.contains("idiv r10d"));
+		assertFalse(x64.stream().anyMatch(line -> line.startsWith("push e")));
+		assertEquals("mov eax, 60    ; sys_exit", x64.get(x64.size() - 2));
+		assertEquals("syscall        ; call kernel", x64.get(x64.size() - 1));
+
+		options.setUse64BitOperations(true);
+		List<String> wide = generate(options);
+		assertTrue(wide.contains("mov r8, 7"));
+		assertTrue(wide.contains("cqo                 ; sign extend rax to rdx:rax"));
+		assertTrue(wide.contains("idiv r10"));
+		assertTrue(wide.contains("mov rax, r9 ; prepare return value"));
+	}
+
+	@Test
+	void spillsColdVariablesToFrameSlotsAndKeepsLoopVariablesInRegisters() {
+		List<String> lines = new AssemblyGenerator().generateAssembly(new TACParser().parseCode(String.join("\n",
+				"a = 1", "b = a + 1", "c = b + 1", "d = c + 1", "e = d + 1", "f = e + 1", "g = f + 1",
+				"L1:",
+				"a = a + g",
+				"if a < 100 goto L1",
+				"t = b + c", "t = t + d", "t = t + e", "t = t + f",
+				"return t", "")).iterator(), new CompilationContext());
+
+		// Seven values are live across the loop, none of them a constant that could be
+		// rematerialized, so one of them, f, goes to the frame
+		assertEquals(List.of("push ebp", "mov ebp, esp", "sub esp, 4 ; spill slots"), lines.subList(5, 8));
+		assertTrue(lines.contains("mov [ebp - 4], esi"));
+		assertTrue(lines.contains("add eax, edi"));
+		assertTrue(lines.contains("add eax, [ebp - 4]"));
+		int ret = lines.indexOf("ret                     ; return from function");
+		assertEquals(List.of("mov esp, ebp", "pop ebp"), lines.subList(ret - 2, ret));
+	}
+
+	private static List<String> generate(CompilationOptions options) {
+		// First-come allocation keeps every variable in its own register or slot
+		options.setRegisterAllocationStrategy("sequential");
+		return new AssemblyGenerator().generateAssembly(
+				new TACParser().parseCode(PROGRAM).iterator(), new CompilationContext(options));
+	}
+}
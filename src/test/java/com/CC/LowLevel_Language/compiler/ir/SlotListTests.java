@@ -0,0 +1,110 @@
+package com.CC.LowLevel_Language.compiler.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SlotListTests {
+
+	@Test
+	void insertsAndRemovesInPlaceLeavingTombstones() {
+		IntList list = new IntList();
+		int first = list.append(1);
+		int middle = list.append(2);
+		int last = list.append(3);
+
+		int before = list.insertBefore(first, 0);
+		int after = list.insertAfter(middle, 25);
+		list.remove(middle);
+		list.remove(middle);
+		list.remove(last);
+		int tail = list.insertAfter(after, 4);
+
+		assertEquals(List.of(0, 1, 25, 4), list.forward());
+		assertEquals(List.of(4, 25, 1, 0), list.backward());
+		assertEquals(4, list.size());
+		assertEquals(6, list.slotCount());
+		assertEquals(before, list.first());
+		assertEquals(tail, list.last());
+
+		// Removed slots keep their number and value; live neighbours are relinked around them
+		assertTrue(list.isRemoved(middle));
+		assertFalse(list.isRemoved(after));
+		assertEquals(2, list.get(middle));
+		assertEquals(first, list.prev(after));
+		assertEquals(after, list.next(first));
+	}
+
+	@Test
+	void growsColumnsWithTheLinks() {
+		IntList list = new IntList();
+		for (int i = 0; i < 100; i++) {
+			list.insertBefore(list.first(), i);
+		}
+		list.remove(list.first());
+		list.remove(list.last());
+
+		assertEquals(98, list.size());
+		assertEquals(98, list.forward().get(0));
+		assertEquals(1, list.backward().get(0));
+	}
+
+	// Smallest subclass: one int column
+	private static final class IntList extends SlotList {
+		private int[] values;
+
+		IntList() {
+			super(0);
+			values = new int[capacity()];
+		}
+
+		@Override
+		protected void growColumns(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		int append(int value) {
+			return insertAfter(last(), value);
+		}
+
+		int insertAfter(int after, int value) {
+			int slot = newSlot();
+			values[slot] = value;
+			linkAfter(slot, after);
+			return slot;
+		}
+
+		int insertBefore(int before, int value) {
+			int slot = newSlot();
+			values[slot] = value;
+			linkBefore(slot, before);
+			return slot;
+		}
+
+		int get(int slot) {
+			return values[slot];
+		}
+
+		List<Integer> forward() {
+			List<Integer> order = new ArrayList<>();
+			for (int slot = first(); slot != NONE; slot = next(slot)) {
+				order.add(values[slot]);
+			}
+			return order;
+		}
+
+		List<Integer> backward() {
+			List<Integer> order = new ArrayList<>();
+			for (int slot = last(); slot != NONE; slot = prev(slot)) {
+				order.add(values[slot]);
+			}
+			return order;
+		}
+	}
+}
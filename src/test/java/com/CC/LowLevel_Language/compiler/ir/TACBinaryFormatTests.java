@@ -0,0 +1,62 @@
+package com.CC.LowLevel_Language.compiler.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.parser.OperandTable;
+import com.CC.LowLevel_Language.compiler.parser.TACInstruction;
+import com.CC.LowLevel_Language.compiler.parser.TACParser;
+
+class TACBinaryFormatTests {
+
+	private static final String PROGRAM = String.join("\n",
+			"t1 = a + b",
+			"t2 = t1 % -7",
+			"x = t2",
+			"L1:",
+			"if x != 0 goto L2",
+			"call print, x, 3",
+			"call flush",
+			"goto L1",
+			"L2:",
+			"return x",
+			"return");
+
+	@Test
+	void roundTripPreservesInstructionsAndIds() throws IOException {
+		OperandTable operands = new OperandTable();
+		List<TACInstruction> instructions = new TACParser().parseCode(PROGRAM, operands);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TACBinaryFormat.write(TACBuffer.from(instructions, operands), bytes);
+		TACBuffer loaded = TACBinaryFormat.read(ByteBuffer.wrap(bytes.toByteArray()));
+
+		assertEquals(toStrings(instructions), toStrings(loaded.toInstructions()));
+		assertEquals(operands.size(), loaded.getOperandTable().size());
+		assertEquals(instructions.get(1).getOperand2().getValue(),
+				loaded.toInstructions().get(1).getOperand2().getValue());
+	}
+
+	@Test
+	void rejectsForeignInput() {
+		ByteBuffer input = ByteBuffer.wrap("t1 = a + b".getBytes());
+		assertThrows(IOException.class, () -> TACBinaryFormat.read(input));
+	}
+
+	private static List<String> toStrings(List<TACInstruction> instructions) {
+		List<String> lines = new ArrayList<>();
+		for (TACInstruction instruction : instructions) {
+			lines.add(instruction.toString());
+		}
+		return lines;
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.CC.LowLevel_Language.compiler.optimizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.CC.LowLevel_Language.compiler.generator.AssemblyGenerator;
+import com.CC.LowLevel_Language.compiler.generator.AssemblyInstruction;
+import com.CC.LowLevel_Language.compiler.generator.AssemblyOperand;
+import com.CC.LowLevel_Language.compiler.generator.Mnemonic;
+import com.CC.LowLevel_Language.compiler.parser.TACParser;
+
+class AssemblyOptimizerTests {
+
+	private final AssemblyOptimizer optimizer = new AssemblyOptimizer();
+
+	@Test
+	void generatedInstructionsRenderAsText() {
+		AssemblyGenerator generator = new AssemblyGenerator();
+		List<AssemblyInstruction> instructions = generator.generateInstructions(
+				new TACParser().parseCode("t1 = a / b\nreturn t1\n"));
+
+		assertEquals(generator.generateAssembly(new TACParser().parseCode("t1 = a / b\nreturn t1\n")),
+				optimizer.optimize(instructions).getOriginalCode());
+
+		AssemblyInstruction cdq = instructions.get(7);
+		assertEquals(Mnemonic.CDQ, cdq.getOpcode());
+		assertEquals("cdq                 ; sign extend eax to edx:eax", cdq.toString());
+		assertEquals(AssemblyOperand.Kind.REGISTER, instructions.get(8).getOperand(0).getKind());
+	}
+
+	@Test
+	void passesWorkOnParsedLines() {
+		OptimizationResult result = optimizer.optimizeLines(Arrays.asList(
+				"_start:",
+				"mov eax, eax",
+				"mov ebx, 5",
+				"add ebx, 3",
+				"imul ecx, 4",
+				"jmp done",
+				"mov edx, 1",
+				"done:",
+				"ret                     ; return from function"));
+
+		assertEquals(Arrays.asList(
+				"_start:",
+				"mov ebx, 8",
+				"shl ecx, 2",
+				"jmp done",
+				"done:",
+				"ret                     ; return from function"), result.getOptimizedCode());
+		assertEquals(4, result.getOptimizationsApplied());
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.CC.LowLevel_Language.compiler.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TACParserTests {
+
+	private static final String PROGRAM = String.join("\n",
+			"// sample program",
+			"t1 = a + b",
+			"  t2 = t1 * 4  ",
+			"t3 = t2 - -3\r",
+			"t4 = t3",
+			"",
+			"L1:",
+			"if t4 >= 10 goto L2",
+			"call print, t4, t1",
+			"call exit",
+			"goto L2",
+			"L2:",
+			"return t4");
+
+	private final TACParser parser = new TACParser();
+
+	@Test
+	void parsesEveryLineKind() {
+		List<TACInstruction> instructions = parser.parseCode(PROGRAM);
+
+		assertEquals(11, instructions.size());
+		assertInstruction(instructions.get(0), "+", "t1", "a", "b");
+		assertInstruction(instructions.get(1), "*", "t2", "t1", "4");
+		assertInstruction(instructions.get(2), "-", "t3", "t2", "-3");
+		assertInstruction(instructions.get(3), "=", "t4", "t3", null);
+
+		assertTrue(instructions.get(4).isLabel());
+		assertEquals("L1", instructions.get(4).getLabel().getText());
+
+		assertInstruction(instructions.get(5), ">=", null, "t4", "10");
+		assertEquals(Opcode.IF_GE, instructions.get(5).getOpcode());
+		assertEquals("L2", instructions.get(5).getTarget().getText());
+		assertInstruction(instructions.get(6), "call", null, "print", null);
+		assertEquals("[t4, t1]", instructions.get(6).getArguments().toString());
+		assertInstruction(instructions.get(7), "call", null, "exit", null);
+		assertEquals(Opcode.GOTO, instructions.get(8).getOpcode());
+		assertEquals("L2", instructions.get(9).getLabel().getText());
+		assertInstruction(instructions.get(10), "return", null, "t4", null);
+	}
+
+	@Test
+	void skipsMalformedLines() {
+		List<TACInstruction> instructions = parser.parseCode("x = \nif a goto L1\nreturnValue = 5\ny = 1 2\n");
+
+		assertEquals(1, instructions.size());
+		assertInstruction(instructions.get(0), "=", "returnValue", "5", null);
+	}
+
+	@Test
+	void streamingParseMatchesInMemoryParse() {
+		List<TACInstruction> expected = parser.parseCode(PROGRAM);
+
+		// A tiny buffer forces lines to straddle chunk boundaries and the buffer to grow
+		TACInstructionIterator iterator = new TACInstructionIterator(new StringReader(PROGRAM), new OperandTable(), 16);
+		List<TACInstruction> streamed = new ArrayList<>();
+		iterator.forEachRemaining(streamed::add);
+
+		assertEquals(toStrings(expected), toStrings(streamed));
+		assertEquals(expected.size(), iterator.getInstructionCount());
+	}
+
+	@Test
+	void mappedParseMatchesInMemoryParse(@TempDir Path directory) throws IOException {
+		Path file = Files.writeString(directory.resolve("program.tac"), PROGRAM);
+		List<TACInstruction> streamed = new ArrayList<>();
+
+		// A small window makes the file span several mappings
+		try (MappedInstructionIterator iterator = new MappedInstructionIterator(file, new OperandTable(), 32)) {
+			iterator.forEachRemaining(streamed::add);
+		}
+
+		assertEquals(toStrings(parser.parseCode(PROGRAM)), toStrings(streamed));
+	}
+
+	@Test
+	void parallelParseMatchesSequentialParse() {
+		StringBuilder program = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			program.append(PROGRAM).append('\n');
+		}
+
+		OperandTable sequentialOperands = new OperandTable();
+		List<TACInstruction> expected = parser.parseCode(program, sequentialOperands);
+
+		OperandTable parallelOperands = new OperandTable();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<TACInstruction> parsed = new ParallelTACParser(pool, 500).parseCode(program, parallelOperands);
+
+			assertEquals(toStrings(expected), toStrings(parsed));
+			assertEquals(sequentialOperands.size(), parallelOperands.size());
+			assertSame(parsed.get(5).getTarget(), parsed.get(parsed.size() - 2).getLabel());
+			assertEquals(expected.get(12).getResult().getId(), parsed.get(12).getResult().getId());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void incrementalReparseOnlyReplacesEditedLines() {
+		IncrementalTACParser incremental = new IncrementalTACParser();
+		TACDocument document = incremental.parse(PROGRAM);
+		TACInstruction untouched = document.getInstructionAt(1);
+
+		// Rewrite line 3 ("t3 = t2 - -3") and insert a new line after line 4
+		incremental.reparse(document, List.of(
+				new TACDocument.LineEdit(3, 1, "t3 = t2 + 1\n"),
+				new TACDocument.LineEdit(5, 0, "t5 = t4 * t1\n")));
+
+		String edited = PROGRAM.replace("t3 = t2 - -3\r", "t3 = t2 + 1")
+				.replace("t4 = t3\n", "t4 = t3\nt5 = t4 * t1\n");
+		assertEquals(toStrings(parser.parseCode(edited)), toStrings(document.getInstructions()));
+		assertSame(untouched, document.getInstructionAt(1));
+		assertSame(document.getInstructionAt(2).getResult(), document.getInstructionAt(3).getOperand1());
+		assertEquals(1, document.getVersion());
+	}
+
+	private static List<String> toStrings(List<TACInstruction> instructions) {
+		List<String> lines = new ArrayList<>();
+		for (TACInstruction instruction : instructions) {
+			lines.add(instruction.toString());
+		}
+		return lines;
+	}
+
+	@Test
+	void parsesNestedExpressionsWithPrecedence() {
+		List<TACInstruction> instructions = parser.parseCode(
+				"x = a + b * (c - -2)\ny = (a + b)\nz = (a + b) * (c + d)\nw = (a + b\n");
+
+		assertEquals(3, instructions.size());
+		TACInstruction nested = instructions.get(0);
+		assertEquals(Opcode.EXPR, nested.getOpcode());
+		assertEquals("x = (a + (b * (c - -2)))", nested.toString());
+		assertInstruction(instructions.get(1), "+", "y", "a", "b");
+
+		// Both sides need a register, so the product needs two
+		Expression product = instructions.get(2).getExpression();
+		assertEquals(Opcode.MUL, product.getOperator());
+		assertEquals(1, product.getLeft().getRegisterNeed());
+		assertEquals(2, product.getRegisterNeed());
+		assertEquals(2, nested.getExpression().getRegisterNeed());
+	}
+
+	@Test
+	void classifiesAndInternsOperands() {
+		OperandTable operands = new OperandTable();
+		List<TACInstruction> instructions = parser.parseCode(PROGRAM, operands);
+
+		Operand t1 = instructions.get(0).getResult();
+		assertSame(t1, instructions.get(1).getOperand1());
+		assertEquals(Operand.Kind.TEMP, t1.getKind());
+		assertEquals(Operand.Kind.VARIABLE, instructions.get(0).getOperand1().getKind());
+
+		Operand minusThree = instructions.get(2).getOperand2();
+		assertEquals(Operand.Kind.CONSTANT, minusThree.getKind());
+		assertEquals(-3, minusThree.getValue());
+
+		Operand label = instructions.get(5).getTarget();
+		assertEquals(Operand.Kind.LABEL, label.getKind());
+		assertSame(label, instructions.get(8).getTarget());
+		assertSame(label, instructions.get(9).getLabel());
+		assertSame(operands.get(label.getId()), label);
+	}
+
+	private static void assertInstruction(TACInstruction instruction, String operation,
+			String result, String operand1, String operand2) {
+		assertEquals(operation, instruction.getOperation());
+		assertEquals(result, text(instruction.getResult()));
+		assertEquals(operand1, text(instruction.getOperand1()));
+		assertEquals(operand2, text(instruction.getOperand2()));
+	}
+
+	private static String text(Operand operand) {
+		return operand != null ? operand.getText() : null;
+	}
+
+}